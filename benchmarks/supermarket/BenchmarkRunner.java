@@ -0,0 +1,41 @@
+package supermarket;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Bootstrap class for running the supermarket benchmarks with the GC profiler attached, so that allocation rates are
+ * reported alongside throughput and average time.
+ */
+class BenchmarkRunner
+{
+    /**
+     * Program main
+     * @param args  Standard JMH command line options, e.g. "-p cartLength=1000" to restrict a parameter or a regular
+     *              expression selecting the benchmarks to run.  All supermarket benchmarks run when none is supplied.
+     * @throws CommandLineOptionException  If the command line options cannot be parsed.
+     * @throws RunnerException  If the benchmarks fail to run.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        if (commandLineOptions.getIncludes().isEmpty())
+        {
+            optionsBuilder.include("supermarket\\..*Benchmark");
+        }
+
+        Options options = optionsBuilder
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
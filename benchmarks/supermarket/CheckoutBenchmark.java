@@ -0,0 +1,114 @@
+package supermarket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the end-to-end checkout path and its two stages: building the shopping cart from the item token
+ * string and scanning the cart with the configured price rules.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutBenchmark
+{
+    /**
+     * Per-thread cart which is rebuilt before every invocation, since scanning a cart consumes its item quantities.
+     */
+    @State(Scope.Thread)
+    public static class CartState
+    {
+        ShoppingCart cart;
+
+        /**
+         * Build a fresh cart from the shared item token string.
+         * @param checkoutState  Shared benchmark fixture.
+         */
+        @Setup(Level.Invocation)
+        public void setUp(CheckoutState checkoutState)
+        {
+            cart = new ShoppingCart(checkoutState.items);
+        }
+    }
+
+    /**
+     * Measure Supermarket.checkout(), including cart construction and scanning.
+     * @param checkoutState  Shared benchmark fixture.
+     * @return  Total computed for the cart.
+     */
+    @Benchmark
+    public int checkout(CheckoutState checkoutState)
+    {
+        return checkoutState.supermarket.checkout(checkoutState.items);
+    }
+
+    /**
+     * Measure Supermarket.checkout() with a price scanner whose pricing plan has been compiled.
+     * @param checkoutState  Shared benchmark fixture.
+     * @return  Total computed for the cart.
+     */
+    @Benchmark
+    public int checkoutCompiled(CheckoutState checkoutState)
+    {
+        return checkoutState.compiledSupermarket.checkout(checkoutState.items);
+    }
+
+    /**
+     * Measure Supermarket.checkout() with a memoizing price scanner, repeatedly checking out the same cart so that
+     * every checkout after the first reuses the remembered result.
+     * @param checkoutState  Shared benchmark fixture.
+     * @return  Total computed for the cart.
+     */
+    @Benchmark
+    public int checkoutMemoized(CheckoutState checkoutState)
+    {
+        return checkoutState.memoizedSupermarket.checkout(checkoutState.items);
+    }
+
+    /**
+     * Measure construction of a ShoppingCart from the item token string.
+     * @param checkoutState  Shared benchmark fixture.
+     * @return  Constructed cart.
+     */
+    @Benchmark
+    public ShoppingCart constructShoppingCart(CheckoutState checkoutState)
+    {
+        return new ShoppingCart(checkoutState.items);
+    }
+
+    /**
+     * Measure construction of a CharIndexedShoppingCart from the item token string.
+     * @param checkoutState  Shared benchmark fixture.
+     * @return  Constructed cart.
+     */
+    @Benchmark
+    public CharIndexedShoppingCart constructCharIndexedShoppingCart(CheckoutState checkoutState)
+    {
+        return new CharIndexedShoppingCart(checkoutState.items);
+    }
+
+    /**
+     * Measure PriceScanner.scanItems() against a freshly built cart.
+     * @param checkoutState  Shared benchmark fixture.
+     * @param cartState  Per-invocation cart.
+     * @return  Total computed for the cart.
+     */
+    @Benchmark
+    public int scanItems(CheckoutState checkoutState, CartState cartState)
+    {
+        return checkoutState.priceScanner.scanItems(cartState.cart);
+    }
+}
@@ -0,0 +1,98 @@
+package supermarket;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shared benchmark fixture holding a generated inventory, price rule list and cart token string.  Product ids are
+ * single characters starting at 'A', matching the cart token format understood by ShoppingCart.
+ */
+@State(Scope.Benchmark)
+public class CheckoutState
+{
+    private static final long SEED = 0x5eed;
+
+    /**
+     * Number of items (characters) in the cart token string.
+     */
+    @Param({"10", "1000", "100000", "10000000"})
+    public int cartLength;
+
+    /**
+     * Number of distinct products in the inventory.  Cart items are drawn uniformly from these products.
+     */
+    @Param({"3", "26", "1000"})
+    public int productCount;
+
+    /**
+     * Number of XForThePriceOfYPriceRule rules configured ahead of the trailing BaseUnitPriceRule.  Rules are assigned
+     * to products round-robin.
+     */
+    @Param({"1", "10", "100"})
+    public int ruleCount;
+
+    String items;
+    Inventory inventory;
+    List<IPriceRule> priceRules;
+    PriceScanner priceScanner;
+    Supermarket supermarket;
+    Supermarket compiledSupermarket;
+    Supermarket memoizedSupermarket;
+
+    /**
+     * Build the inventory, rules and cart for the current parameter combination.
+     */
+    @Setup
+    public void setUp()
+    {
+        List<IProduct> products = new ArrayList<IProduct>(productCount);
+        for (int i = 0; i < productCount; i++)
+        {
+            products.add(new Product(getProductId(i), 10 + (i % 90)));
+        }
+
+        inventory = new Inventory(products);
+
+        priceRules = new ArrayList<IPriceRule>(ruleCount + 1);
+        for (int i = 0; i < ruleCount; i++)
+        {
+            int totalQuantityForRule = 2 + (i % 5);
+            priceRules.add(new XForThePriceOfYPriceRule(getProductId(i % productCount), totalQuantityForRule,
+                    totalQuantityForRule - 1));
+        }
+        priceRules.add(new BaseUnitPriceRule());
+
+        priceScanner = new PriceScanner(inventory, priceRules);
+        supermarket = new Supermarket(priceScanner, inventory);
+
+        PriceScanner compiledPriceScanner = new PriceScanner(inventory, priceRules);
+        compiledPriceScanner.compile();
+        compiledSupermarket = new Supermarket(compiledPriceScanner, inventory);
+        memoizedSupermarket = new Supermarket(new MemoizingPriceScanner(new PriceScanner(inventory, priceRules), 16),
+                inventory);
+
+        Random random = new Random(SEED);
+        char[] cartItems = new char[cartLength];
+        for (int i = 0; i < cartLength; i++)
+        {
+            cartItems[i] = (char) ('A' + random.nextInt(productCount));
+        }
+        items = new String(cartItems);
+    }
+
+    /**
+     * Get the product id used for the product at the supplied position.
+     * @param index  Position of the product.  Must be non-negative.
+     * @return  Single character product id.
+     */
+    static String getProductId(int index)
+    {
+        return String.valueOf((char) ('A' + index));
+    }
+}
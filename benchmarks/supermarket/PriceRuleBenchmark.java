@@ -0,0 +1,82 @@
+package supermarket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the individual IPriceRule implementations processed against a cart built from the shared fixture.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceRuleBenchmark
+{
+    /**
+     * Per-thread rules and cart.  The cart is rebuilt before every invocation, since processing a rule consumes the
+     * item quantities it claims.
+     */
+    @State(Scope.Thread)
+    public static class RuleState
+    {
+        BaseUnitPriceRule baseUnitPriceRule;
+        XForThePriceOfYPriceRule xForThePriceOfYPriceRule;
+        ShoppingCart cart;
+
+        /**
+         * Create the rules under test.
+         */
+        @Setup
+        public void setUpRules()
+        {
+            baseUnitPriceRule = new BaseUnitPriceRule();
+            xForThePriceOfYPriceRule = new XForThePriceOfYPriceRule(CheckoutState.getProductId(0), 3, 2);
+        }
+
+        /**
+         * Build a fresh cart from the shared item token string.
+         * @param checkoutState  Shared benchmark fixture.
+         */
+        @Setup(Level.Invocation)
+        public void setUpCart(CheckoutState checkoutState)
+        {
+            cart = new ShoppingCart(checkoutState.items);
+        }
+    }
+
+    /**
+     * Measure BaseUnitPriceRule.process(), which visits every item in the cart.
+     * @param checkoutState  Shared benchmark fixture.
+     * @param ruleState  Per-invocation rules and cart.
+     * @return  Cost of the items claimed by the rule.
+     */
+    @Benchmark
+    public int baseUnitPriceRuleProcess(CheckoutState checkoutState, RuleState ruleState)
+    {
+        return ruleState.baseUnitPriceRule.process(ruleState.cart, checkoutState.inventory);
+    }
+
+    /**
+     * Measure XForThePriceOfYPriceRule.process(), which looks up a single product in the cart.
+     * @param checkoutState  Shared benchmark fixture.
+     * @param ruleState  Per-invocation rules and cart.
+     * @return  Cost of the items claimed by the rule.
+     */
+    @Benchmark
+    public int xForThePriceOfYPriceRuleProcess(CheckoutState checkoutState, RuleState ruleState)
+    {
+        return ruleState.xForThePriceOfYPriceRule.process(ruleState.cart, checkoutState.inventory);
+    }
+}
@@ -3,7 +3,7 @@ package supermarket;
 /**
  * Pricing rule for charging the base unit price for each item remaining in the shopping cart.
  */
-class BaseUnitPriceRule implements IPriceRule
+class BaseUnitPriceRule implements ICompilablePriceRule, IPartitionablePriceRule, IExactPriceRule
 {
     /**
      * Class constructor
@@ -25,6 +25,18 @@ class BaseUnitPriceRule implements IPriceRule
      */
     @Override
     public int process(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        return (int) processExact(cart, lookup);
+    }
+
+    /**
+     * Process this rule against the items in the shopping cart, with a 64-bit cost.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.
+     * @param lookup  Product information finder.  Must be non-null.
+     * @return  Cost of the items claimed by this rule.
+     */
+    @Override
+    public long processExact(IShoppingCart cart, IInventoryLookup lookup)
     {
         if (cart == null)
         {
@@ -36,14 +48,82 @@ class BaseUnitPriceRule implements IPriceRule
             throw new IllegalArgumentException("lookup cannot be null");
         }
 
-        int total = 0;
+        long total;
+
+        IProductCatalog catalog = IndexedShoppingCart.getMatchingCatalog(cart, lookup);
+        if (catalog != null)
+        {
+            total = processByProductIndex((IndexedShoppingCart) cart, catalog);
+        }
+        else
+        {
+            total = processByProductId(cart, lookup);
+        }
+
+        return total;
+    }
 
-        for (IItem item : cart.getItems())
+    /**
+     * Add this rule's charging of each product's remaining quantity at unit price to a plan.
+     * @param plan  Plan being compiled.  Must be non-null.
+     */
+    @Override
+    public void compileInto(PricingPlan plan)
+    {
+        if (plan == null)
+        {
+            throw new IllegalArgumentException("plan cannot be null");
+        }
+
+        plan.chargeRemainder();
+    }
+
+    private long processByProductId(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        UnitPriceTotaller totaller = new UnitPriceTotaller(cart, lookup);
+        cart.forEachItem(totaller);
+
+        return totaller.total;
+    }
+
+    private long processByProductIndex(IndexedShoppingCart cart, IProductCatalog catalog)
+    {
+        long total = 0;
+
+        int lineCount = cart.getLineCount();
+        for (int line = 0; line < lineCount; line++)
+        {
+            int quantity = cart.getLineQuantity(line);
+            if (quantity > 0)
+            {
+                total += ((long) catalog.getUnitPrice(cart.getLineProductIndex(line)) * quantity);
+                cart.setLineQuantity(line, 0);
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Visitor charging each visited item at unit price and claiming its whole quantity.
+     */
+    private static class UnitPriceTotaller implements IItemVisitor
+    {
+        final IShoppingCart cart;
+        final IInventoryLookup lookup;
+        long total;
+
+        UnitPriceTotaller(IShoppingCart cart, IInventoryLookup lookup)
+        {
+            this.cart = cart;
+            this.lookup = lookup;
+        }
+
+        @Override
+        public void visit(String productId, int quantity)
         {
-            int quantity = item.getQuantity();
             if (quantity > 0)
             {
-                String productId = item.getProductId();
                 IProduct productInInventory = lookup.getProduct(productId);
 
                 // TODO: Consider what to do if this fails.  Failure would indicate that the product to which
@@ -51,12 +131,10 @@ class BaseUnitPriceRule implements IPriceRule
                 //  error to log, ...?
                 if (productInInventory != null)
                 {
-                    total += (productInInventory.getUnitPrice() * quantity);
+                    total += ((long) productInInventory.getUnitPrice() * quantity);
                     cart.setItemQuantity(productId, 0);
                 }
             }
         }
-
-        return total;
     }
-}
\ No newline at end of file
+}
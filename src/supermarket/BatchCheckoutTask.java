@@ -0,0 +1,60 @@
+package supermarket;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task checking out a contiguous range of carts, splitting the range in half until it is no larger than a
+ * threshold.  Each total is written to the results array at the same position as its cart, so results stay in input
+ * order regardless of which worker computes them.
+ */
+@SuppressWarnings("serial")
+class BatchCheckoutTask extends RecursiveAction
+{
+    private final Supermarket supermarket;
+    private final String[] carts;
+    private final int[] results;
+    private final int start;
+    private final int end;
+    private final int threshold;
+
+    /**
+     * Class constructor
+     * @param supermarket  Supermarket used to check out each cart.  Must be non-null.
+     * @param carts  Item token strings for the carts to check out.  Must be non-null.
+     * @param results  Array receiving the total for each cart.  Must be non-null and at least as long as carts.
+     * @param start  Position of the first cart in the range, inclusive.
+     * @param end  Position of the last cart in the range, exclusive.
+     * @param threshold  Largest range which is checked out without splitting further.  Must be 1 or greater.
+     */
+    public BatchCheckoutTask(Supermarket supermarket, String[] carts, int[] results, int start, int end,
+                             int threshold)
+    {
+        this.supermarket = supermarket;
+        this.carts = carts;
+        this.results = results;
+        this.start = start;
+        this.end = end;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Check out the carts in the range, forking subtasks when the range exceeds the threshold.
+     */
+    @Override
+    protected void compute()
+    {
+        if (end - start <= threshold)
+        {
+            for (int i = start; i < end; i++)
+            {
+                results[i] = supermarket.checkout(carts[i]);
+            }
+        }
+        else
+        {
+            int middle = (start + end) >>> 1;
+            invokeAll(new BatchCheckoutTask(supermarket, carts, results, start, middle, threshold),
+                    new BatchCheckoutTask(supermarket, carts, results, middle, end, threshold));
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package supermarket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Checkout server speaking a compact, length-prefixed binary protocol, for lane-to-backend traffic where HTTP framing
+ * would cost more than the pricing itself.  All integers are big-endian.
+ *
+ * <p>A request frame is an int holding the length of the rest of the frame, an int count of items, then for each item
+ * an unsigned short length of its product id, the product id in UTF-8 and an int quantity.  A reply frame is an int
+ * holding {@link #REPLY_LENGTH}, the long version of the pricing configuration used and the int total.</p>
+ *
+ * <p>A client may send any number of requests without waiting for replies; replies are sent in request order.  Product
+ * ids are looked up in the scanner's catalog straight from the receive buffer, so requests are decoded into an
+ * {@link IndexedShoppingCart} without creating a String per item.  Items whose product is not in the catalog are not
+ * priced.  A connection sending a malformed frame, or one longer than the configured maximum, is closed.</p>
+ *
+ * <p>Connections are served by a single thread multiplexing them with a selector, pricing each request as it is
+ * decoded.  While a connection's replies cannot be written, no more of its requests are read.</p>
+ */
+class BinaryCheckoutServer
+{
+    static final int DEFAULT_MAXIMUM_FRAME_LENGTH = 1 << 16;
+    static final int REPLY_LENGTH = 12;
+
+    private static final int LENGTH_PREFIX = 4;
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    private static final Charset ID_CHARSET = Charset.forName("UTF-8");
+    private static final ProductDictionary NO_PRODUCTS = new ProductDictionary(Collections.<String>emptyList());
+
+    private final PriceScanner priceScanner;
+    private final int maximumFrameLength;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Class constructor for a server accepting request frames of up to {@link #DEFAULT_MAXIMUM_FRAME_LENGTH} bytes.
+     * @param priceScanner  Scanner pricing every request.  Value cannot be null.
+     * @param address  Address to listen on.  Value cannot be null.  A port of 0 listens on any free port.
+     * @throws IOException  If the address cannot be bound.
+     */
+    public BinaryCheckoutServer(PriceScanner priceScanner, InetSocketAddress address) throws IOException
+    {
+        this(priceScanner, address, DEFAULT_MAXIMUM_FRAME_LENGTH);
+    }
+
+    /**
+     * Class constructor
+     * @param priceScanner  Scanner pricing every request.  Value cannot be null.
+     * @param address  Address to listen on.  Value cannot be null.  A port of 0 listens on any free port.
+     * @param maximumFrameLength  Largest request frame accepted, in bytes, not counting its length prefix.  Value
+     *                            cannot be less than 4.
+     * @throws IOException  If the address cannot be bound.
+     */
+    public BinaryCheckoutServer(PriceScanner priceScanner, InetSocketAddress address, int maximumFrameLength)
+            throws IOException
+    {
+        if (priceScanner == null)
+        {
+            throw new IllegalArgumentException("priceScanner cannot be null");
+        }
+
+        if (address == null)
+        {
+            throw new IllegalArgumentException("address cannot be null");
+        }
+
+        if (maximumFrameLength < 4)
+        {
+            throw new IllegalArgumentException("maximumFrameLength cannot be less than 4");
+        }
+
+        this.priceScanner = priceScanner;
+        this.maximumFrameLength = maximumFrameLength;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try
+        {
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(address);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException ioe)
+        {
+            serverChannel.close();
+            selector.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Start accepting connections on a thread of the server's own.
+     */
+    public synchronized void start()
+    {
+        if (thread != null)
+        {
+            throw new IllegalStateException("server already started");
+        }
+
+        running = true;
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                serve();
+            }
+        }, "binary-checkout-server");
+        thread.start();
+    }
+
+    /**
+     * Stop the server, closing its connections, and wait for its thread to finish.
+     */
+    public synchronized void stop()
+    {
+        running = false;
+        selector.wakeup();
+
+        if (thread == null)
+        {
+            try
+            {
+                serverChannel.close();
+                selector.close();
+            }
+            catch (IOException ioe)
+            {
+                // Nothing more can be done while shutting down
+            }
+        }
+        else
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Get the address the server is listening on, including the port chosen if it was constructed with port 0.
+     * @return  Bound address.
+     */
+    public InetSocketAddress getAddress()
+    {
+        return (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+    }
+
+    private void serve()
+    {
+        try
+        {
+            while (running)
+            {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (key.isValid() && key.isAcceptable())
+                    {
+                        try
+                        {
+                            accept();
+                        }
+                        catch (IOException ioe)
+                        {
+                            // Only the connection being accepted is lost; the server carries on
+                        }
+                    }
+                    else if (key.isValid())
+                    {
+                        Connection connection = (Connection) key.attachment();
+                        try
+                        {
+                            if (key.isReadable())
+                            {
+                                connection.read();
+                            }
+                            else if (key.isWritable())
+                            {
+                                connection.write();
+                            }
+                        }
+                        catch (IOException ioe)
+                        {
+                            connection.close();
+                        }
+                        catch (RuntimeException re)
+                        {
+                            // A request which fails to price loses only its own connection, not the whole server
+                            connection.close();
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException ioe)
+        {
+            // The selector has failed, so no connection can be served any longer
+        }
+        finally
+        {
+            for (SelectionKey key : selector.keys())
+            {
+                closeQuietly(key);
+            }
+
+            try
+            {
+                selector.close();
+                serverChannel.close();
+            }
+            catch (IOException ioe)
+            {
+                // Nothing more can be done while shutting down
+            }
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null)
+        {
+            try
+            {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(channel, key));
+            }
+            catch (IOException ioe)
+            {
+                channel.close();
+                throw ioe;
+            }
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key)
+    {
+        if (key != null)
+        {
+            key.cancel();
+            try
+            {
+                key.channel().close();
+            }
+            catch (IOException ioe)
+            {
+                // The channel is being discarded either way
+            }
+        }
+    }
+
+    /**
+     * State of one client connection: a receive buffer holding up to one whole frame, and a send buffer of replies not
+     * yet written.
+     */
+    private class Connection
+    {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in;
+        private final ByteBuffer out;
+
+        Connection(SocketChannel channel, SelectionKey key)
+        {
+            this.channel = channel;
+            this.key = key;
+            in = ByteBuffer.allocateDirect(LENGTH_PREFIX + maximumFrameLength);
+            out = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        }
+
+        void read() throws IOException
+        {
+            if (channel.read(in) < 0)
+            {
+                close();
+            }
+            else
+            {
+                processFrames();
+            }
+        }
+
+        void write() throws IOException
+        {
+            flush();
+            if (key.isValid())
+            {
+                processFrames();
+            }
+        }
+
+        void close()
+        {
+            closeQuietly(key);
+        }
+
+        /**
+         * Answer every whole request frame received, for as long as there is room for the replies.
+         */
+        private void processFrames() throws IOException
+        {
+            in.flip();
+            while (in.remaining() >= LENGTH_PREFIX && out.remaining() >= LENGTH_PREFIX + REPLY_LENGTH)
+            {
+                int frameLength = in.getInt(in.position());
+                if (frameLength < 4 || frameLength > maximumFrameLength)
+                {
+                    close();
+                    return;
+                }
+
+                if (in.remaining() < LENGTH_PREFIX + frameLength)
+                {
+                    break;
+                }
+
+                int frameStart = in.position() + LENGTH_PREFIX;
+                PricingSnapshot pinned = priceScanner.getSnapshot();
+                IndexedShoppingCart cart = decode(frameStart, frameStart + frameLength, pinned);
+                if (cart == null)
+                {
+                    close();
+                    return;
+                }
+
+                int total = priceScanner.scanItems(cart, pinned);
+                out.putInt(REPLY_LENGTH).putLong(pinned.getVersion()).putInt(total);
+                in.position(frameStart + frameLength);
+            }
+            in.compact();
+
+            flush();
+        }
+
+        private void flush() throws IOException
+        {
+            out.flip();
+            channel.write(out);
+            out.compact();
+
+            // Stop reading while replies are waiting to be written, so a client which never reads cannot grow them
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        /**
+         * Decode the items of a request frame into a cart.
+         * @return  Cart, if the frame is well formed.  Otherwise, null.
+         */
+        private IndexedShoppingCart decode(int start, int end, PricingSnapshot pinned)
+        {
+            IProductCatalog catalog = pinned.getInventory() instanceof IProductCatalog ?
+                    (IProductCatalog) pinned.getInventory() : null;
+            IndexedShoppingCart cart = new IndexedShoppingCart(catalog != null ? catalog.getDictionary() : NO_PRODUCTS);
+
+            int position = start;
+            int itemCount = in.getInt(position);
+            position += 4;
+
+            if (itemCount < 0)
+            {
+                return null;
+            }
+
+            for (int i = 0; i < itemCount; i++)
+            {
+                if (end - position < 2)
+                {
+                    return null;
+                }
+
+                int idLength = in.getShort(position) & 0xffff;
+                position += 2;
+
+                if (idLength == 0 || end - position < idLength + 4)
+                {
+                    return null;
+                }
+
+                int quantity = in.getInt(position + idLength);
+                if (quantity < 0)
+                {
+                    return null;
+                }
+
+                int productIndex = cart.getDictionary().indexOf(in, position, idLength);
+                if (productIndex >= 0)
+                {
+                    cart.addItems(productIndex, quantity);
+                }
+                else if (catalog == null)
+                {
+                    // Without a catalog, products can only be looked up by id
+                    cart.addUnknownItems(decodeId(position, idLength), quantity);
+                }
+
+                position += idLength + 4;
+            }
+
+            return position == end ? cart : null;
+        }
+
+        private String decodeId(int position, int idLength)
+        {
+            byte[] id = new byte[idLength];
+            for (int i = 0; i < idLength; i++)
+            {
+                id[i] = in.get(position + i);
+            }
+
+            return new String(id, ID_CHARSET);
+        }
+    }
+}
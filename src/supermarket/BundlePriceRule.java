@@ -0,0 +1,155 @@
+package supermarket;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Pricing rule for buying a set quantity of each of several products together at a fixed bundle price, such as one
+ * each of products A, B and C for 90.
+ */
+class BundlePriceRule implements IBundlePriceRule, IExactPriceRule
+{
+    private final String[] productIds;
+    private final int[] componentQuantities;
+    private final int bundlePrice;
+
+    /**
+     * Class constructor
+     * @param componentQuantities  Quantity of each product claimed by one application of the bundle, keyed by product
+     *                             id.  Must be non-null and non-empty.  Product ids must be non-null and non-empty,
+     *                             and quantities 1 or greater.
+     * @param bundlePrice  Price of one application of the bundle.  Cannot be negative.
+     */
+    public BundlePriceRule(Map<String, Integer> componentQuantities, int bundlePrice)
+    {
+        if (componentQuantities == null)
+        {
+            throw new IllegalArgumentException("componentQuantities cannot be null");
+        }
+
+        if (componentQuantities.isEmpty())
+        {
+            throw new IllegalArgumentException("componentQuantities cannot be empty");
+        }
+
+        if (bundlePrice < 0)
+        {
+            throw new IllegalArgumentException("bundlePrice cannot be negative");
+        }
+
+        productIds = new String[componentQuantities.size()];
+        this.componentQuantities = new int[productIds.length];
+        int component = 0;
+        for (Map.Entry<String, Integer> entry : componentQuantities.entrySet())
+        {
+            if (entry.getKey() == null || entry.getKey().isEmpty())
+            {
+                throw new IllegalArgumentException("componentQuantities product id cannot be null or empty");
+            }
+
+            if (entry.getValue() == null || entry.getValue() < 1)
+            {
+                throw new IllegalArgumentException("componentQuantities quantity cannot be less than 1");
+            }
+
+            productIds[component] = entry.getKey();
+            this.componentQuantities[component++] = entry.getValue();
+        }
+
+        this.bundlePrice = bundlePrice;
+    }
+
+    /**
+     * Process this rule against the items in the shopping cart.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.  The bundle is applied as many times
+     *              as the cart's quantities of every product allow, and each product's quantity is decremented by the
+     *              quantity claimed.  For example, if this rule is serving as "2 A and 1 B for 90" and the cart holds 5
+     *              A and 3 B, the bundle applies twice, leaving 1 A and 1 B.
+     * @param lookup  Product information finder.  Must be non-null.  The bundle price does not depend on unit prices,
+     *                so it is not consulted.
+     * @return  Cost of the items claimed by this rule.  For the example above, 180 : 2 applications * 90.
+     */
+    @Override
+    public int process(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        return (int) processExact(cart, lookup);
+    }
+
+    /**
+     * Process this rule against the items in the shopping cart, with a 64-bit cost.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.
+     * @param lookup  Product information finder.  Must be non-null.
+     * @return  Cost of the items claimed by this rule.
+     */
+    @Override
+    public long processExact(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        if (cart == null)
+        {
+            throw new IllegalArgumentException("cart cannot be null");
+        }
+
+        if (lookup == null)
+        {
+            throw new IllegalArgumentException("lookup cannot be null");
+        }
+
+        // The number of applications is fixed by the scarcest component, so no application is tried and undone
+        int applications = Integer.MAX_VALUE;
+        for (int component = 0; component < productIds.length && applications > 0; component++)
+        {
+            applications = Math.min(applications, cart.getItemQuantity(productIds[component]) /
+                    componentQuantities[component]);
+        }
+
+        if (applications > 0)
+        {
+            for (int component = 0; component < productIds.length; component++)
+            {
+                int quantity = cart.getItemQuantity(productIds[component]);
+                cart.setItemQuantity(productIds[component], quantity - applications * componentQuantities[component]);
+            }
+        }
+
+        return (long) applications * bundlePrice;
+    }
+
+    /**
+     * Get the ids of the products in the bundle.
+     * @return  Product ids, in the order the bundle was declared.
+     */
+    @Override
+    public Collection<String> getProductIds()
+    {
+        return Collections.unmodifiableList(Arrays.asList(productIds));
+    }
+
+    /**
+     * Get the quantity of a product claimed by one application of the bundle.
+     * @param productId  Id of the product.  Must be non-null.
+     * @return  Quantity of the product, if it is in the bundle.  Otherwise, zero.
+     */
+    public int getComponentQuantity(String productId)
+    {
+        for (int component = 0; component < productIds.length; component++)
+        {
+            if (productIds[component].equals(productId))
+            {
+                return componentQuantities[component];
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Get the price of one application of the bundle.
+     * @return  Bundle price.
+     */
+    public int getBundlePrice()
+    {
+        return bundlePrice;
+    }
+}
@@ -0,0 +1,409 @@
+package supermarket;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product information finder which caches the products found by another, slower finder.  Ids which are not found are
+ * cached too, since price rules look up the same unknown ids on every checkout.
+ *
+ * <p>The cache holds at most a configured number of ids, and evicts with a W-TinyLFU policy: new entries enter a
+ * small LRU admission window, and an entry leaving the window only displaces the least recently used entry of the main
+ * segmented LRU if a {@link FrequencySketch} records it as used more often.  This keeps ids which are looked up often
+ * cached through bursts of ids which are looked up once.  Entries may also expire a fixed time after they are loaded,
+ * and can be invalidated explicitly.</p>
+ *
+ * <p>The cache is safe for use by multiple threads.  Lookups which miss call the underlying finder without holding
+ * the cache's lock, so two threads missing on the same id at the same time may both call it.</p>
+ */
+class CachingInventoryLookup implements IInventoryLookup
+{
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final ITimeSource SYSTEM_TIME_SOURCE = new ITimeSource()
+    {
+        @Override
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    private final IInventoryLookup inventory;
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final ITimeSource timeSource;
+
+    private final Object lock = new Object();
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final int maximumWindowSize;
+    private final int maximumProtectedSize;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Class constructor for a cache whose entries do not expire.
+     * @param inventory  Product information finder whose results are cached.  Value cannot be null.
+     * @param maximumSize  Maximum number of ids to cache.  Value cannot be less than 1.
+     */
+    public CachingInventoryLookup(IInventoryLookup inventory, int maximumSize)
+    {
+        this(inventory, maximumSize, Long.MAX_VALUE, TimeUnit.NANOSECONDS, SYSTEM_TIME_SOURCE);
+    }
+
+    /**
+     * Class constructor
+     * @param inventory  Product information finder whose results are cached.  Value cannot be null.
+     * @param maximumSize  Maximum number of ids to cache.  Value cannot be less than 1.
+     * @param timeToLive  Time after which a cached entry is loaded again.  Value must be greater than zero.
+     * @param unit  Unit of timeToLive.  Value cannot be null.
+     */
+    public CachingInventoryLookup(IInventoryLookup inventory, int maximumSize, long timeToLive, TimeUnit unit)
+    {
+        this(inventory, maximumSize, timeToLive, unit, SYSTEM_TIME_SOURCE);
+    }
+
+    /**
+     * Class constructor
+     * @param inventory  Product information finder whose results are cached.  Value cannot be null.
+     * @param maximumSize  Maximum number of ids to cache.  Value cannot be less than 1.
+     * @param timeToLive  Time after which a cached entry is loaded again.  Value must be greater than zero.
+     * @param unit  Unit of timeToLive.  Value cannot be null.
+     * @param timeSource  Source of the time used to expire entries.  Value cannot be null.
+     */
+    CachingInventoryLookup(IInventoryLookup inventory, int maximumSize, long timeToLive, TimeUnit unit,
+                           ITimeSource timeSource)
+    {
+        if (inventory == null)
+        {
+            throw new IllegalArgumentException("inventory cannot be null");
+        }
+
+        if (maximumSize < 1)
+        {
+            throw new IllegalArgumentException("maximumSize cannot be less than 1");
+        }
+
+        if (timeToLive <= 0)
+        {
+            throw new IllegalArgumentException("timeToLive must be greater than zero");
+        }
+
+        if (unit == null)
+        {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+
+        if (timeSource == null)
+        {
+            throw new IllegalArgumentException("timeSource cannot be null");
+        }
+
+        this.inventory = inventory;
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.timeSource = timeSource;
+
+        sketch = new FrequencySketch(maximumSize);
+        maximumWindowSize = Math.max(1, maximumSize * WINDOW_PERCENT / 100);
+        maximumProtectedSize = (maximumSize - maximumWindowSize) * PROTECTED_PERCENT / 100;
+    }
+
+    /**
+     * Get the product whose id matches the supplied parameter, from the cache if it holds an entry for the id which
+     * has not expired.
+     * @param id  Id of the product to get.  Must be non-null and non-empty.
+     * @return  The product, if one can be found.  Otherwise, null.
+     */
+    @Override
+    public IProduct getProduct(String id)
+    {
+        if (id == null)
+        {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+
+        if (id.isEmpty())
+        {
+            throw new IllegalArgumentException("id cannot be empty");
+        }
+
+        long now = timeSource.nanoTime();
+
+        synchronized (lock)
+        {
+            sketch.increment(id.hashCode());
+
+            Entry entry = entries.get(id);
+            if (entry != null)
+            {
+                if (now - entry.loadTime < timeToLiveNanos)
+                {
+                    hitCount++;
+                    onAccess(entry);
+                    return entry.product;
+                }
+
+                remove(entry);
+            }
+
+            missCount++;
+        }
+
+        IProduct product = inventory.getProduct(id);
+
+        synchronized (lock)
+        {
+            Entry entry = entries.get(id);
+            if (entry != null)
+            {
+                // Another thread loaded the id while this one was calling the inventory
+                entry.product = product;
+                entry.loadTime = now;
+            }
+            else
+            {
+                add(new Entry(id, product, now));
+            }
+        }
+
+        return product;
+    }
+
+    /**
+     * Discard the cached entry for an id, if there is one, so that the next lookup of the id calls the underlying
+     * finder.
+     * @param id  Id of the product.  Must be non-null.
+     */
+    public void invalidate(String id)
+    {
+        if (id == null)
+        {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+
+        synchronized (lock)
+        {
+            Entry entry = entries.get(id);
+            if (entry != null)
+            {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Discard all cached entries.
+     */
+    public void invalidateAll()
+    {
+        synchronized (lock)
+        {
+            entries.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+        }
+    }
+
+    /**
+     * Get the number of ids held by the cache, including any whose entries have expired but not yet been discarded.
+     * @return  Number of ids.
+     */
+    public int size()
+    {
+        synchronized (lock)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     * @return  Hit count.
+     */
+    public long getHitCount()
+    {
+        synchronized (lock)
+        {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Get the number of lookups which called the underlying finder, because the cache held no entry for the id or
+     * the entry had expired.
+     * @return  Miss count.
+     */
+    public long getMissCount()
+    {
+        synchronized (lock)
+        {
+            return missCount;
+        }
+    }
+
+    /**
+     * Get the number of entries discarded to keep the cache within its maximum size.  Expired and invalidated entries
+     * are not counted.
+     * @return  Eviction count.
+     */
+    public long getEvictionCount()
+    {
+        synchronized (lock)
+        {
+            return evictionCount;
+        }
+    }
+
+    private void onAccess(Entry entry)
+    {
+        if (entry.queue == probation)
+        {
+            probation.remove(entry);
+            protectedQueue.addLast(entry);
+
+            if (protectedQueue.size() > maximumProtectedSize)
+            {
+                Entry demoted = protectedQueue.first();
+                protectedQueue.remove(demoted);
+                probation.addLast(demoted);
+            }
+        }
+        else
+        {
+            entry.queue.moveToLast(entry);
+        }
+    }
+
+    private void add(Entry entry)
+    {
+        entries.put(entry.id, entry);
+        window.addLast(entry);
+
+        Entry candidate = null;
+        if (window.size() > maximumWindowSize)
+        {
+            candidate = window.first();
+            window.remove(candidate);
+            probation.addLast(candidate);
+        }
+
+        if (entries.size() > maximumSize)
+        {
+            Entry victim = probation.first();
+            if (victim == candidate && protectedQueue.size() > 0)
+            {
+                victim = protectedQueue.first();
+            }
+
+            if (candidate != null && victim != candidate &&
+                    sketch.frequency(candidate.id.hashCode()) > sketch.frequency(victim.id.hashCode()))
+            {
+                evict(victim);
+            }
+            else
+            {
+                evict(candidate != null ? candidate : victim);
+            }
+        }
+    }
+
+    private void evict(Entry entry)
+    {
+        remove(entry);
+        evictionCount++;
+    }
+
+    private void remove(Entry entry)
+    {
+        entries.remove(entry.id);
+        entry.queue.remove(entry);
+    }
+
+    /**
+     * Cached lookup result, linked into one of the cache's access queues.
+     */
+    private static class Entry
+    {
+        final String id;
+        IProduct product;
+        long loadTime;
+        AccessQueue queue;
+        Entry previous;
+        Entry next;
+
+        Entry(String id, IProduct product, long loadTime)
+        {
+            this.id = id;
+            this.product = product;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * Doubly linked list of entries in order of access, least recently used first.
+     */
+    private static class AccessQueue
+    {
+        private final Entry head = new Entry(null, null, 0);
+        private int size;
+
+        AccessQueue()
+        {
+            head.previous = head;
+            head.next = head;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        Entry first()
+        {
+            return size > 0 ? head.next : null;
+        }
+
+        void addLast(Entry entry)
+        {
+            entry.previous = head.previous;
+            entry.next = head;
+            head.previous.next = entry;
+            head.previous = entry;
+            entry.queue = this;
+            size++;
+        }
+
+        void remove(Entry entry)
+        {
+            entry.previous.next = entry.next;
+            entry.next.previous = entry.previous;
+            entry.previous = null;
+            entry.next = null;
+            entry.queue = null;
+            size--;
+        }
+
+        void moveToLast(Entry entry)
+        {
+            remove(entry);
+            addLast(entry);
+        }
+
+        void clear()
+        {
+            head.previous = head;
+            head.next = head;
+            size = 0;
+        }
+    }
+}
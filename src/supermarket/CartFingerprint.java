@@ -0,0 +1,217 @@
+package supermarket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Canonical form of the contents of a shopping cart: the products and quantities of its items, sorted by product,
+ * leaving out items with no quantity.  Two carts of the same kind holding the same quantities of the same products have
+ * equal fingerprints in whatever order their items were added.  Carts keyed by product index or by product id
+ * character are fingerprinted from their arrays without creating items; other carts are fingerprinted by product id.
+ */
+final class CartFingerprint
+{
+    private static final Object CHAR_KEYS = new Object();
+
+    private static final Comparator<IItem> BY_PRODUCT_ID = new Comparator<IItem>()
+    {
+        @Override
+        public int compare(IItem first, IItem second)
+        {
+            return first.getProductId().compareTo(second.getProductId());
+        }
+    };
+
+    private final Object keySpace;
+    private final int[] keys;
+    private final String[] productIds;
+    private final int[] quantities;
+    private final int hashCode;
+
+    /**
+     * Class constructor
+     * @param cart  Shopping cart whose contents are fingerprinted.  Must be non-null.
+     */
+    public CartFingerprint(IShoppingCart cart)
+    {
+        if (cart == null)
+        {
+            throw new IllegalArgumentException("cart cannot be null");
+        }
+
+        if (cart instanceof IndexedShoppingCart && !((IndexedShoppingCart) cart).hasUnknownItems())
+        {
+            IndexedShoppingCart indexedCart = (IndexedShoppingCart) cart;
+
+            long[] lines = new long[indexedCart.getLineCount()];
+            int count = 0;
+            for (int line = 0; line < lines.length; line++)
+            {
+                int quantity = indexedCart.getLineQuantity(line);
+                if (quantity > 0)
+                {
+                    lines[count++] = ((long) indexedCart.getLineProductIndex(line) << 32) | quantity;
+                }
+            }
+            Arrays.sort(lines, 0, count);
+
+            keySpace = indexedCart.getDictionary();
+            keys = new int[count];
+            quantities = new int[count];
+            for (int i = 0; i < count; i++)
+            {
+                keys[i] = (int) (lines[i] >>> 32);
+                quantities[i] = (int) lines[i];
+            }
+            productIds = null;
+        }
+        else if (cart instanceof CharIndexedShoppingCart)
+        {
+            CharIndexedShoppingCart charCart = (CharIndexedShoppingCart) cart;
+
+            // Product id characters are held in ascending order
+            int productCount = charCart.getProductCount();
+            int[] charKeys = new int[productCount];
+            int[] charQuantities = new int[productCount];
+            int count = 0;
+            for (int i = 0; i < productCount; i++)
+            {
+                char id = charCart.getProductId(i);
+                int quantity = charCart.getQuantity(id);
+                if (quantity > 0)
+                {
+                    charKeys[count] = id;
+                    charQuantities[count++] = quantity;
+                }
+            }
+
+            keySpace = CHAR_KEYS;
+            keys = Arrays.copyOf(charKeys, count);
+            quantities = Arrays.copyOf(charQuantities, count);
+            productIds = null;
+        }
+        else
+        {
+            List<IItem> items = new ArrayList<IItem>(cart.getItems().size());
+            for (IItem item : cart.getItems())
+            {
+                if (item.getQuantity() > 0)
+                {
+                    items.add(item);
+                }
+            }
+            Collections.sort(items, BY_PRODUCT_ID);
+
+            keySpace = null;
+            keys = null;
+            productIds = new String[items.size()];
+            quantities = new int[items.size()];
+            for (int i = 0; i < productIds.length; i++)
+            {
+                productIds[i] = items.get(i).getProductId();
+                quantities[i] = items.get(i).getQuantity();
+            }
+        }
+
+        int keyHash = keys != null ? Arrays.hashCode(keys) : Arrays.hashCode(productIds);
+        hashCode = 31 * (31 * System.identityHashCode(keySpace) + keyHash) + Arrays.hashCode(quantities);
+    }
+
+    /**
+     * Get the number of distinct products in the fingerprint.
+     * @return  Number of products.
+     */
+    int getProductCount()
+    {
+        return quantities.length;
+    }
+
+    /**
+     * Get the quantity of a product in the fingerprint.
+     * @param position  Position of the product, in product order.  Must be non-negative and less than
+     *                  {@link #getProductCount()}.
+     * @return  Quantity of the product.  Will be greater than zero.
+     */
+    int getQuantity(int position)
+    {
+        return quantities[position];
+    }
+
+    /**
+     * Get the quantity of a product of the fingerprint currently in a cart.
+     * @param cart  Cart of the same kind as the one fingerprinted.  Must be non-null.
+     * @param position  Position of the product, in product order.  Must be non-negative and less than
+     *                  {@link #getProductCount()}.
+     * @return  Quantity of the product in the cart.
+     */
+    int getQuantityIn(IShoppingCart cart, int position)
+    {
+        int quantity;
+
+        if (keySpace == CHAR_KEYS)
+        {
+            quantity = ((CharIndexedShoppingCart) cart).getQuantity((char) keys[position]);
+        }
+        else if (keys != null)
+        {
+            quantity = ((IndexedShoppingCart) cart).getQuantity(keys[position]);
+        }
+        else
+        {
+            quantity = cart.getItemQuantity(productIds[position]);
+        }
+
+        return quantity;
+    }
+
+    /**
+     * Change the quantity of a product of the fingerprint in a cart.
+     * @param cart  Cart of the same kind as the one fingerprinted, holding the product.  Must be non-null.
+     * @param position  Position of the product, in product order.  Must be non-negative and less than
+     *                  {@link #getProductCount()}.
+     * @param quantity  New quantity.  Must be non-negative.
+     */
+    void setQuantityIn(IShoppingCart cart, int position, int quantity)
+    {
+        if (keySpace == CHAR_KEYS)
+        {
+            ((CharIndexedShoppingCart) cart).setQuantity((char) keys[position], quantity);
+        }
+        else if (keys != null)
+        {
+            ((IndexedShoppingCart) cart).setQuantity(keys[position], quantity);
+        }
+        else
+        {
+            cart.setItemQuantity(productIds[position], quantity);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+
+        if (!(other instanceof CartFingerprint))
+        {
+            return false;
+        }
+
+        CartFingerprint otherFingerprint = (CartFingerprint) other;
+        return hashCode == otherFingerprint.hashCode && keySpace == otherFingerprint.keySpace &&
+                Arrays.equals(quantities, otherFingerprint.quantities) && Arrays.equals(keys, otherFingerprint.keys) &&
+                Arrays.equals(productIds, otherFingerprint.productIds);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+}
@@ -0,0 +1,502 @@
+package supermarket;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk loader of a product catalog from a CSV file, for catalogs too large to build product by product.
+ *
+ * <p>Each line of the file holds a product id and its unit price, separated by a comma, such as {@code A,20}.  Fields
+ * are not quoted, and spaces and tabs around them are ignored.  Lines may end with {@code \n} or {@code \r\n}, blank
+ * lines are skipped, and a first line of {@code id,unitPrice} is skipped as a header.  A line with anything other than
+ * a non-empty id and a non-negative integer unit price is reported as a {@link RowError} and left out of the catalog;
+ * the rest of the file is still loaded.  If more than one line has the same id, the last one wins.</p>
+ *
+ * <p>The file is split into chunks at line boundaries, and each chunk is memory-mapped and parsed on a fork/join pool.
+ * The parsed ids are then indexed by a dictionary sized up front for them, and the catalog holds only the ids and an
+ * array of unit prices, with no product object per line.</p>
+ */
+final class CatalogLoader
+{
+    static final String HEADER = "id,unitPrice";
+
+    private static final int MINIMUM_CHUNK_LENGTH = 1 << 20;
+    private static final int MAXIMUM_CHUNK_LENGTH = 1 << 30;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BOUNDARY_SCAN_LENGTH = 4096;
+    private static final Charset ID_CHARSET = Charset.forName("UTF-8");
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Class constructor
+     * @param pool  Pool on which to parse the file's chunks.  Value cannot be null.
+     */
+    public CatalogLoader(ForkJoinPool pool)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+
+        this.pool = pool;
+    }
+
+    /**
+     * Load a catalog from a CSV file.
+     * @param file  File to load.  Value cannot be null.
+     * @return  Catalog loaded and the errors found in the file.
+     * @throws IOException  If the file cannot be read.
+     */
+    public Result load(File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        Chunk[] chunks;
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+            chunks = split(channel);
+
+            ParseTask[] tasks = new ParseTask[chunks.length];
+            for (int i = 0; i < chunks.length; i++)
+            {
+                tasks[i] = new ParseTask(channel, chunks[i]);
+            }
+            pool.invoke(new ParseAllTask(tasks));
+
+            for (ParseTask task : tasks)
+            {
+                if (task.failure != null)
+                {
+                    throw task.failure;
+                }
+            }
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        return merge(chunks);
+    }
+
+    /**
+     * Split a file into chunks of roughly equal length, each ending just after a line break or at the end of the file.
+     */
+    private Chunk[] split(FileChannel channel) throws IOException
+    {
+        long size = channel.size();
+        long targetLength = Math.max(MINIMUM_CHUNK_LENGTH, size / (pool.getParallelism() * CHUNKS_PER_THREAD));
+        targetLength = Math.min(targetLength, MAXIMUM_CHUNK_LENGTH);
+
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_LENGTH);
+        long start = 0;
+        while (start < size)
+        {
+            long end = Math.min(size, start + targetLength);
+            while (end < size)
+            {
+                scan.clear();
+                int read = channel.read(scan, end);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++)
+                {
+                    if (scan.get(i) == '\n')
+                    {
+                        newline = i;
+                    }
+                }
+
+                if (newline >= 0)
+                {
+                    end += newline + 1;
+                    break;
+                }
+                end += Math.max(read, 0);
+                if (end - start > Integer.MAX_VALUE - BOUNDARY_SCAN_LENGTH)
+                {
+                    throw new IOException("Line too long at byte " + start);
+                }
+            }
+
+            chunks.add(new Chunk(chunks.size(), start, Math.min(end, size)));
+            start = Math.min(end, size);
+        }
+
+        return chunks.toArray(new Chunk[chunks.size()]);
+    }
+
+    /**
+     * Combine the rows of every chunk, in file order, into one catalog, numbering the errors' lines.
+     */
+    private static Result merge(Chunk[] chunks)
+    {
+        int rowCount = 0;
+        for (Chunk chunk : chunks)
+        {
+            rowCount += chunk.rowCount;
+        }
+
+        String[] ids = new String[rowCount];
+        int[] rowPrices = new int[rowCount];
+        List<RowError> errors = new ArrayList<RowError>();
+        int row = 0;
+        long firstLine = 1;
+        for (Chunk chunk : chunks)
+        {
+            System.arraycopy(chunk.ids, 0, ids, row, chunk.rowCount);
+            System.arraycopy(chunk.unitPrices, 0, rowPrices, row, chunk.rowCount);
+            row += chunk.rowCount;
+
+            for (RowError error : chunk.errors)
+            {
+                errors.add(new RowError(firstLine + error.line - 1, error.message));
+            }
+            firstLine += chunk.lineCount;
+        }
+
+        int[] indexes = new int[rowCount];
+        ProductDictionary dictionary = new ProductDictionary(ids, rowCount, indexes);
+
+        // Later rows overwrite earlier ones with the same id, so the last one wins
+        int[] unitPrices = new int[dictionary.size()];
+        for (int i = 0; i < rowCount; i++)
+        {
+            unitPrices[indexes[i]] = rowPrices[i];
+        }
+
+        return new Result(new ProductCatalog(dictionary, unitPrices), errors);
+    }
+
+    /**
+     * Catalog loaded from a file, with the errors found in it.
+     */
+    static final class Result
+    {
+        private final ProductCatalog catalog;
+        private final List<RowError> errors;
+
+        Result(ProductCatalog catalog, List<RowError> errors)
+        {
+            this.catalog = catalog;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Get the catalog of the products loaded from the valid lines.
+         * @return  Catalog.  Will be non-null.
+         */
+        public ProductCatalog getCatalog()
+        {
+            return catalog;
+        }
+
+        /**
+         * Get the errors found, one per invalid line.
+         * @return  Errors in line order.  Will be non-null.  The list is read-only.
+         */
+        public List<RowError> getErrors()
+        {
+            return errors;
+        }
+    }
+
+    /**
+     * Line of a file which could not be loaded.
+     */
+    static final class RowError
+    {
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message)
+        {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * Get the number of the line, counting from 1.
+         * @return  Line number.
+         */
+        public long getLine()
+        {
+            return line;
+        }
+
+        /**
+         * Get a description of what is wrong with the line.
+         * @return  Description.
+         */
+        public String getMessage()
+        {
+            return message;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * Range of a file, and the rows parsed from it.  Lines and errors are numbered from 1 within the chunk until the
+     * chunks are merged.
+     */
+    private static class Chunk
+    {
+        final int number;
+        final long start;
+        final long end;
+        String[] ids;
+        int[] unitPrices;
+        int rowCount;
+        long lineCount;
+        final List<RowError> errors = new ArrayList<RowError>();
+
+        Chunk(int number, long start, long end)
+        {
+            this.number = number;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Task parsing every chunk, one subtask each.
+     */
+    @SuppressWarnings("serial")
+    private static class ParseAllTask extends RecursiveAction
+    {
+        private final ParseTask[] tasks;
+
+        ParseAllTask(ParseTask[] tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute()
+        {
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Task mapping one chunk of the file and parsing its lines.
+     */
+    @SuppressWarnings("serial")
+    private static class ParseTask extends RecursiveAction
+    {
+        private final FileChannel channel;
+        private final Chunk chunk;
+        private IOException failure;
+
+        private final CharsetDecoder decoder = ID_CHARSET.newDecoder();
+        private byte[] idBytes = new byte[64];
+
+        ParseTask(FileChannel channel, Chunk chunk)
+        {
+            this.channel = channel;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute()
+        {
+            ByteBuffer buffer;
+            try
+            {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+            }
+            catch (IOException ioe)
+            {
+                failure = ioe;
+                return;
+            }
+
+            // Sized for rows of about 16 bytes, such as an 8 character id and a 4 digit price, doubling if shorter
+            int capacity = Math.max(16, buffer.limit() / 16);
+            chunk.ids = new String[capacity];
+            chunk.unitPrices = new int[capacity];
+
+            int lineStart = 0;
+            int limit = buffer.limit();
+            while (lineStart < limit)
+            {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n')
+                {
+                    lineEnd++;
+                }
+
+                chunk.lineCount++;
+                parseLine(buffer, lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private void parseLine(ByteBuffer buffer, int start, int end)
+        {
+            if (end > start && buffer.get(end - 1) == '\r')
+            {
+                end--;
+            }
+
+            int comma = start;
+            while (comma < end && buffer.get(comma) != ',')
+            {
+                comma++;
+            }
+
+            int idStart = skipBlanks(buffer, start, comma);
+            int idEnd = trimBlanks(buffer, idStart, comma);
+            if (comma == end)
+            {
+                if (idStart != idEnd)
+                {
+                    addError("expected id,unitPrice");
+                }
+                return;
+            }
+
+            if (idStart == idEnd)
+            {
+                addError("id is empty");
+                return;
+            }
+
+            int priceStart = skipBlanks(buffer, comma + 1, end);
+            int priceEnd = trimBlanks(buffer, priceStart, end);
+            long unitPrice = priceStart < priceEnd ? 0 : -1;
+            for (int i = priceStart; i < priceEnd && unitPrice >= 0; i++)
+            {
+                int digit = buffer.get(i) - '0';
+                unitPrice = digit >= 0 && digit <= 9 ? unitPrice * 10 + digit : -1;
+                if (unitPrice > Integer.MAX_VALUE)
+                {
+                    unitPrice = -1;
+                }
+            }
+
+            String id = decodeId(buffer, idStart, idEnd);
+            if (id == null)
+            {
+                addError("id is not valid UTF-8");
+            }
+            else if (unitPrice < 0)
+            {
+                if (!isHeader(id, buffer, priceStart, priceEnd))
+                {
+                    addError("unit price is not a non-negative integer");
+                }
+            }
+            else
+            {
+                addRow(id, (int) unitPrice);
+            }
+        }
+
+        private boolean isHeader(String id, ByteBuffer buffer, int priceStart, int priceEnd)
+        {
+            return chunk.number == 0 && chunk.lineCount == 1 &&
+                    HEADER.equals(id + "," + decodeId(buffer, priceStart, priceEnd));
+        }
+
+        private String decodeId(ByteBuffer buffer, int start, int end)
+        {
+            int length = end - start;
+            if (length > idBytes.length)
+            {
+                idBytes = new byte[Math.max(length, idBytes.length * 2)];
+            }
+
+            boolean ascii = true;
+            for (int i = 0; i < length; i++)
+            {
+                idBytes[i] = buffer.get(start + i);
+                ascii &= idBytes[i] >= 0;
+            }
+
+            if (ascii)
+            {
+                return new String(idBytes, 0, length, ID_CHARSET);
+            }
+
+            try
+            {
+                CharBuffer chars = decoder.decode(ByteBuffer.wrap(idBytes, 0, length));
+                return chars.toString();
+            }
+            catch (CharacterCodingException cce)
+            {
+                return null;
+            }
+        }
+
+        private void addRow(String id, int unitPrice)
+        {
+            if (chunk.rowCount == chunk.ids.length)
+            {
+                int capacity = chunk.rowCount * 2;
+                String[] ids = new String[capacity];
+                int[] unitPrices = new int[capacity];
+                System.arraycopy(chunk.ids, 0, ids, 0, chunk.rowCount);
+                System.arraycopy(chunk.unitPrices, 0, unitPrices, 0, chunk.rowCount);
+                chunk.ids = ids;
+                chunk.unitPrices = unitPrices;
+            }
+
+            chunk.ids[chunk.rowCount] = id;
+            chunk.unitPrices[chunk.rowCount] = unitPrice;
+            chunk.rowCount++;
+        }
+
+        private void addError(String message)
+        {
+            chunk.errors.add(new RowError(chunk.lineCount, message));
+        }
+
+        private static int skipBlanks(ByteBuffer buffer, int start, int end)
+        {
+            while (start < end && isBlank(buffer.get(start)))
+            {
+                start++;
+            }
+            return start;
+        }
+
+        private static int trimBlanks(ByteBuffer buffer, int start, int end)
+        {
+            while (end > start && isBlank(buffer.get(end - 1)))
+            {
+                end--;
+            }
+            return end;
+        }
+
+        private static boolean isBlank(byte b)
+        {
+            return b == ' ' || b == '\t';
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package supermarket;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Shopping cart for single character product ids which counts item quantities directly into a primitive array
+ * indexed by the product id character.  Counting the items does not allocate per item.
+ */
+class CharIndexedShoppingCart implements IShoppingCart
+{
+    private static final int INITIAL_CAPACITY = 128;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_CAPACITY = Character.MAX_VALUE + 1;
+    private static final String[] ASCII_PRODUCT_IDS = new String[128];
+
+    static
+    {
+        for (char id = 0; id < ASCII_PRODUCT_IDS.length; id++)
+        {
+            ASCII_PRODUCT_IDS[id] = String.valueOf(id);
+        }
+    }
+
+    private int[] quantities;
+    private char[] productIds;
+    private int productCount;
+
+    /**
+     * Class constructor
+     * @param items  String with product ids representing instances of a corresponding item in a cart.  Value cannot be
+     *               null.  For example, a value of 'ABBACBBAB' would indicate that three items having the id 'A', five
+     *               items having the id 'B', and one item having the id 'C' are present in the cart.
+     */
+    public CharIndexedShoppingCart(String items)
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        quantities = new int[INITIAL_CAPACITY];
+        countItems(items);
+        indexProductIds();
+    }
+
+    /**
+     * Class constructor.  Items are read from the supplied reader in fixed-size chunks, so memory use does not grow
+     * with the number of items read.
+     * @param items  Reader supplying product ids representing instances of a corresponding item in a cart, in the same
+     *               format as the token string accepted by {@link #CharIndexedShoppingCart(String)}.  Value cannot be
+     *               null.  The reader is read to the end but is not closed.
+     * @throws IOException  If reading from the reader fails.
+     */
+    public CharIndexedShoppingCart(Reader items) throws IOException
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        quantities = new int[INITIAL_CAPACITY];
+
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int charsRead;
+        while ((charsRead = items.read(buffer)) != -1)
+        {
+            countItems(buffer, charsRead);
+        }
+
+        indexProductIds();
+    }
+
+    /**
+     * Get a shopping cart item by its product id.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Matching item, if one is available.  Otherwise, null.
+     */
+    public IItem getItem(String productId)
+    {
+        validateProductId(productId);
+
+        Item returnValue = null;
+
+        if (productId.length() == 1)
+        {
+            char id = productId.charAt(0);
+            if (contains(id))
+            {
+                returnValue = new Item(productId, quantities[id]);
+            }
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Get the quantity of a shopping cart item by its product id, without creating an item.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Quantity of the matching item.  Zero if no item is available.
+     */
+    public int getItemQuantity(String productId)
+    {
+        validateProductId(productId);
+
+        int quantity = 0;
+
+        if (productId.length() == 1)
+        {
+            char id = productId.charAt(0);
+            if (contains(id))
+            {
+                quantity = quantities[id];
+            }
+        }
+
+        return quantity;
+    }
+
+    /**
+     * Get all of the items in the shopping cart in the form of a collection.
+     * @return Collection of items.  Collection will be read-only and be a copy of the data held by the shopping cart.
+     * Changes to the items returned in the list have no effect on the cart.
+     */
+    public Collection<IItem> getItems()
+    {
+        Collection<IItem> items = new ArrayList<IItem>(productCount);
+
+        for (int i = 0; i < productCount; i++)
+        {
+            char id = productIds[i];
+            items.add(new Item(String.valueOf(id), quantities[id]));
+        }
+
+        return Collections.unmodifiableCollection(items);
+    }
+
+    /**
+     * Pass each item in the shopping cart to a visitor, without creating an item for each.  The visitor may change the
+     * quantity of the item it is visiting through {@link #setItemQuantity(String, int)}.  Product ids in the ASCII
+     * range are passed as shared strings; others are created as they are visited.
+     * @param visitor  Visitor receiving the items.  Value cannot be null.
+     */
+    public void forEachItem(IItemVisitor visitor)
+    {
+        if (visitor == null)
+        {
+            throw new IllegalArgumentException("visitor cannot be null");
+        }
+
+        for (int i = 0; i < productCount; i++)
+        {
+            char id = productIds[i];
+            visitor.visit(id < ASCII_PRODUCT_IDS.length ? ASCII_PRODUCT_IDS[id] : String.valueOf(id), quantities[id]);
+        }
+    }
+
+    /**
+     * Change the quantity of an item in the cart.  Will not insert a new item in the cart if no prior item
+     * corresponding to the productId was present.
+     * @param productId Product id of the item whose quantity should be changed.  Value cannot be null or empty.
+     * @param quantity New quantity for the item.  Value cannot be less than zero.
+     * @return True if the item was updated.  Otherwise, false.
+     */
+    public boolean setItemQuantity(String productId, int quantity)
+    {
+        validateProductId(productId);
+
+        if (quantity < 0)
+        {
+            throw new IllegalArgumentException("quantity on item cannot be less than zero.  Value specified was " +
+                quantity);
+        }
+
+        boolean quantitySet = false;
+
+        if (productId.length() == 1)
+        {
+            char id = productId.charAt(0);
+            if (contains(id))
+            {
+                quantities[id] = quantity;
+                quantitySet = true;
+            }
+        }
+
+        return quantitySet;
+    }
+
+    /**
+     * Get the number of distinct products in the cart.
+     * @return  Number of distinct products.
+     */
+    int getProductCount()
+    {
+        return productCount;
+    }
+
+    /**
+     * Get the id of a product in the cart.  Products are ordered by id.
+     * @param index  Position of the product.  Must be non-negative and less than {@link #getProductCount()}.
+     * @return  Product id.
+     */
+    char getProductId(int index)
+    {
+        return productIds[index];
+    }
+
+    /**
+     * Get the quantity of a product in the cart.
+     * @param productId  Product id.
+     * @return  Quantity of the product.  Zero if the product is not in the cart.
+     */
+    int getQuantity(char productId)
+    {
+        return productId < quantities.length ? quantities[productId] : 0;
+    }
+
+    /**
+     * Change the quantity of a product known to be in the cart, without validation.
+     * @param productId  Product id, as returned by {@link #getProductId(int)}.
+     * @param quantity  New quantity for the product.  Must be non-negative.
+     */
+    void setQuantity(char productId, int quantity)
+    {
+        quantities[productId] = quantity;
+    }
+
+    private void countItems(String items)
+    {
+        int[] counts = quantities;
+        int length = items.length();
+
+        for (int i = 0; i < length; i++)
+        {
+            char id = items.charAt(i);
+            if (id >= counts.length)
+            {
+                counts = growTo(id);
+            }
+            counts[id]++;
+        }
+    }
+
+    private void countItems(char[] items, int length)
+    {
+        int[] counts = quantities;
+
+        for (int i = 0; i < length; i++)
+        {
+            char id = items[i];
+            if (id >= counts.length)
+            {
+                counts = growTo(id);
+            }
+            counts[id]++;
+        }
+    }
+
+    private int[] growTo(char id)
+    {
+        int capacity = Math.min(Math.max(quantities.length * 2, id + 1), MAX_CAPACITY);
+        quantities = Arrays.copyOf(quantities, capacity);
+        return quantities;
+    }
+
+    private void indexProductIds()
+    {
+        int count = 0;
+        for (int quantity : quantities)
+        {
+            if (quantity > 0)
+            {
+                count++;
+            }
+        }
+
+        productIds = new char[count];
+        productCount = 0;
+        for (int id = 0; id < quantities.length; id++)
+        {
+            if (quantities[id] > 0)
+            {
+                productIds[productCount++] = (char) id;
+            }
+        }
+    }
+
+    private boolean contains(char id)
+    {
+        return Arrays.binarySearch(productIds, 0, productCount, id) >= 0;
+    }
+
+    private static void validateProductId(String productId)
+    {
+        if (productId == null)
+        {
+            throw new IllegalArgumentException("productId cannot be null");
+        }
+
+        if (productId.isEmpty())
+        {
+            throw new IllegalArgumentException("productId cannot be empty");
+        }
+    }
+}
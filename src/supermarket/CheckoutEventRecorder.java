@@ -0,0 +1,281 @@
+package supermarket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory flight recorder of the most recent checkouts and price rules processed, each stamped with the wall clock
+ * time and thread it ran on, so that a latency spike can be lined up against GC logs and thread dumps taken at the same
+ * time.  Install it with {@link Supermarket#setCheckoutListener(ICheckoutListener)} to record checkouts and with
+ * {@link PriceScanner#setScanListener(IScanListener)} to record price rules; remove it again to stop recording.  To
+ * record alongside {@link CheckoutMetrics}, install both on the scanner through a {@link CompositeScanListener}.
+ *
+ * <p>Events are kept in a ring of fixed capacity, so the oldest are overwritten once it is full and recording never
+ * grows the heap.</p>
+ */
+final class CheckoutEventRecorder implements ICheckoutListener, IScanListener
+{
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private final AtomicReferenceArray<RecordedEvent> events;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Class constructor for a recorder keeping the last {@link #DEFAULT_CAPACITY} events.
+     */
+    public CheckoutEventRecorder()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Class constructor
+     * @param capacity  Number of most recent events kept.  Value cannot be less than 1.
+     */
+    public CheckoutEventRecorder(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity cannot be less than 1");
+        }
+
+        events = new AtomicReferenceArray<RecordedEvent>(capacity);
+    }
+
+    @Override
+    public void checkoutCompleted(long itemCount, int productCount, long total, long elapsedNanos)
+    {
+        record(new CheckoutEvent(elapsedNanos, itemCount, productCount, total));
+    }
+
+    @Override
+    public void ruleProcessed(IPriceRule priceRule, String ruleName, long cost, long quantityConsumed,
+                              long listPriceConsumed, long elapsedNanos)
+    {
+        record(new RuleEvent(elapsedNanos, priceRule, quantityConsumed));
+    }
+
+    @Override
+    public void scanCompleted(long total, long elapsedNanos)
+    {
+        // Whole carts are recorded as checkouts, which know the cart's size as well as its total
+    }
+
+    /**
+     * Get the events recorded, oldest first.  Events recorded concurrently with this call may be left out.
+     * @return  Copy of the events kept.
+     */
+    public List<RecordedEvent> getEvents()
+    {
+        long end = nextSequence.get();
+        long start = Math.max(0, end - events.length());
+
+        List<RecordedEvent> recorded = new ArrayList<RecordedEvent>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++)
+        {
+            RecordedEvent event = events.get((int) (sequence % events.length()));
+            if (event != null && event.sequence == sequence)
+            {
+                recorded.add(event);
+            }
+        }
+
+        return recorded;
+    }
+
+    /**
+     * Write the events recorded, oldest first, one per line.
+     * @param out  Destination of the events.  Value cannot be null.
+     * @throws IOException  If writing fails.
+     */
+    public void dump(Appendable out) throws IOException
+    {
+        if (out == null)
+        {
+            throw new IllegalArgumentException("out cannot be null");
+        }
+
+        for (RecordedEvent event : getEvents())
+        {
+            out.append(event.toString()).append('\n');
+        }
+    }
+
+    private void record(RecordedEvent event)
+    {
+        event.sequence = nextSequence.getAndIncrement();
+        events.set((int) (event.sequence % events.length()), event);
+    }
+
+    /**
+     * Event common to everything recorded: when it finished, on which thread and how long it took.
+     */
+    abstract static class RecordedEvent
+    {
+        private final long endTimeMillis = System.currentTimeMillis();
+        private final String threadName = Thread.currentThread().getName();
+        private final long durationNanos;
+        private long sequence;
+
+        RecordedEvent(long durationNanos)
+        {
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * Get the wall clock time at which the event finished.
+         * @return  Milliseconds since the epoch.
+         */
+        public long getEndTimeMillis()
+        {
+            return endTimeMillis;
+        }
+
+        /**
+         * Get the name of the thread the event ran on.
+         * @return  Thread name.
+         */
+        public String getThreadName()
+        {
+            return threadName;
+        }
+
+        /**
+         * Get how long the event took.
+         * @return  Duration in nanoseconds.
+         */
+        public long getDurationNanos()
+        {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName() + " endTimeMillis=" + endTimeMillis + " thread=\"" + threadName +
+                    "\" durationNanos=" + durationNanos;
+        }
+    }
+
+    /**
+     * Event recorded for each cart checked out.
+     */
+    static final class CheckoutEvent extends RecordedEvent
+    {
+        private final long itemCount;
+        private final int productCount;
+        private final long total;
+
+        CheckoutEvent(long durationNanos, long itemCount, int productCount, long total)
+        {
+            super(durationNanos);
+            this.itemCount = itemCount;
+            this.productCount = productCount;
+            this.total = total;
+        }
+
+        /**
+         * Get the total quantity of items in the cart.
+         * @return  Item count.
+         */
+        public long getItemCount()
+        {
+            return itemCount;
+        }
+
+        /**
+         * Get the number of distinct products in the cart.
+         * @return  Product count.
+         */
+        public int getProductCount()
+        {
+            return productCount;
+        }
+
+        /**
+         * Get the total cost of the cart.
+         * @return  Total cost.
+         */
+        public long getTotal()
+        {
+            return total;
+        }
+
+        @Override
+        public String toString()
+        {
+            return super.toString() + " itemCount=" + itemCount + " productCount=" + productCount + " total=" + total;
+        }
+    }
+
+    /**
+     * Event recorded for each price rule processed.
+     */
+    static final class RuleEvent extends RecordedEvent
+    {
+        private final String ruleClass;
+        private final String productIds;
+        private final long quantityConsumed;
+
+        RuleEvent(long durationNanos, IPriceRule priceRule, long quantityConsumed)
+        {
+            super(durationNanos);
+            this.ruleClass = priceRule.getClass().getName();
+            this.productIds = priceRule instanceof IProductPriceRule ?
+                    joinProductIds(((IProductPriceRule) priceRule).getProductIds()) : null;
+            this.quantityConsumed = quantityConsumed;
+        }
+
+        /**
+         * Get the class of the rule processed.
+         * @return  Fully qualified class name.
+         */
+        public String getRuleClass()
+        {
+            return ruleClass;
+        }
+
+        /**
+         * Get the products the rule applies to.
+         * @return  Comma-separated product ids, if the rule declares its products.  Otherwise, null.
+         */
+        public String getProductIds()
+        {
+            return productIds;
+        }
+
+        /**
+         * Get the total quantity of items the rule claimed from the cart.
+         * @return  Quantity consumed.
+         */
+        public long getQuantityConsumed()
+        {
+            return quantityConsumed;
+        }
+
+        @Override
+        public String toString()
+        {
+            return super.toString() + " ruleClass=" + ruleClass +
+                    (productIds != null ? " productIds=" + productIds : "") + " quantityConsumed=" + quantityConsumed;
+        }
+
+        private static String joinProductIds(Iterable<String> productIds)
+        {
+            StringBuilder joined = new StringBuilder();
+            for (String productId : productIds)
+            {
+                if (joined.length() > 0)
+                {
+                    joined.append(',');
+                }
+                joined.append(productId);
+            }
+
+            return joined.toString();
+        }
+    }
+}
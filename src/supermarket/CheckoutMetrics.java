@@ -0,0 +1,287 @@
+package supermarket;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scan listener recording latency histograms and counters for whole scans and for each price rule, published as a
+ * JMX MBean so that they can be scraped alongside the JVM's own platform MBeans.  Install it on a scanner with
+ * {@link PriceScanner#setScanListener(IScanListener)}; a scanner without a listener measures nothing.
+ *
+ * <p>Scan attributes are named {@code Scan...}.  Each rule processed gets attributes prefixed with the name its scanner
+ * gives it, made from its class and, for an {@link IProductPriceRule}, its products, such as
+ * {@code XForThePriceOfYPriceRule[B].Invocations}.  Metrics are kept by name, so an equivalent rule loaded to replace
+ * one keeps counting where the old one left off.  Latencies are in nanoseconds.  The {@code reset} operation discards
+ * everything recorded.</p>
+ */
+final class CheckoutMetrics implements IScanListener, DynamicMBean
+{
+    static final String DEFAULT_OBJECT_NAME = "supermarket:type=CheckoutMetrics";
+
+    private static final String[] SCAN_ATTRIBUTES = {"ScanCount", "ScanTotalPriced", "ScanLatencyP50Nanos",
+            "ScanLatencyP99Nanos", "ScanLatencyP999Nanos", "ScanLatencyMaxNanos"};
+    private static final String[] RULE_ATTRIBUTES = {"Invocations", "MatchedInvocations", "QuantityConsumed",
+            "DiscountGranted", "LatencyP50Nanos", "LatencyP99Nanos", "LatencyMaxNanos"};
+    private static final String RESET_OPERATION = "reset";
+
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+    private final AtomicLong scanTotalPriced = new AtomicLong();
+    private final ConcurrentHashMap<String, RuleMetrics> metricsByName = new ConcurrentHashMap<String, RuleMetrics>();
+
+    @Override
+    public void ruleProcessed(IPriceRule priceRule, String ruleName, long cost, long quantityConsumed,
+                              long listPriceConsumed, long elapsedNanos)
+    {
+        RuleMetrics metrics = metricsByName.get(ruleName);
+        if (metrics == null)
+        {
+            RuleMetrics added = new RuleMetrics();
+            metrics = metricsByName.putIfAbsent(ruleName, added);
+            if (metrics == null)
+            {
+                metrics = added;
+            }
+        }
+
+        metrics.latency.record(elapsedNanos);
+        if (quantityConsumed > 0)
+        {
+            metrics.matchedInvocations.incrementAndGet();
+            metrics.quantityConsumed.addAndGet(quantityConsumed);
+            metrics.discountGranted.addAndGet(listPriceConsumed - cost);
+        }
+    }
+
+    @Override
+    public void scanCompleted(long total, long elapsedNanos)
+    {
+        scanLatency.record(elapsedNanos);
+        scanTotalPriced.addAndGet(total);
+    }
+
+    /**
+     * Discard everything recorded, including the rules seen so far.
+     */
+    public synchronized void reset()
+    {
+        scanLatency.reset();
+        scanTotalPriced.set(0);
+        metricsByName.clear();
+    }
+
+    /**
+     * Register the metrics with the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     * @return  Name registered.
+     * @throws JMException  If the name is already registered.
+     */
+    public ObjectName register() throws JMException
+    {
+        return register(ManagementFactory.getPlatformMBeanServer(), new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+
+    /**
+     * Register the metrics with an MBean server.
+     * @param server  Server to register with.  Value cannot be null.
+     * @param name  Name to register under.  Value cannot be null.
+     * @return  Name registered.
+     * @throws JMException  If the name is already registered.
+     */
+    public ObjectName register(MBeanServer server, ObjectName name) throws JMException
+    {
+        if (server == null)
+        {
+            throw new IllegalArgumentException("server cannot be null");
+        }
+
+        if (name == null)
+        {
+            throw new IllegalArgumentException("name cannot be null");
+        }
+
+        return server.registerMBean(this, name).getObjectName();
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException
+    {
+        if (attribute == null)
+        {
+            throw new AttributeNotFoundException("attribute cannot be null");
+        }
+
+        Long value = attribute.startsWith("Scan") ? getScanAttribute(attribute) : getRuleAttribute(attribute);
+        if (value == null)
+        {
+            throw new AttributeNotFoundException("no attribute " + attribute);
+        }
+
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes)
+    {
+        AttributeList values = new AttributeList();
+        for (String attribute : attributes)
+        {
+            try
+            {
+                values.add(new Attribute(attribute, getAttribute(attribute)));
+            }
+            catch (AttributeNotFoundException anfe)
+            {
+                // Missing attributes are left out of the list, as the DynamicMBean contract allows
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException("attributes are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException
+    {
+        if (!RESET_OPERATION.equals(actionName) || (params != null && params.length > 0))
+        {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        reset();
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String attribute : SCAN_ATTRIBUTES)
+        {
+            attributes.add(new MBeanAttributeInfo(attribute, "long", attribute, true, false, false));
+        }
+
+        for (String ruleName : metricsByName.keySet())
+        {
+            for (String attribute : RULE_ATTRIBUTES)
+            {
+                String name = ruleName + "." + attribute;
+                attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            }
+        }
+
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET_OPERATION, "Discard everything recorded",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Checkout latencies and price rule counters",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+                new MBeanOperationInfo[] {reset}, null);
+    }
+
+    private Long getScanAttribute(String attribute)
+    {
+        if ("ScanCount".equals(attribute))
+        {
+            return scanLatency.getCount();
+        }
+        if ("ScanTotalPriced".equals(attribute))
+        {
+            return scanTotalPriced.get();
+        }
+        if ("ScanLatencyP50Nanos".equals(attribute))
+        {
+            return scanLatency.getValueAtPercentile(50);
+        }
+        if ("ScanLatencyP99Nanos".equals(attribute))
+        {
+            return scanLatency.getValueAtPercentile(99);
+        }
+        if ("ScanLatencyP999Nanos".equals(attribute))
+        {
+            return scanLatency.getValueAtPercentile(99.9);
+        }
+        if ("ScanLatencyMaxNanos".equals(attribute))
+        {
+            return scanLatency.getMax();
+        }
+
+        return null;
+    }
+
+    private Long getRuleAttribute(String attribute)
+    {
+        int separator = attribute.lastIndexOf('.');
+        RuleMetrics metrics = separator > 0 ? metricsByName.get(attribute.substring(0, separator)) : null;
+        if (metrics == null)
+        {
+            return null;
+        }
+
+        String name = attribute.substring(separator + 1);
+        if ("Invocations".equals(name))
+        {
+            return metrics.latency.getCount();
+        }
+        if ("MatchedInvocations".equals(name))
+        {
+            return metrics.matchedInvocations.get();
+        }
+        if ("QuantityConsumed".equals(name))
+        {
+            return metrics.quantityConsumed.get();
+        }
+        if ("DiscountGranted".equals(name))
+        {
+            return metrics.discountGranted.get();
+        }
+        if ("LatencyP50Nanos".equals(name))
+        {
+            return metrics.latency.getValueAtPercentile(50);
+        }
+        if ("LatencyP99Nanos".equals(name))
+        {
+            return metrics.latency.getValueAtPercentile(99);
+        }
+        if ("LatencyMaxNanos".equals(name))
+        {
+            return metrics.latency.getMax();
+        }
+
+        return null;
+    }
+
+    /**
+     * Latency histogram and counters of one price rule.
+     */
+    private static class RuleMetrics
+    {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong matchedInvocations = new AtomicLong();
+        final AtomicLong quantityConsumed = new AtomicLong();
+        final AtomicLong discountGranted = new AtomicLong();
+    }
+}
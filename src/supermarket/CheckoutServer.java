@@ -0,0 +1,306 @@
+package supermarket;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end for a long-lived supermarket, so that carts can be checked out by a pool of servers behind a load
+ * balancer rather than by launching a JVM per cart.
+ *
+ * <p>{@code POST /checkout} takes an item token string, in the format accepted by {@link Supermarket#checkout(String)},
+ * as its UTF-8 body and responds with the total.  {@code POST /checkout/batch} takes one item token string per line and
+ * responds with one total per line, in the same order.  Responses are {@code text/plain} with a fixed length, so
+ * HTTP/1.1 connections are kept alive between requests.  Bodies longer than the configured maximum are refused with
+ * status 413 and the connection is closed.  A checkout which throws, such as from a failing price rule, is answered
+ * with status 500.</p>
+ *
+ * <p>Each exchange is handled on the supplied executor.  By default a cached thread pool is used, giving each
+ * concurrent request a thread of its own while reusing idle threads.</p>
+ */
+class CheckoutServer
+{
+    static final int DEFAULT_MAXIMUM_BODY_LENGTH = 1 << 20;
+
+    private static final Charset BODY_CHARSET = Charset.forName("UTF-8");
+    private static final String CONTENT_TYPE = "text/plain; charset=UTF-8";
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final Supermarket supermarket;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean executorOwned;
+    private final int maximumBodyLength;
+
+    /**
+     * Class constructor for a server handling requests on a cached thread pool and accepting bodies of up to
+     * {@link #DEFAULT_MAXIMUM_BODY_LENGTH} bytes.
+     * @param supermarket  Supermarket checking out every cart.  Value cannot be null.
+     * @param address  Address to listen on.  Value cannot be null.  A port of 0 listens on any free port.
+     * @throws IOException  If the address cannot be bound.
+     */
+    public CheckoutServer(Supermarket supermarket, InetSocketAddress address) throws IOException
+    {
+        this(supermarket, address, null, DEFAULT_MAXIMUM_BODY_LENGTH);
+    }
+
+    /**
+     * Class constructor
+     * @param supermarket  Supermarket checking out every cart.  Value cannot be null.
+     * @param address  Address to listen on.  Value cannot be null.  A port of 0 listens on any free port.
+     * @param executor  Executor handling the requests.  If null, a cached thread pool owned by the server is used and
+     *                  shut down when the server stops; otherwise, the executor is left running.
+     * @param maximumBodyLength  Largest request body accepted, in bytes.  Value cannot be less than 1.
+     * @throws IOException  If the address cannot be bound.
+     */
+    public CheckoutServer(Supermarket supermarket, InetSocketAddress address, ExecutorService executor,
+                          int maximumBodyLength) throws IOException
+    {
+        if (supermarket == null)
+        {
+            throw new IllegalArgumentException("supermarket cannot be null");
+        }
+
+        if (address == null)
+        {
+            throw new IllegalArgumentException("address cannot be null");
+        }
+
+        if (maximumBodyLength < 1)
+        {
+            throw new IllegalArgumentException("maximumBodyLength cannot be less than 1");
+        }
+
+        this.supermarket = supermarket;
+        this.maximumBodyLength = maximumBodyLength;
+        this.executorOwned = executor == null;
+        this.executor = executorOwned ? Executors.newCachedThreadPool() : executor;
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(this.executor);
+        server.createContext("/checkout", new CheckoutHandler());
+        server.createContext("/checkout/batch", new BatchCheckoutHandler());
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start()
+    {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and close the server's connections, waiting up to a delay for exchanges in progress to
+     * finish.
+     * @param delaySeconds  Longest time to wait, in seconds.  Value cannot be negative.
+     */
+    public void stop(int delaySeconds)
+    {
+        if (delaySeconds < 0)
+        {
+            throw new IllegalArgumentException("delaySeconds cannot be negative");
+        }
+
+        server.stop(delaySeconds);
+        if (executorOwned)
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Get the address the server is listening on, including the port chosen if it was constructed with port 0.
+     * @return  Bound address.
+     */
+    public InetSocketAddress getAddress()
+    {
+        return server.getAddress();
+    }
+
+    /**
+     * Read a request body, refusing it once it grows longer than the maximum.
+     * @return  Body text, if it is no longer than the maximum and is valid UTF-8.  Otherwise, null, with an error
+     * response already sent.
+     */
+    private String readBody(HttpExchange exchange) throws IOException
+    {
+        if (!"POST".equals(exchange.getRequestMethod()))
+        {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendResponse(exchange, 405, "method not allowed\n");
+            return null;
+        }
+
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null && !isWithinMaximum(contentLength))
+        {
+            refuseBody(exchange);
+            return null;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            if (body.size() + read > maximumBodyLength)
+            {
+                refuseBody(exchange);
+                return null;
+            }
+
+            body.write(buffer, 0, read);
+        }
+
+        try
+        {
+            return BODY_CHARSET.newDecoder().decode(ByteBuffer.wrap(body.toByteArray())).toString();
+        }
+        catch (CharacterCodingException cce)
+        {
+            sendResponse(exchange, 400, "body is not valid UTF-8\n");
+            return null;
+        }
+    }
+
+    private boolean isWithinMaximum(String contentLength)
+    {
+        try
+        {
+            return Long.parseLong(contentLength.trim()) <= maximumBodyLength;
+        }
+        catch (NumberFormatException nfe)
+        {
+            return false;
+        }
+    }
+
+    private void refuseBody(HttpExchange exchange) throws IOException
+    {
+        // The rest of the body is never read, so the connection cannot be reused for another request
+        exchange.getResponseHeaders().set("Connection", "close");
+        sendResponse(exchange, 413, "body longer than " + maximumBodyLength + " bytes\n");
+    }
+
+    private static boolean isExactPath(HttpExchange exchange) throws IOException
+    {
+        boolean exactPath = exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath());
+        if (!exactPath)
+        {
+            sendResponse(exchange, 404, "not found\n");
+        }
+
+        return exactPath;
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String text) throws IOException
+    {
+        byte[] response = text.getBytes(BODY_CHARSET);
+
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, response.length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write(response);
+        out.close();
+    }
+
+    private static void sendFailure(HttpExchange exchange) throws IOException
+    {
+        // A failing price rule is reported to its client, who would otherwise only see the connection reset
+        if (exchange.getResponseCode() == -1)
+        {
+            sendResponse(exchange, 500, "checkout failed\n");
+        }
+    }
+
+    /**
+     * Handler for {@code POST /checkout}.
+     */
+    private class CheckoutHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            try
+            {
+                String items = isExactPath(exchange) ? readBody(exchange) : null;
+                if (items != null)
+                {
+                    sendResponse(exchange, 200, supermarket.checkout(items) + "\n");
+                }
+            }
+            catch (RuntimeException re)
+            {
+                sendFailure(exchange);
+            }
+            finally
+            {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Handler for {@code POST /checkout/batch}.
+     */
+    private class BatchCheckoutHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            try
+            {
+                String body = isExactPath(exchange) ? readBody(exchange) : null;
+                if (body != null)
+                {
+                    List<String> carts = new ArrayList<String>();
+                    int start = 0;
+                    while (start < body.length())
+                    {
+                        int end = body.indexOf('\n', start);
+                        if (end < 0)
+                        {
+                            end = body.length();
+                        }
+
+                        int lineEnd = end > start && body.charAt(end - 1) == '\r' ? end - 1 : end;
+                        carts.add(body.substring(start, lineEnd));
+                        start = end + 1;
+                    }
+
+                    StringBuilder totals = new StringBuilder();
+                    for (int total : supermarket.checkoutAll(carts))
+                    {
+                        totals.append(total).append('\n');
+                    }
+
+                    sendResponse(exchange, 200, totals.toString());
+                }
+            }
+            catch (RuntimeException re)
+            {
+                sendFailure(exchange);
+            }
+            finally
+            {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package supermarket;
+
+import java.util.Collections;
+
+/**
+ * Checkout of a cart whose items arrive one at a time, such as at a point of sale lane, keeping a running total.  The
+ * session prices every item with the scanner's configuration as it was when the session started.
+ *
+ * <p>When the price rules can be compiled into a {@link PricingPlan}, each product is priced independently of the
+ * others, so a scan or void only replaces the changed product's contribution to the total and costs the same however
+ * many items are already in the cart.  Otherwise, the total is recomputed from the price rules the next time it is
+ * requested after a change.</p>
+ *
+ * <p>A session is meant to be used by one thread at a time.</p>
+ */
+class CheckoutSession
+{
+    private final PriceScanner priceScanner;
+    private final PricingSnapshot snapshot;
+    private final PricingPlan plan;
+    private final IndexedShoppingCart cart;
+    private int total;
+    private boolean totalStale;
+
+    /**
+     * Class constructor
+     * @param priceScanner  Scanner whose current configuration prices the session.  Value cannot be null.
+     */
+    public CheckoutSession(PriceScanner priceScanner)
+    {
+        if (priceScanner == null)
+        {
+            throw new IllegalArgumentException("priceScanner cannot be null");
+        }
+
+        this.priceScanner = priceScanner;
+        snapshot = priceScanner.getSnapshot();
+
+        PricingPlan sessionPlan = snapshot.getPricingPlan();
+        if (sessionPlan == null && snapshot.getInventory() instanceof IProductCatalog)
+        {
+            sessionPlan = PricingPlan.compile((IProductCatalog) snapshot.getInventory(), snapshot.getPriceRules(),
+                    priceScanner.isOptimalPricing());
+        }
+        plan = sessionPlan;
+
+        if (snapshot.getInventory() instanceof IProductCatalog)
+        {
+            cart = new IndexedShoppingCart(((IProductCatalog) snapshot.getInventory()).getDictionary());
+        }
+        else
+        {
+            cart = new IndexedShoppingCart(new ProductDictionary(Collections.<String>emptyList()));
+        }
+    }
+
+    /**
+     * Add one item to the cart.
+     * @param productId  Product id of the item.  Value cannot be null or empty.  Items whose product is not in the
+     *                   inventory are counted but, as with {@link Supermarket#checkout(String)}, not priced.
+     */
+    public void scan(String productId)
+    {
+        validateProductId(productId);
+
+        int productIndex = cart.getDictionary().indexOf(productId);
+        if (productIndex >= 0)
+        {
+            int quantity = cart.getQuantity(productIndex);
+            cart.addItems(productIndex, 1);
+            onQuantityChanged(productIndex, quantity, quantity + 1);
+        }
+        else
+        {
+            cart.addUnknownItems(productId, 1);
+            onUnknownQuantityChanged();
+        }
+    }
+
+    /**
+     * Remove one item from the cart.
+     * @param productId  Product id of the item.  Value cannot be null or empty.
+     * @return  True if an item with the product id was in the cart and has been removed.  Otherwise, false.
+     */
+    public boolean voidItem(String productId)
+    {
+        validateProductId(productId);
+
+        boolean voided = false;
+
+        int productIndex = cart.getDictionary().indexOf(productId);
+        if (productIndex >= 0)
+        {
+            int quantity = cart.getQuantity(productIndex);
+            if (quantity > 0)
+            {
+                cart.setQuantity(productIndex, quantity - 1);
+                onQuantityChanged(productIndex, quantity, quantity - 1);
+                voided = true;
+            }
+        }
+        else
+        {
+            int quantity = cart.getItemQuantity(productId);
+            if (quantity > 0)
+            {
+                cart.setItemQuantity(productId, quantity - 1);
+                onUnknownQuantityChanged();
+                voided = true;
+            }
+        }
+
+        return voided;
+    }
+
+    /**
+     * Get the quantity of a product in the cart.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Quantity of the product.  Zero if the product has not been scanned.
+     */
+    public int getQuantity(String productId)
+    {
+        validateProductId(productId);
+
+        return cart.getItemQuantity(productId);
+    }
+
+    /**
+     * Get the total cost of the items in the cart.
+     * @return  Current total.
+     */
+    public int currentTotal()
+    {
+        if (totalStale)
+        {
+            IndexedShoppingCart scannedCart = new IndexedShoppingCart(cart.getDictionary());
+            for (IItem item : cart.getItems())
+            {
+                int productIndex = cart.getDictionary().indexOf(item.getProductId());
+                if (productIndex >= 0)
+                {
+                    scannedCart.addItems(productIndex, item.getQuantity());
+                }
+                else
+                {
+                    scannedCart.addUnknownItems(item.getProductId(), item.getQuantity());
+                }
+            }
+
+            total = priceScanner.scanItems(scannedCart, snapshot);
+            totalStale = false;
+        }
+
+        return total;
+    }
+
+    private void onQuantityChanged(int productIndex, int oldQuantity, int newQuantity)
+    {
+        if (plan != null)
+        {
+            total += plan.price(productIndex, newQuantity) - plan.price(productIndex, oldQuantity);
+        }
+        else
+        {
+            totalStale = true;
+        }
+    }
+
+    private void onUnknownQuantityChanged()
+    {
+        // A plan never prices products outside its dictionary, but price rules may look them up
+        if (plan == null)
+        {
+            totalStale = true;
+        }
+    }
+
+    private static void validateProductId(String productId)
+    {
+        if (productId == null)
+        {
+            throw new IllegalArgumentException("productId cannot be null");
+        }
+
+        if (productId.isEmpty())
+        {
+            throw new IllegalArgumentException("productId cannot be empty");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package supermarket;
+
+/**
+ * Checkout listener forwarding every notification to several others in turn, so that a supermarket's single listener
+ * slot can feed more than one recorder.  A supermarket with no listener still measures nothing.
+ */
+final class CompositeCheckoutListener implements ICheckoutListener
+{
+    private final ICheckoutListener[] checkoutListeners;
+
+    /**
+     * Class constructor
+     * @param checkoutListeners  Listeners to notify, in order.  Value cannot be null or contain null elements.
+     */
+    public CompositeCheckoutListener(ICheckoutListener... checkoutListeners)
+    {
+        if (checkoutListeners == null)
+        {
+            throw new IllegalArgumentException("checkoutListeners cannot be null");
+        }
+
+        for (ICheckoutListener checkoutListener : checkoutListeners)
+        {
+            if (checkoutListener == null)
+            {
+                throw new IllegalArgumentException("checkoutListeners cannot contain null elements");
+            }
+        }
+
+        this.checkoutListeners = checkoutListeners.clone();
+    }
+
+    @Override
+    public void checkoutCompleted(long itemCount, int productCount, long total, long elapsedNanos)
+    {
+        for (ICheckoutListener checkoutListener : checkoutListeners)
+        {
+            checkoutListener.checkoutCompleted(itemCount, productCount, total, elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package supermarket;
+
+/**
+ * Scan listener forwarding every notification to several others in turn, so that a scanner's single listener slot can
+ * feed both {@link CheckoutMetrics} and a {@link CheckoutEventRecorder}, for example.  A scanner with no listener still
+ * measures nothing, so the composite only costs anything while it is installed.
+ */
+final class CompositeScanListener implements IScanListener
+{
+    private final IScanListener[] scanListeners;
+
+    /**
+     * Class constructor
+     * @param scanListeners  Listeners to notify, in order.  Value cannot be null or contain null elements.
+     */
+    public CompositeScanListener(IScanListener... scanListeners)
+    {
+        if (scanListeners == null)
+        {
+            throw new IllegalArgumentException("scanListeners cannot be null");
+        }
+
+        for (IScanListener scanListener : scanListeners)
+        {
+            if (scanListener == null)
+            {
+                throw new IllegalArgumentException("scanListeners cannot contain null elements");
+            }
+        }
+
+        this.scanListeners = scanListeners.clone();
+    }
+
+    @Override
+    public void ruleProcessed(IPriceRule priceRule, String ruleName, long cost, long quantityConsumed,
+                              long listPriceConsumed, long elapsedNanos)
+    {
+        for (IScanListener scanListener : scanListeners)
+        {
+            scanListener.ruleProcessed(priceRule, ruleName, cost, quantityConsumed, listPriceConsumed,
+                    elapsedNanos);
+        }
+    }
+
+    @Override
+    public void scanCompleted(long total, long elapsedNanos)
+    {
+        for (IScanListener scanListener : scanListeners)
+        {
+            scanListener.scanCompleted(total, elapsedNanos);
+        }
+    }
+}
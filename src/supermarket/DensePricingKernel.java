@@ -0,0 +1,63 @@
+package supermarket;
+
+/**
+ * Pricing loop over parallel arrays of unit prices and quantities, totalled in 64 bits so that wholesale quantities
+ * cannot overflow.  Each product's cost is the product of two ints, which always fits a long, and the costs are summed
+ * into four independent accumulators so that consecutive multiplies and adds do not wait on each other.
+ */
+final class DensePricingKernel
+{
+    private static final int LANES = 4;
+
+    private DensePricingKernel()
+    {
+    }
+
+    /**
+     * Total the cost of each quantity at its unit price.
+     * @param unitPrices  Unit price of each product.  Must be non-null and hold at least length elements.
+     * @param quantities  Quantity of each product, at the same position as its unit price.  Must be non-null and hold
+     *                    at least length elements.
+     * @param length  Number of products to total.  Must be non-negative.
+     * @return  Sum of each unit price multiplied by its quantity.
+     */
+    static long total(int[] unitPrices, int[] quantities, int length)
+    {
+        if (unitPrices == null)
+        {
+            throw new IllegalArgumentException("unitPrices cannot be null");
+        }
+
+        if (quantities == null)
+        {
+            throw new IllegalArgumentException("quantities cannot be null");
+        }
+
+        if (length < 0 || length > unitPrices.length || length > quantities.length)
+        {
+            throw new IllegalArgumentException("length must be within both arrays");
+        }
+
+        long total0 = 0;
+        long total1 = 0;
+        long total2 = 0;
+        long total3 = 0;
+
+        int laneEnd = length - length % LANES;
+        int i = 0;
+        for (; i < laneEnd; i += LANES)
+        {
+            total0 += (long) unitPrices[i] * quantities[i];
+            total1 += (long) unitPrices[i + 1] * quantities[i + 1];
+            total2 += (long) unitPrices[i + 2] * quantities[i + 2];
+            total3 += (long) unitPrices[i + 3] * quantities[i + 3];
+        }
+
+        for (; i < length; i++)
+        {
+            total0 += (long) unitPrices[i] * quantities[i];
+        }
+
+        return (total0 + total1) + (total2 + total3);
+    }
+}
@@ -0,0 +1,117 @@
+package supermarket;
+
+/**
+ * Approximate, aging record of how often keys have been seen, used to decide whether a new cache entry is worth more
+ * than the entry it would displace.  Counts are held in a count-min sketch of 4-bit counters, four counters per key,
+ * so each key costs two bytes of state however many distinct keys are seen.  Once the number of recorded sightings
+ * reaches ten times the sketch's capacity, every counter is halved, so that keys which were popular long ago fade out.
+ */
+class FrequencySketch
+{
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAXIMUM_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Class constructor
+     * @param capacity  Expected number of distinct keys worth tracking, typically the maximum size of the cache.  Must
+     *                  be 1 or greater.
+     */
+    public FrequencySketch(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity cannot be less than 1");
+        }
+
+        int tableSize = Integer.highestOneBit(Math.min(capacity, 1 << 30) - 1) << 1;
+        table = new long[Math.max(tableSize, 1)];
+        tableMask = table.length - 1;
+        sampleSize = capacity <= Integer.MAX_VALUE / 10 ? capacity * 10 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Record a sighting of a key.
+     * @param hash  Hash code of the key.
+     */
+    public void increment(int hash)
+    {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+
+        boolean incremented = false;
+        for (int i = 0; i < 4; i++)
+        {
+            incremented |= incrementAt(indexOf(spread, i), start + i);
+        }
+
+        if (incremented && ++size >= sampleSize)
+        {
+            reset();
+        }
+    }
+
+    /**
+     * Get the estimated number of recent sightings of a key.
+     * @param hash  Hash code of the key.
+     * @return  Estimated count, from 0 to 15.
+     */
+    public int frequency(int hash)
+    {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+
+        int frequency = MAXIMUM_COUNT;
+        for (int i = 0; i < 4; i++)
+        {
+            int count = (int) ((table[indexOf(spread, i)] >>> ((start + i) << 2)) & 0xf);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+        int shift = counter << 2;
+        long mask = 0xfL << shift;
+
+        boolean incremented = false;
+        if ((table[index] & mask) != mask)
+        {
+            table[index] += 1L << shift;
+            incremented = true;
+        }
+
+        return incremented;
+    }
+
+    private int indexOf(int spread, int i)
+    {
+        long hash = (spread + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return (int) hash & tableMask;
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        size >>>= 1;
+    }
+
+    private static int spread(int hash)
+    {
+        int spread = hash * 0x9e3779b9;
+        return spread ^ (spread >>> 16);
+    }
+}
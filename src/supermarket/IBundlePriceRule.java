@@ -0,0 +1,9 @@
+package supermarket;
+
+/**
+ * Price rule which claims nothing unless the cart holds every one of its products, so a price scanner need only
+ * consider it for carts holding any single one of them, such as the one fewest other rules apply to.
+ */
+interface IBundlePriceRule extends IProductPriceRule
+{
+}
@@ -0,0 +1,17 @@
+package supermarket;
+
+/**
+ * Observer of the checkouts made by a supermarket, for instrumentation.  A supermarket with no listener does none of
+ * the measuring needed to notify one.  Listeners may be notified from several threads at once.
+ */
+interface ICheckoutListener
+{
+    /**
+     * Notification that a cart has been checked out.
+     * @param itemCount  Total quantity of items in the cart.
+     * @param productCount  Number of distinct products in the cart.
+     * @param total  Total cost of the cart.
+     * @param elapsedNanos  Time taken to price the cart, in nanoseconds.
+     */
+    void checkoutCompleted(long itemCount, int productCount, long total, long elapsedNanos);
+}
@@ -0,0 +1,15 @@
+package supermarket;
+
+/**
+ * Price rule which can be compiled into a pricing plan, allowing a price scanner to price carts without invoking the
+ * rule itself.
+ */
+interface ICompilablePriceRule extends IPriceRule
+{
+    /**
+     * Add the pricing performed by this rule to a plan.  Rules are compiled in the same order in which they would be
+     * processed.
+     * @param plan  Plan being compiled.  Must be non-null.
+     */
+    void compileInto(PricingPlan plan);
+}
@@ -0,0 +1,17 @@
+package supermarket;
+
+/**
+ * Price rule which can also compute its cost in 64 bits, so that a price scanner can total carts whose quantities
+ * would overflow the cost returned by {@link #process(IShoppingCart, IInventoryLookup)}.
+ */
+interface IExactPriceRule extends IPriceRule
+{
+    /**
+     * Process this rule against the items in the shopping cart, as {@link #process(IShoppingCart, IInventoryLookup)}
+     * does, but with a 64-bit cost.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.
+     * @param lookup  Product information finder.  Must be non-null.
+     * @return  Cost of the items claimed by this rule.
+     */
+    long processExact(IShoppingCart cart, IInventoryLookup lookup);
+}
@@ -0,0 +1,14 @@
+package supermarket;
+
+/**
+ * Callback receiving the items of a shopping cart one at a time, without an item object being created for each.
+ */
+interface IItemVisitor
+{
+    /**
+     * Receive one item of the cart.
+     * @param productId  Product id of the item.  Will be non-null and non-empty.
+     * @param quantity  Quantity of the item.  Will be non-negative.
+     */
+    void visit(String productId, int quantity);
+}
@@ -0,0 +1,11 @@
+package supermarket;
+
+/**
+ * Price rule which prices each product independently of every other product in the cart, reading and decrementing
+ * only the quantity of the product being priced.  Processing such a rule against each part of a cart split by product
+ * and summing the results costs the same as processing it against the whole cart, so a price scanner may process the
+ * parts concurrently.
+ */
+interface IPartitionablePriceRule extends IPriceRule
+{
+}
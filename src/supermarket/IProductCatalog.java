@@ -0,0 +1,22 @@
+package supermarket;
+
+/**
+ * Product information finder which also exposes its products by dense product index.
+ */
+interface IProductCatalog extends IInventoryLookup
+{
+    /**
+     * Get the dictionary mapping the catalog's product ids to product indexes.  A new dictionary is returned whenever
+     * the catalog's products change, so callers can compare dictionaries by reference to detect changes.
+     * @return  Product dictionary.  Will be non-null.
+     */
+    ProductDictionary getDictionary();
+
+    /**
+     * Get the unit price of a product by its index.
+     * @param productIndex  Index of the product in the dictionary returned by {@link #getDictionary()}.  Must be
+     *                      non-negative and less than the size of the dictionary.
+     * @return  Unit price of the product.
+     */
+    int getUnitPrice(int productIndex);
+}
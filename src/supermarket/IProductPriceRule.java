@@ -0,0 +1,17 @@
+package supermarket;
+
+import java.util.Collection;
+
+/**
+ * Price rule which only claims items of particular products, allowing a price scanner to skip the rule for carts
+ * holding none of them.
+ */
+interface IProductPriceRule extends IPriceRule
+{
+    /**
+     * Get the ids of the products to which this rule applies.  Processing the rule against a cart holding no quantity
+     * of any of these products must neither change the cart nor cost anything.
+     * @return  Product ids.  Will be non-null and non-empty, and must not change.
+     */
+    Collection<String> getProductIds();
+}
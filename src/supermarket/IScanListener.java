@@ -0,0 +1,31 @@
+package supermarket;
+
+/**
+ * Observer of the work done by a price scanner, for instrumentation.  A scanner with no listener does none of the
+ * measuring needed to notify one.  Listeners may be notified from several threads at once.
+ */
+interface IScanListener
+{
+    /**
+     * Notification that a price rule has been processed against a cart.  Rules priced through a compiled
+     * {@link PricingPlan} are not processed, so produce no notification.
+     * @param priceRule  Rule processed.  Will be non-null.
+     * @param ruleName  Name of the rule, made from its class and, for an {@link IProductPriceRule}, its products, with
+     *                  {@code #2}, {@code #3} and so on appended to later rules of the same name.  Unique among the
+     *                  scanner's price rules, and the same for an equivalent rule after the rules are replaced.
+     * @param cost  Cost returned by the rule.
+     * @param quantityConsumed  Total quantity of items the rule claimed from the cart.
+     * @param listPriceConsumed  Value of the claimed items at their unit prices.  The discount granted by the rule is
+     *                          this less the cost.
+     * @param elapsedNanos  Time taken to process the rule, in nanoseconds.
+     */
+    void ruleProcessed(IPriceRule priceRule, String ruleName, long cost, long quantityConsumed, long listPriceConsumed,
+                       long elapsedNanos);
+
+    /**
+     * Notification that a cart has been scanned.
+     * @param total  Total cost of the cart.
+     * @param elapsedNanos  Time taken to scan the cart, in nanoseconds.
+     */
+    void scanCompleted(long total, long elapsedNanos);
+}
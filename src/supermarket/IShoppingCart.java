@@ -14,6 +14,13 @@ interface IShoppingCart
      */
     IItem getItem(String productId);
 
+    /**
+     * Get the quantity of a shopping cart item by its product id, without creating an item.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Quantity of the matching item.  Zero if no item is available.
+     */
+    int getItemQuantity(String productId);
+
     /**
      * Get all of the items in the shopping cart in the form of a collection.
      * @return Collection of items.  Collection will be read-only and be a copy of the data held by the shopping cart.
@@ -21,6 +28,13 @@ interface IShoppingCart
      */
     Collection<IItem> getItems();
 
+    /**
+     * Pass each item in the shopping cart to a visitor, without creating an item for each.  The visitor may change the
+     * quantity of the item it is visiting through {@link #setItemQuantity(String, int)}.
+     * @param visitor  Visitor receiving the items.  Value cannot be null.
+     */
+    void forEachItem(IItemVisitor visitor);
+
     /**
      * Change the quantity of an item in the cart.  Will not insert a new item in the cart if no prior item
      * corresponding to the productId was present.
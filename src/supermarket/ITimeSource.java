@@ -0,0 +1,13 @@
+package supermarket;
+
+/**
+ * Source of elapsed time, allowing time to be controlled where it affects behavior.
+ */
+interface ITimeSource
+{
+    /**
+     * Get the current value of the time source.
+     * @return  Current value, in nanoseconds.  Only meaningful relative to other values from the same time source.
+     */
+    long nanoTime();
+}
@@ -0,0 +1,385 @@
+package supermarket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+/**
+ * Shopping cart keyed by the product indexes of a product dictionary.  Each distinct product occupies a line in a
+ * pair of parallel arrays, so price rules can read and update quantities by product index without String hashing or
+ * boxing.  Items whose id is not in the dictionary are kept separately so they still appear through the String-based
+ * methods.
+ */
+class IndexedShoppingCart implements IShoppingCart
+{
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final ProductDictionary dictionary;
+    private final ProductIndexMap lineMap;
+    private int[] productIndexes;
+    private int[] quantities;
+    private int lineCount;
+    private HashMap<String, Integer> unknownItems;
+
+    /**
+     * Class constructor for an empty cart.
+     * @param dictionary  Dictionary assigning product indexes to product ids.  Value cannot be null.
+     */
+    public IndexedShoppingCart(ProductDictionary dictionary)
+    {
+        if (dictionary == null)
+        {
+            throw new IllegalArgumentException("dictionary cannot be null");
+        }
+
+        this.dictionary = dictionary;
+        lineMap = new ProductIndexMap();
+        productIndexes = new int[INITIAL_CAPACITY];
+        quantities = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Class constructor
+     * @param items  Items already counted by product id character.  Value cannot be null.
+     * @param dictionary  Dictionary assigning product indexes to product ids.  Value cannot be null.
+     */
+    public IndexedShoppingCart(CharIndexedShoppingCart items, ProductDictionary dictionary)
+    {
+        this(dictionary);
+
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        int productCount = items.getProductCount();
+        for (int i = 0; i < productCount; i++)
+        {
+            char id = items.getProductId(i);
+            int productIndex = dictionary.indexOf(id);
+            if (productIndex >= 0)
+            {
+                addItems(productIndex, items.getQuantity(id));
+            }
+            else
+            {
+                addUnknownItems(String.valueOf(id), items.getQuantity(id));
+            }
+        }
+    }
+
+    /**
+     * Get a shopping cart item by its product id.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Matching item, if one is available.  Otherwise, null.
+     */
+    public IItem getItem(String productId)
+    {
+        validateProductId(productId);
+
+        Item returnValue = null;
+
+        int productIndex = dictionary.indexOf(productId);
+        if (productIndex >= 0)
+        {
+            int line = lineMap.get(productIndex);
+            if (line >= 0)
+            {
+                returnValue = new Item(productId, quantities[line]);
+            }
+        }
+        else if (unknownItems != null)
+        {
+            Integer quantity = unknownItems.get(productId);
+            if (quantity != null)
+            {
+                returnValue = new Item(productId, quantity);
+            }
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Get the quantity of a shopping cart item by its product id, without creating an item.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Quantity of the matching item.  Zero if no item is available.
+     */
+    public int getItemQuantity(String productId)
+    {
+        validateProductId(productId);
+
+        int quantity = 0;
+
+        int productIndex = dictionary.indexOf(productId);
+        if (productIndex >= 0)
+        {
+            quantity = getQuantity(productIndex);
+        }
+        else if (unknownItems != null)
+        {
+            Integer unknownQuantity = unknownItems.get(productId);
+            if (unknownQuantity != null)
+            {
+                quantity = unknownQuantity;
+            }
+        }
+
+        return quantity;
+    }
+
+    /**
+     * Get all of the items in the shopping cart in the form of a collection.
+     * @return Collection of items.  Collection will be read-only and be a copy of the data held by the shopping cart.
+     * Changes to the items returned in the list have no effect on the cart.
+     */
+    public Collection<IItem> getItems()
+    {
+        Collection<IItem> items = new ArrayList<IItem>(lineCount);
+
+        for (int line = 0; line < lineCount; line++)
+        {
+            items.add(new Item(dictionary.getId(productIndexes[line]), quantities[line]));
+        }
+
+        if (unknownItems != null)
+        {
+            for (Entry<String, Integer> entry : unknownItems.entrySet())
+            {
+                items.add(new Item(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        return Collections.unmodifiableCollection(items);
+    }
+
+    /**
+     * Pass each item in the shopping cart to a visitor, without creating an item for each.  The visitor may change the
+     * quantity of the item it is visiting through {@link #setItemQuantity(String, int)}.
+     * @param visitor  Visitor receiving the items.  Value cannot be null.
+     */
+    public void forEachItem(IItemVisitor visitor)
+    {
+        if (visitor == null)
+        {
+            throw new IllegalArgumentException("visitor cannot be null");
+        }
+
+        for (int line = 0; line < lineCount; line++)
+        {
+            visitor.visit(dictionary.getId(productIndexes[line]), quantities[line]);
+        }
+
+        if (unknownItems != null)
+        {
+            for (Entry<String, Integer> entry : unknownItems.entrySet())
+            {
+                visitor.visit(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Change the quantity of an item in the cart.  Will not insert a new item in the cart if no prior item
+     * corresponding to the productId was present.
+     * @param productId Product id of the item whose quantity should be changed.  Value cannot be null or empty.
+     * @param quantity New quantity for the item.  Value cannot be less than zero.
+     * @return True if the item was updated.  Otherwise, false.
+     */
+    public boolean setItemQuantity(String productId, int quantity)
+    {
+        validateProductId(productId);
+        validateQuantity(quantity);
+
+        boolean quantitySet = false;
+
+        int productIndex = dictionary.indexOf(productId);
+        if (productIndex >= 0)
+        {
+            quantitySet = setQuantity(productIndex, quantity);
+        }
+        else if (unknownItems != null && unknownItems.containsKey(productId))
+        {
+            unknownItems.put(productId, quantity);
+            quantitySet = true;
+        }
+
+        return quantitySet;
+    }
+
+    /**
+     * Get the dictionary assigning product indexes to the cart's product ids.
+     * @return  Product dictionary.
+     */
+    ProductDictionary getDictionary()
+    {
+        return dictionary;
+    }
+
+    /**
+     * Add items of a product in the dictionary, creating a line for the product if it is not yet in the cart.
+     * @param productIndex  Index of the product in the cart's dictionary.  Must be non-negative and less than the size
+     *                      of the dictionary.
+     * @param quantity  Quantity to add.  Must be non-negative.
+     */
+    void addItems(int productIndex, int quantity)
+    {
+        int line = lineMap.get(productIndex);
+        if (line < 0)
+        {
+            if (lineCount == productIndexes.length)
+            {
+                productIndexes = Arrays.copyOf(productIndexes, lineCount * 2);
+                quantities = Arrays.copyOf(quantities, lineCount * 2);
+            }
+
+            line = lineCount++;
+            productIndexes[line] = productIndex;
+            lineMap.put(productIndex, line);
+        }
+
+        quantities[line] += quantity;
+    }
+
+    /**
+     * Add items of a product which is not in the dictionary.  Such items are never priced but are reported through the
+     * String-based methods.
+     * @param productId  Product id.  Must be non-null and non-empty.
+     * @param quantity  Quantity to add.  Must be non-negative.
+     */
+    void addUnknownItems(String productId, int quantity)
+    {
+        if (unknownItems == null)
+        {
+            unknownItems = new HashMap<String, Integer>();
+        }
+
+        Integer previousQuantity = unknownItems.get(productId);
+        unknownItems.put(productId, previousQuantity != null ? previousQuantity + quantity : quantity);
+    }
+
+    /**
+     * Determine whether the cart holds any items whose id is not in the dictionary.
+     * @return  True if the cart holds unknown items.  Otherwise, false.
+     */
+    boolean hasUnknownItems()
+    {
+        return unknownItems != null && !unknownItems.isEmpty();
+    }
+
+    /**
+     * Get the number of lines, one per distinct product in the dictionary, held by the cart.
+     * @return  Number of lines.
+     */
+    int getLineCount()
+    {
+        return lineCount;
+    }
+
+    /**
+     * Get the product index of a line.
+     * @param line  Line position.  Must be non-negative and less than {@link #getLineCount()}.
+     * @return  Product index.
+     */
+    int getLineProductIndex(int line)
+    {
+        return productIndexes[line];
+    }
+
+    /**
+     * Get the quantity of a line.
+     * @param line  Line position.  Must be non-negative and less than {@link #getLineCount()}.
+     * @return  Quantity.
+     */
+    int getLineQuantity(int line)
+    {
+        return quantities[line];
+    }
+
+    /**
+     * Change the quantity of a line.
+     * @param line  Line position.  Must be non-negative and less than {@link #getLineCount()}.
+     * @param quantity  New quantity.  Must be non-negative.
+     */
+    void setLineQuantity(int line, int quantity)
+    {
+        quantities[line] = quantity;
+    }
+
+    /**
+     * Get the quantity of a product by its index.
+     * @param productIndex  Index of the product in the cart's dictionary.
+     * @return  Quantity of the product.  Zero if the product is not in the cart.
+     */
+    int getQuantity(int productIndex)
+    {
+        int line = lineMap.get(productIndex);
+        return line >= 0 ? quantities[line] : 0;
+    }
+
+    /**
+     * Change the quantity of a product by its index.  Will not insert a new line if the product is not in the cart.
+     * @param productIndex  Index of the product in the cart's dictionary.
+     * @param quantity  New quantity.  Must be non-negative.
+     * @return  True if the quantity was updated.  Otherwise, false.
+     */
+    boolean setQuantity(int productIndex, int quantity)
+    {
+        boolean quantitySet = false;
+
+        int line = lineMap.get(productIndex);
+        if (line >= 0)
+        {
+            quantities[line] = quantity;
+            quantitySet = true;
+        }
+
+        return quantitySet;
+    }
+
+    /**
+     * Determine whether a cart and a product finder share product indexes, so that a price rule can process the cart
+     * by product index.
+     * @param cart  Shopping cart being processed.
+     * @param lookup  Product information finder being used.
+     * @return  The lookup as a catalog, if the cart is an IndexedShoppingCart built from the catalog's current
+     * dictionary.  Otherwise, null.
+     */
+    static IProductCatalog getMatchingCatalog(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        IProductCatalog catalog = null;
+
+        if (cart instanceof IndexedShoppingCart && lookup instanceof IProductCatalog &&
+                ((IndexedShoppingCart) cart).getDictionary() == ((IProductCatalog) lookup).getDictionary())
+        {
+            catalog = (IProductCatalog) lookup;
+        }
+
+        return catalog;
+    }
+
+    private static void validateProductId(String productId)
+    {
+        if (productId == null)
+        {
+            throw new IllegalArgumentException("productId cannot be null");
+        }
+
+        if (productId.isEmpty())
+        {
+            throw new IllegalArgumentException("productId cannot be empty");
+        }
+    }
+
+    private static void validateQuantity(int quantity)
+    {
+        if (quantity < 0)
+        {
+            throw new IllegalArgumentException("quantity on item cannot be less than zero.  Value specified was " +
+                quantity);
+        }
+    }
+}
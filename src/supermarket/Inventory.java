@@ -1,21 +1,22 @@
 package supermarket;
 
 import java.util.Collection;
-import java.util.HashMap;
 
 /**
- * Product inventory.
+ * Product inventory.  The inventory's products are held in an immutable {@link ProductCatalog} which is replaced as a
+ * whole each time the products are set, so a reader always sees either the old or the new products, never a mix of
+ * the two.
  */
-class Inventory implements IInventoryLookup
+class Inventory implements IProductCatalog
 {
-    private final HashMap<String, IProduct> productMap;
+    private volatile ProductCatalog catalog;
 
     /**
      * Class constructor
      */
     public Inventory()
     {
-        productMap = new HashMap<String, IProduct>();
+        setProducts(null);
     }
 
     /**
@@ -24,7 +25,6 @@ class Inventory implements IInventoryLookup
      */
     public Inventory(Iterable<IProduct> products)
     {
-        this();
         setProducts(products);
     }
 
@@ -36,45 +36,75 @@ class Inventory implements IInventoryLookup
     @Override
     public IProduct getProduct(String id)
     {
-        if (id == null)
-        {
-            throw new IllegalArgumentException("id must not be null");
-        }
+        return catalog.getProduct(id);
+    }
 
-        if (id.isEmpty())
-        {
-            throw new IllegalArgumentException("id must not be empty");
-        }
+    /**
+     * Get the dictionary mapping the inventory's product ids to product indexes.  A new dictionary is created each
+     * time the products are set.
+     * @return  Product dictionary.  Will be non-null.
+     */
+    @Override
+    public ProductDictionary getDictionary()
+    {
+        return catalog.getDictionary();
+    }
 
-        return productMap.get(id);
+    /**
+     * Get the unit price of a product by its index.  Callers making more than one call for the same work should get
+     * the unit prices from {@link #getCatalog()} instead, so that the products cannot change between calls.
+     * @param productIndex  Index of the product in the dictionary returned by {@link #getDictionary()}.  Must be
+     *                      non-negative and less than the size of the dictionary.
+     * @return  Unit price of the product.
+     */
+    @Override
+    public int getUnitPrice(int productIndex)
+    {
+        return catalog.getUnitPrice(productIndex);
+    }
+
+    /**
+     * Get the catalog holding the inventory's current products.
+     * @return  Current catalog.  Will be non-null.  The catalog is not affected by later calls to
+     * {@link #setProducts(Iterable)}.
+     */
+    public ProductCatalog getCatalog()
+    {
+        return catalog;
     }
 
     /**
      * Get all of the products in the inventory as a collection.
-     * @return  Collection of the products in the inventory.
+     * @return  Collection of the products in the inventory.  The collection is read-only.
      */
     public Collection<IProduct> getProducts()
     {
-        return productMap.values();
+        return catalog.getProducts();
     }
 
     /**
      * Set the products which appear in the inventory.  Products previously in the inventory will be purged from the
-     * inventory before the new products are added.
+     * inventory before the new products are added.  If more than one product has the same id, the last one wins.  The
+     * new products are published with a single write, so readers never block and never see a partial update.
      * @param products  Products to seed into the inventory.  May be null.
      */
     public void setProducts(Iterable<IProduct> products)
     {
-        productMap.clear();
-        if (products != null)
+        catalog = new ProductCatalog(products);
+    }
+
+    /**
+     * Replace the inventory's products with those of a catalog, such as one loaded by {@link CatalogLoader}.  The
+     * catalog is published with a single write, as by {@link #setProducts(Iterable)}.
+     * @param catalog  Catalog holding the new products.  Value cannot be null.
+     */
+    public void setCatalog(ProductCatalog catalog)
+    {
+        if (catalog == null)
         {
-            for (IProduct product : products)
-            {
-                if (product != null)
-                {
-                    productMap.put(product.getId(), product);
-                }
-            }
+            throw new IllegalArgumentException("catalog cannot be null");
         }
+
+        this.catalog = catalog;
     }
 }
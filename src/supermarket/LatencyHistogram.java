@@ -0,0 +1,132 @@
+package supermarket;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative latencies, bucketed logarithmically in the manner of HdrHistogram: values below
+ * {@link #LINEAR_LIMIT} are counted exactly, and each power of two above that is split into 16 equal buckets, so any
+ * recorded value is reported to within about 6%.  The bucket counts are fixed in size, and recording is a single
+ * atomic increment, so the histogram can be shared by concurrent threads and recorded on hot paths.
+ */
+final class LatencyHistogram
+{
+    static final int LINEAR_LIMIT = 32;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_MAGNITUDE = 5;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - LINEAR_MAGNITUDE) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value.
+     * @param value  Value to record.  Negative values are recorded as zero.
+     */
+    public void record(long value)
+    {
+        long recorded = Math.max(0, value);
+
+        counts.incrementAndGet(bucketOf(recorded));
+        count.incrementAndGet();
+
+        long currentMax;
+        while (recorded > (currentMax = max.get()) && !max.compareAndSet(currentMax, recorded))
+        {
+            // Another thread raised the maximum; compare against its value
+        }
+    }
+
+    /**
+     * Get the number of values recorded.
+     * @return  Number of values.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Get the largest value recorded.
+     * @return  Largest value, exactly.  Zero if no value has been recorded.
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Get the value below which a percentage of the recorded values fall.
+     * @param percentile  Percentage of values, from 0 to 100.
+     * @return  Highest value in the bucket holding the percentile, capped at the largest value recorded.  Zero if no
+     * value has been recorded.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+        {
+            throw new IllegalArgumentException("percentile must be from 0 to 100");
+        }
+
+        long total = count.get();
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT && total > 0; bucket++)
+        {
+            seen += counts.get(bucket);
+            if (seen >= target)
+            {
+                return Math.min(highestValueOf(bucket), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Discard all recorded values.  Values recorded concurrently with a reset may be partly discarded.
+     */
+    public void reset()
+    {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+        {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    static int bucketOf(long value)
+    {
+        if (value < LINEAR_LIMIT)
+        {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+
+        return LINEAR_LIMIT + (magnitude - LINEAR_MAGNITUDE) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int bucket)
+    {
+        if (bucket < LINEAR_LIMIT)
+        {
+            return bucket;
+        }
+
+        int magnitude = (bucket - LINEAR_LIMIT) / SUB_BUCKET_COUNT + LINEAR_MAGNITUDE;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        int shift = magnitude - SUB_BUCKET_BITS;
+
+        // The top bucket ends at Long.MAX_VALUE, where the next bucket's first value would overflow
+        return subBucket == 2 * SUB_BUCKET_COUNT - 1 && magnitude == 62 ? Long.MAX_VALUE :
+                ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,343 @@
+package supermarket;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only product inventory backed by a memory-mapped file in a columnar layout.  Opening the inventory only maps
+ * the file, so it takes the same time regardless of the number of products, and the file's pages are shared through
+ * the operating system's page cache by every process which maps it.  Products are not held on the Java heap; each call
+ * to {@link #getProduct(String)} binary searches the sorted id block and creates a product from the mapped columns.
+ *
+ * <p>The file, written by {@link #write(Iterable, File)}, holds the following big-endian sections:</p>
+ * <ul>
+ *     <li>Header: magic number, format version, product count and id block length, each an int.</li>
+ *     <li>Offsets: product count + 1 ints, giving the start of each id within the id block and the end of the
+ *     last.</li>
+ *     <li>Prices: product count ints, giving the unit price of each product.</li>
+ *     <li>Id block: the UTF-8 bytes of every product id, sorted in unsigned byte order.</li>
+ * </ul>
+ * <p>The whole file must fit in a single mapping, so it cannot be larger than 2GB.</p>
+ */
+class MappedInventory implements IInventoryLookup
+{
+    static final int MAGIC = 0x534d4943;
+    static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 16;
+    private static final Charset ID_CHARSET = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int productCount;
+    private final int offsetsStart;
+    private final int pricesStart;
+    private final int idsStart;
+
+    /**
+     * Class constructor
+     * @param file  File written by {@link #write(Iterable, File)}.  Value cannot be null.
+     * @throws IOException  If the file cannot be mapped or is not a valid inventory file.
+     */
+    public MappedInventory(File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+            long length = channel.size();
+            if (length < HEADER_LENGTH || length > Integer.MAX_VALUE)
+            {
+                throw new IOException("Invalid inventory file length " + length + ": " + file);
+            }
+
+            // The mapping remains valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        if (buffer.getInt(0) != MAGIC)
+        {
+            throw new IOException("Not an inventory file: " + file);
+        }
+
+        if (buffer.getInt(4) != VERSION)
+        {
+            throw new IOException("Unsupported inventory file version " + buffer.getInt(4) + ": " + file);
+        }
+
+        productCount = buffer.getInt(8);
+        int idBlockLength = buffer.getInt(12);
+        // A corrupt count could wrap int offsets back within the file, so they are checked in long before narrowing
+        long pricesOffset = HEADER_LENGTH + ((long) productCount + 1) * 4;
+        long idsOffset = pricesOffset + (long) productCount * 4;
+        if (productCount < 0 || idBlockLength < 0 || idsOffset + idBlockLength != buffer.capacity())
+        {
+            throw new IOException("Corrupt inventory file: " + file);
+        }
+
+        offsetsStart = HEADER_LENGTH;
+        pricesStart = (int) pricesOffset;
+        idsStart = (int) idsOffset;
+
+        if (buffer.getInt(pricesStart - 4) != idBlockLength)
+        {
+            throw new IOException("Corrupt inventory file: " + file);
+        }
+    }
+
+    /**
+     * Get the product whose id matches the supplied parameter.
+     * @param id  Id of the product to get.  Must be non-null and non-empty.
+     * @return  The product, if one can be found.  Otherwise, null.  A new product is created on each call.
+     */
+    @Override
+    public IProduct getProduct(String id)
+    {
+        if (id == null)
+        {
+            throw new IllegalArgumentException("id must not be null");
+        }
+
+        if (id.isEmpty())
+        {
+            throw new IllegalArgumentException("id must not be empty");
+        }
+
+        int index = indexOf(id);
+        return index >= 0 ? new Product(id, getUnitPrice(index)) : null;
+    }
+
+    /**
+     * Get the number of products in the inventory.
+     * @return  Number of products.
+     */
+    public int size()
+    {
+        return productCount;
+    }
+
+    /**
+     * Get the position of a product in the inventory's sorted id order.
+     * @param id  Product id.  Must be non-null.
+     * @return  Position of the product.  -1 if the product is not in the inventory.
+     */
+    public int indexOf(String id)
+    {
+        byte[] key = id.getBytes(ID_CHARSET);
+
+        int low = 0;
+        int high = productCount - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int comparison = compareId(middle, key);
+            if (comparison < 0)
+            {
+                low = middle + 1;
+            }
+            else if (comparison > 0)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the id of a product by its position.
+     * @param index  Position of the product.  Must be non-negative and less than {@link #size()}.
+     * @return  Product id.
+     */
+    public String getId(int index)
+    {
+        validateIndex(index);
+
+        int start = getIdOffset(index);
+        byte[] bytes = new byte[getIdOffset(index + 1) - start];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = buffer.get(idsStart + start + i);
+        }
+
+        return new String(bytes, ID_CHARSET);
+    }
+
+    /**
+     * Get the unit price of a product by its position.
+     * @param index  Position of the product.  Must be non-negative and less than {@link #size()}.
+     * @return  Unit price of the product.
+     */
+    public int getUnitPrice(int index)
+    {
+        validateIndex(index);
+
+        return buffer.getInt(pricesStart + index * 4);
+    }
+
+    /**
+     * Write products to a file which can be opened as a MappedInventory.  If more than one product has the same id,
+     * the last one wins.
+     * @param products  Products to write.  Value cannot be null.  Null products are skipped.
+     * @param file  File to write.  Value cannot be null.  An existing file is replaced.
+     * @throws IOException  If the file cannot be written.
+     */
+    public static void write(Iterable<IProduct> products, File file) throws IOException
+    {
+        if (products == null)
+        {
+            throw new IllegalArgumentException("products cannot be null");
+        }
+
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        Map<String, IProduct> productsById = new LinkedHashMap<String, IProduct>();
+        for (IProduct product : products)
+        {
+            if (product != null)
+            {
+                productsById.put(product.getId(), product);
+            }
+        }
+
+        List<IdEntry> entries = new ArrayList<IdEntry>(productsById.size());
+        long idBlockLength = 0;
+        for (IProduct product : productsById.values())
+        {
+            IdEntry entry = new IdEntry(product.getId().getBytes(ID_CHARSET), product.getUnitPrice());
+            entries.add(entry);
+            idBlockLength += entry.idBytes.length;
+        }
+        Collections.sort(entries, IdEntry.BY_ID_BYTES);
+
+        long fileLength = HEADER_LENGTH + (entries.size() * 2L + 1) * 4 + idBlockLength;
+        if (fileLength > Integer.MAX_VALUE)
+        {
+            throw new IOException("Inventory too large to map: " + fileLength + " bytes");
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entries.size());
+            output.writeInt((int) idBlockLength);
+
+            int offset = 0;
+            for (IdEntry entry : entries)
+            {
+                output.writeInt(offset);
+                offset += entry.idBytes.length;
+            }
+            output.writeInt(offset);
+
+            for (IdEntry entry : entries)
+            {
+                output.writeInt(entry.unitPrice);
+            }
+
+            for (IdEntry entry : entries)
+            {
+                output.write(entry.idBytes);
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    private int getIdOffset(int index)
+    {
+        return buffer.getInt(offsetsStart + index * 4);
+    }
+
+    private int compareId(int index, byte[] key)
+    {
+        int start = idsStart + getIdOffset(index);
+        int length = idsStart + getIdOffset(index + 1) - start;
+        int commonLength = Math.min(length, key.length);
+
+        for (int i = 0; i < commonLength; i++)
+        {
+            int difference = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0)
+            {
+                return difference;
+            }
+        }
+
+        return length - key.length;
+    }
+
+    private void validateIndex(int index)
+    {
+        if (index < 0 || index >= productCount)
+        {
+            throw new IndexOutOfBoundsException("index " + index + " is outside 0.." + (productCount - 1));
+        }
+    }
+
+    /**
+     * Product id encoded for writing, with its unit price.
+     */
+    private static class IdEntry
+    {
+        static final Comparator<IdEntry> BY_ID_BYTES = new Comparator<IdEntry>()
+        {
+            @Override
+            public int compare(IdEntry first, IdEntry second)
+            {
+                int commonLength = Math.min(first.idBytes.length, second.idBytes.length);
+                for (int i = 0; i < commonLength; i++)
+                {
+                    int difference = (first.idBytes[i] & 0xff) - (second.idBytes[i] & 0xff);
+                    if (difference != 0)
+                    {
+                        return difference;
+                    }
+                }
+
+                return first.idBytes.length - second.idBytes.length;
+            }
+        };
+
+        final byte[] idBytes;
+        final int unitPrice;
+
+        IdEntry(byte[] idBytes, int unitPrice)
+        {
+            this.idBytes = idBytes;
+            this.unitPrice = unitPrice;
+        }
+    }
+}
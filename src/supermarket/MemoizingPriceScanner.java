@@ -0,0 +1,217 @@
+package supermarket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Price scanner which remembers the result of scanning each distinct cart, so that a cart holding the same products in
+ * the same quantities as an earlier one is priced without processing any price rules.  Results are keyed by a
+ * {@link CartFingerprint} and belong to the version of the scanner's configuration they were computed with; when the
+ * price rules or the inventory's products change, all results are discarded.  The least recently used result is
+ * evicted once the configured number of results is held.  Carts holding more than {@link #MAXIMUM_PRODUCT_COUNT}
+ * distinct products are scanned without being remembered, since large baskets rarely repeat and fingerprinting them
+ * costs more than processing the price rules.
+ *
+ * <p>Changes to an inventory which is not an {@link Inventory} are not visible to the scanner's configuration version,
+ * so results computed with such an inventory are only discarded when the price rules change or {@link #clear()} is
+ * called.</p>
+ */
+class MemoizingPriceScanner implements IPriceScanner
+{
+    static final int MAXIMUM_PRODUCT_COUNT = 64;
+
+    private final PriceScanner priceScanner;
+    private final Map<CartFingerprint, ScanResult> results;
+    private long version;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Class constructor
+     * @param priceScanner  Scanner computing the results which are remembered.  Value cannot be null.
+     * @param maximumSize  Maximum number of results to remember.  Value cannot be less than 1.
+     */
+    public MemoizingPriceScanner(PriceScanner priceScanner, final int maximumSize)
+    {
+        if (priceScanner == null)
+        {
+            throw new IllegalArgumentException("priceScanner cannot be null");
+        }
+
+        if (maximumSize < 1)
+        {
+            throw new IllegalArgumentException("maximumSize cannot be less than 1");
+        }
+
+        this.priceScanner = priceScanner;
+        results = new LinkedHashMap<CartFingerprint, ScanResult>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CartFingerprint, ScanResult> eldest)
+            {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Scan the items in a shopping cart, reusing the result of an earlier scan of the same items if one is remembered.
+     * @param cart  Shopping cart to scan.  Must be non-null.  On return, items successfully scanned will be removed
+     *              from the cart (signified by the item quantity being decremented).
+     * @return  Total cost of the items in the cart.
+     */
+    @Override
+    public int scanItems(IShoppingCart cart)
+    {
+        if (cart == null)
+        {
+            throw new IllegalArgumentException("cart cannot be null");
+        }
+
+        PricingSnapshot pinned = priceScanner.getSnapshot();
+        if (countProducts(cart) > MAXIMUM_PRODUCT_COUNT)
+        {
+            return priceScanner.scanItems(cart, pinned);
+        }
+
+        CartFingerprint fingerprint = new CartFingerprint(cart);
+
+        ScanResult result;
+        synchronized (results)
+        {
+            if (pinned.getVersion() > version)
+            {
+                results.clear();
+                version = pinned.getVersion();
+            }
+
+            // A scan which pinned an older configuration than the one now remembered cannot reuse its results
+            result = pinned.getVersion() == version ? results.get(fingerprint) : null;
+            if (result != null)
+            {
+                hitCount++;
+            }
+            else
+            {
+                missCount++;
+            }
+        }
+
+        if (result != null)
+        {
+            result.applyRemainders(cart, fingerprint);
+        }
+        else
+        {
+            result = new ScanResult(priceScanner.scanItems(cart, pinned), cart, fingerprint);
+
+            synchronized (results)
+            {
+                if (version == pinned.getVersion())
+                {
+                    results.put(fingerprint, result);
+                }
+            }
+        }
+
+        return result.total;
+    }
+
+    /**
+     * Discard all remembered results.
+     */
+    public void clear()
+    {
+        synchronized (results)
+        {
+            results.clear();
+        }
+    }
+
+    /**
+     * Get the number of results remembered.
+     * @return  Number of results.
+     */
+    public int size()
+    {
+        synchronized (results)
+        {
+            return results.size();
+        }
+    }
+
+    /**
+     * Get the number of scans answered with a remembered result.
+     * @return  Hit count.
+     */
+    public long getHitCount()
+    {
+        synchronized (results)
+        {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Get the number of scans which processed the price rules.
+     * @return  Miss count.
+     */
+    public long getMissCount()
+    {
+        synchronized (results)
+        {
+            return missCount;
+        }
+    }
+
+    private static int countProducts(IShoppingCart cart)
+    {
+        int productCount;
+
+        if (cart instanceof IndexedShoppingCart && !((IndexedShoppingCart) cart).hasUnknownItems())
+        {
+            productCount = ((IndexedShoppingCart) cart).getLineCount();
+        }
+        else if (cart instanceof CharIndexedShoppingCart)
+        {
+            productCount = ((CharIndexedShoppingCart) cart).getProductCount();
+        }
+        else
+        {
+            productCount = cart.getItems().size();
+        }
+
+        return productCount;
+    }
+
+    /**
+     * Total of a scanned cart, with the quantity of each product left in the cart by the scan.
+     */
+    private static class ScanResult
+    {
+        final int total;
+        final int[] remainders;
+
+        ScanResult(int total, IShoppingCart cart, CartFingerprint fingerprint)
+        {
+            this.total = total;
+
+            remainders = new int[fingerprint.getProductCount()];
+            for (int i = 0; i < remainders.length; i++)
+            {
+                remainders[i] = fingerprint.getQuantityIn(cart, i);
+            }
+        }
+
+        void applyRemainders(IShoppingCart cart, CartFingerprint fingerprint)
+        {
+            for (int i = 0; i < remainders.length; i++)
+            {
+                if (remainders[i] != fingerprint.getQuantity(i))
+                {
+                    fingerprint.setQuantityIn(cart, i, remainders[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package supermarket;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task processing one phase of partitionable price rules against a contiguous range of the parts of a cart,
+ * splitting the range in half until it holds a single part.  Each part is a contiguous range of the cart's lines,
+ * copied into a cart of its own so that the rules see only the part's products; the quantities left by the rules are
+ * copied back to the same lines of the whole cart.  Each part's total is written to the partial totals array at the
+ * part's position.
+ */
+@SuppressWarnings("serial")
+class PartitionScanTask extends RecursiveAction
+{
+    private final PriceRuleIndex priceRuleIndex;
+    private final int fromPosition;
+    private final int toPosition;
+    private final IndexedShoppingCart cart;
+    private final IInventoryLookup lookup;
+    private final IScanListener listener;
+    private final int[] partialTotals;
+    private final int start;
+    private final int end;
+
+    /**
+     * Class constructor
+     * @param priceRuleIndex  Index holding the rules to process.  Must be non-null.
+     * @param fromPosition  Position of the first rule of the phase, inclusive.
+     * @param toPosition  Position of the last rule of the phase, exclusive.
+     * @param cart  Shopping cart whose lines are split into parts.  Must be non-null.
+     * @param lookup  Product information finder passed to each rule.  Must be non-null.
+     * @param listener  Listener to notify of each rule processed.  May be null.
+     * @param partialTotals  Array receiving the total of each part.  Its length is the number of parts.  Must be
+     *                       non-null.
+     * @param start  Position of the first part in the range, inclusive.
+     * @param end  Position of the last part in the range, exclusive.
+     */
+    public PartitionScanTask(PriceRuleIndex priceRuleIndex, int fromPosition, int toPosition, IndexedShoppingCart cart,
+                             IInventoryLookup lookup, IScanListener listener, int[] partialTotals, int start, int end)
+    {
+        this.priceRuleIndex = priceRuleIndex;
+        this.fromPosition = fromPosition;
+        this.toPosition = toPosition;
+        this.cart = cart;
+        this.lookup = lookup;
+        this.listener = listener;
+        this.partialTotals = partialTotals;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Process the rules against the parts in the range, forking subtasks when the range holds more than one part.
+     */
+    @Override
+    protected void compute()
+    {
+        if (end - start == 1)
+        {
+            int partCount = partialTotals.length;
+            int fromLine = (int) ((long) cart.getLineCount() * start / partCount);
+            int toLine = (int) ((long) cart.getLineCount() * end / partCount);
+
+            IndexedShoppingCart part = new IndexedShoppingCart(cart.getDictionary());
+            for (int line = fromLine; line < toLine; line++)
+            {
+                part.addItems(cart.getLineProductIndex(line), cart.getLineQuantity(line));
+            }
+
+            partialTotals[start] = priceRuleIndex.process(part, lookup, fromPosition, toPosition, listener);
+
+            // The part's lines were added in the same order as the cart's, and no other task writes to them
+            for (int line = fromLine; line < toLine; line++)
+            {
+                cart.setLineQuantity(line, part.getLineQuantity(line - fromLine));
+            }
+        }
+        else
+        {
+            int middle = (start + end) >>> 1;
+            invokeAll(new PartitionScanTask(priceRuleIndex, fromPosition, toPosition, cart, lookup, listener,
+                            partialTotals, start, middle),
+                    new PartitionScanTask(priceRuleIndex, fromPosition, toPosition, cart, lookup, listener,
+                            partialTotals, middle, end));
+        }
+    }
+}
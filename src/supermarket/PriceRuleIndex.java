@@ -0,0 +1,467 @@
+package supermarket;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Price rules indexed by the products they apply to.  Processing a cart calls only the {@link IProductPriceRule}s for
+ * products the cart holds, along with every rule which does not declare its products, so a checkout against tens of
+ * thousands of per-product promotions costs about the same as one against a handful.  Rules are still called in their
+ * configured order.
+ *
+ * <p>The rules to call are chosen from the cart's contents before any rule is processed.  Rules only ever decrease
+ * item quantities, so a rule whose products are absent at the start of processing can never find them later.</p>
+ *
+ * <p>An {@link IBundlePriceRule} needs every one of its products, so it is filed under just its rarest product: the
+ * one fewest rules apply to.  Thousands of bundles sharing a popular product are then only called for carts which also
+ * hold each bundle's less common products.</p>
+ *
+ * <p>Consecutive {@link IPartitionablePriceRule}s form a phase which can be processed against parts of a cart
+ * concurrently.  Other rules may span parts, so each is processed alone against the whole cart between phases.</p>
+ */
+final class PriceRuleIndex
+{
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final IPriceRule[] priceRules;
+    private final String[] ruleNames;
+    private final int[] generalPositions;
+    private final Map<String, int[]> positionsByProductId;
+    private final int[] phaseEnds;
+    private final boolean[] phasePartitionable;
+
+    /**
+     * Class constructor
+     * @param priceRules  Price rules, in the order in which they are processed.  Must be non-null.
+     */
+    public PriceRuleIndex(List<IPriceRule> priceRules)
+    {
+        this.priceRules = priceRules.toArray(new IPriceRule[priceRules.size()]);
+
+        int[] general = new int[this.priceRules.length];
+        int generalCount = 0;
+        positionsByProductId = new HashMap<String, int[]>();
+
+        Map<String, Integer> ruleCounts = countRulesByProductId(this.priceRules);
+        for (int position = 0; position < this.priceRules.length; position++)
+        {
+            IPriceRule priceRule = this.priceRules[position];
+            if (priceRule instanceof IBundlePriceRule)
+            {
+                addPosition(rarestProductId((IBundlePriceRule) priceRule, ruleCounts), position);
+            }
+            else if (priceRule instanceof IProductPriceRule)
+            {
+                for (String productId : ((IProductPriceRule) priceRule).getProductIds())
+                {
+                    addPosition(productId, position);
+                }
+            }
+            else
+            {
+                general[generalCount++] = position;
+            }
+        }
+
+        generalPositions = Arrays.copyOf(general, generalCount);
+
+        int[] ends = new int[this.priceRules.length];
+        boolean[] partitionable = new boolean[this.priceRules.length];
+        int phaseCount = 0;
+        for (int position = 0; position < this.priceRules.length; position++)
+        {
+            if (!(this.priceRules[position] instanceof IPartitionablePriceRule))
+            {
+                partitionable[phaseCount] = false;
+                ends[phaseCount++] = position + 1;
+            }
+            else if (phaseCount > 0 && partitionable[phaseCount - 1])
+            {
+                ends[phaseCount - 1] = position + 1;
+            }
+            else
+            {
+                partitionable[phaseCount] = true;
+                ends[phaseCount++] = position + 1;
+            }
+        }
+
+        phaseEnds = Arrays.copyOf(ends, phaseCount);
+        phasePartitionable = Arrays.copyOf(partitionable, phaseCount);
+        ruleNames = nameRules(this.priceRules);
+    }
+
+    /**
+     * Process the rules which apply to a cart against it.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.  Quantities of the items claimed by
+     *              the rules will be decremented.
+     * @param lookup  Product information finder passed to each rule.  Must be non-null.
+     * @return  Total cost of the items claimed by the rules.
+     */
+    int process(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        return process(cart, lookup, 0, priceRules.length, null);
+    }
+
+    /**
+     * Process the rules which apply to a cart against it, notifying a listener of each rule processed.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.  Quantities of the items claimed by
+     *              the rules will be decremented.
+     * @param lookup  Product information finder passed to each rule.  Must be non-null.
+     * @param listener  Listener to notify.  May be null, in which case nothing is measured.
+     * @return  Total cost of the items claimed by the rules.
+     */
+    int process(IShoppingCart cart, IInventoryLookup lookup, IScanListener listener)
+    {
+        return process(cart, lookup, 0, priceRules.length, listener);
+    }
+
+    /**
+     * Process the rules which apply to a cart against it, totalling in 64 bits.  Each {@link IExactPriceRule} computes
+     * its own cost in 64 bits.  Any other rule can only return a 32-bit cost, so it fails rather than risk a wrapped
+     * one if it claims items worth more than an int can hold at their unit prices.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.  Quantities of the items claimed by
+     *              the rules will be decremented.
+     * @param lookup  Product information finder passed to each rule.  Must be non-null.
+     * @param listener  Listener to notify of each rule processed.  May be null, in which case nothing is measured.
+     * @return  Total cost of the items claimed by the rules.
+     * @throws ArithmeticException  If a rule which is not an {@link IExactPriceRule} claims items worth more than
+     * {@link Integer#MAX_VALUE}.
+     */
+    long processExact(IShoppingCart cart, IInventoryLookup lookup, IScanListener listener)
+    {
+        return process(cart, lookup, 0, priceRules.length, listener, true);
+    }
+
+    /**
+     * Process the rules which apply to a cart against it, with each phase of partitionable rules processed against
+     * parts of the cart concurrently.
+     * @param cart  Shopping cart containing items to process.  Must be non-null and hold no unknown items.  Quantities
+     *              of the items claimed by the rules will be decremented.
+     * @param lookup  Product information finder passed to each rule.  Must be non-null and safe for concurrent use.
+     * @param pool  Pool on which to process the parts.  Must be non-null.
+     * @param partitionCount  Number of parts into which the cart's lines are split.  Must be 1 or greater.
+     * @param listener  Listener to notify of each rule processed.  May be null, in which case nothing is measured.
+     * @return  Total cost of the items claimed by the rules.
+     */
+    int process(IndexedShoppingCart cart, IInventoryLookup lookup, ForkJoinPool pool, int partitionCount,
+                IScanListener listener)
+    {
+        int total = 0;
+
+        int phaseStart = 0;
+        for (int phase = 0; phase < phaseEnds.length; phase++)
+        {
+            if (phasePartitionable[phase])
+            {
+                int[] partialTotals = new int[partitionCount];
+                pool.invoke(new PartitionScanTask(this, phaseStart, phaseEnds[phase], cart, lookup, listener,
+                        partialTotals, 0, partitionCount));
+
+                for (int partialTotal : partialTotals)
+                {
+                    total += partialTotal;
+                }
+            }
+            else
+            {
+                total += process(cart, lookup, phaseStart, phaseEnds[phase], listener);
+            }
+
+            phaseStart = phaseEnds[phase];
+        }
+
+        return total;
+    }
+
+    /**
+     * Process the rules in a range of positions which apply to a cart against it.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.  Quantities of the items claimed by
+     *              the rules will be decremented.
+     * @param lookup  Product information finder passed to each rule.  Must be non-null.
+     * @param fromPosition  Position of the first rule to process, inclusive.
+     * @param toPosition  Position of the last rule to process, exclusive.
+     * @param listener  Listener to notify of each rule processed.  May be null, in which case nothing is measured.
+     * @return  Total cost of the items claimed by the rules.
+     */
+    int process(IShoppingCart cart, IInventoryLookup lookup, int fromPosition, int toPosition,
+                IScanListener listener)
+    {
+        return (int) process(cart, lookup, fromPosition, toPosition, listener, false);
+    }
+
+    private long process(IShoppingCart cart, IInventoryLookup lookup, int fromPosition, int toPosition,
+                         IScanListener listener, boolean exact)
+    {
+        long total = 0;
+
+        if (positionsByProductId.isEmpty())
+        {
+            for (int position = fromPosition; position < toPosition; position++)
+            {
+                total += processRule(position, cart, lookup, listener, exact);
+            }
+        }
+        else
+        {
+            RuleCollector collector = new RuleCollector(positionsByProductId);
+            cart.forEachItem(collector);
+
+            int[] productPositions = collector.positions;
+            int productCount = collector.count;
+            Arrays.sort(productPositions, 0, productCount);
+
+            // Merge the two ascending position lists; a rule for several products in the cart is collected repeatedly
+            int product = 0;
+            int general = 0;
+            int lastPosition = -1;
+            while (product < productCount || general < generalPositions.length)
+            {
+                int position;
+                if (general == generalPositions.length ||
+                        (product < productCount && productPositions[product] < generalPositions[general]))
+                {
+                    position = productPositions[product++];
+                }
+                else
+                {
+                    position = generalPositions[general++];
+                }
+
+                if (position != lastPosition && position >= fromPosition && position < toPosition)
+                {
+                    total += processRule(position, cart, lookup, listener, exact);
+                }
+                lastPosition = position;
+            }
+        }
+
+        return total;
+    }
+
+    private void addPosition(String productId, int position)
+    {
+        int[] positions = positionsByProductId.get(productId);
+        positions = positions == null ? new int[1] : Arrays.copyOf(positions, positions.length + 1);
+        positions[positions.length - 1] = position;
+        positionsByProductId.put(productId, positions);
+    }
+
+    private static Map<String, Integer> countRulesByProductId(IPriceRule[] priceRules)
+    {
+        Map<String, Integer> ruleCounts = new HashMap<String, Integer>();
+        for (IPriceRule priceRule : priceRules)
+        {
+            if (priceRule instanceof IProductPriceRule)
+            {
+                for (String productId : ((IProductPriceRule) priceRule).getProductIds())
+                {
+                    Integer ruleCount = ruleCounts.get(productId);
+                    ruleCounts.put(productId, ruleCount == null ? 1 : ruleCount + 1);
+                }
+            }
+        }
+
+        return ruleCounts;
+    }
+
+    private static String rarestProductId(IBundlePriceRule priceRule, Map<String, Integer> ruleCounts)
+    {
+        String rarest = null;
+        int rarestCount = Integer.MAX_VALUE;
+        for (String productId : priceRule.getProductIds())
+        {
+            int ruleCount = ruleCounts.get(productId);
+            if (ruleCount < rarestCount)
+            {
+                rarest = productId;
+                rarestCount = ruleCount;
+            }
+        }
+
+        return rarest;
+    }
+
+    private static String[] nameRules(IPriceRule[] priceRules)
+    {
+        String[] names = new String[priceRules.length];
+        Set<String> used = new HashSet<String>();
+        for (int position = 0; position < priceRules.length; position++)
+        {
+            IPriceRule priceRule = priceRules[position];
+            StringBuilder baseName = new StringBuilder(priceRule.getClass().getSimpleName());
+            if (baseName.length() == 0)
+            {
+                baseName.append("PriceRule");
+            }
+
+            if (priceRule instanceof IProductPriceRule)
+            {
+                baseName.append('[');
+                for (String productId : ((IProductPriceRule) priceRule).getProductIds())
+                {
+                    baseName.append(productId).append(',');
+                }
+                baseName.setCharAt(baseName.length() - 1, ']');
+            }
+
+            // Rules of the same class for the same products are told apart by their order in the list
+            String name = baseName.toString();
+            for (int duplicate = 2; !used.add(name); duplicate++)
+            {
+                name = baseName + "#" + duplicate;
+            }
+            names[position] = name;
+        }
+
+        return names;
+    }
+
+    private long processRule(int position, IShoppingCart cart, IInventoryLookup lookup, IScanListener listener,
+                             boolean exact)
+    {
+        IPriceRule priceRule = priceRules[position];
+        boolean checked = exact && !(priceRule instanceof IExactPriceRule);
+        if (listener == null && !checked)
+        {
+            return exact ? ((IExactPriceRule) priceRule).processExact(cart, lookup) : priceRule.process(cart, lookup);
+        }
+
+        CartValuer before = new CartValuer(priceRule, cart, lookup);
+        long start = System.nanoTime();
+        long cost = exact && !checked ?
+                ((IExactPriceRule) priceRule).processExact(cart, lookup) : priceRule.process(cart, lookup);
+        long elapsed = System.nanoTime() - start;
+        CartValuer after = new CartValuer(priceRule, cart, lookup);
+
+        // A 32-bit cost for items worth more than an int holds may have wrapped, and the true cost cannot be recovered
+        long listPriceConsumed = before.listPrice - after.listPrice;
+        if (checked && listPriceConsumed > Integer.MAX_VALUE)
+        {
+            throw new ArithmeticException("Cost of " + ruleNames[position] + " may overflow: claimed items worth " +
+                    listPriceConsumed);
+        }
+
+        if (listener != null)
+        {
+            listener.ruleProcessed(priceRule, ruleNames[position], cost, before.quantity - after.quantity,
+                    listPriceConsumed, elapsed);
+        }
+        return cost;
+    }
+
+    /**
+     * Quantity and value at unit prices of the items in a cart which a rule could claim: those of the rule's products
+     * if it declares them, or otherwise every item.  An indexed cart is valued from its lines and its catalog's unit
+     * prices, without looking each product up.
+     */
+    private static class CartValuer implements IItemVisitor
+    {
+        final IInventoryLookup lookup;
+        long quantity;
+        long listPrice;
+
+        CartValuer(IPriceRule priceRule, IShoppingCart cart, IInventoryLookup lookup)
+        {
+            this.lookup = lookup;
+
+            IProductCatalog catalog = IndexedShoppingCart.getMatchingCatalog(cart, lookup);
+            if (catalog != null)
+            {
+                valueByProductIndex(priceRule, (IndexedShoppingCart) cart, catalog);
+            }
+            else if (priceRule instanceof IProductPriceRule)
+            {
+                for (String productId : ((IProductPriceRule) priceRule).getProductIds())
+                {
+                    visit(productId, cart.getItemQuantity(productId));
+                }
+            }
+            else
+            {
+                cart.forEachItem(this);
+            }
+        }
+
+        @Override
+        public void visit(String productId, int itemQuantity)
+        {
+            if (itemQuantity > 0)
+            {
+                IProduct product = lookup.getProduct(productId);
+                if (product != null)
+                {
+                    quantity += itemQuantity;
+                    listPrice += (long) product.getUnitPrice() * itemQuantity;
+                }
+            }
+        }
+
+        private void valueByProductIndex(IPriceRule priceRule, IndexedShoppingCart cart, IProductCatalog catalog)
+        {
+            // Unknown items are not in the catalog, so are left out here just as the lookup leaves them out by id
+            if (priceRule instanceof IProductPriceRule)
+            {
+                ProductDictionary dictionary = catalog.getDictionary();
+                for (String productId : ((IProductPriceRule) priceRule).getProductIds())
+                {
+                    int productIndex = dictionary.indexOf(productId);
+                    if (productIndex >= 0)
+                    {
+                        int itemQuantity = cart.getQuantity(productIndex);
+                        quantity += itemQuantity;
+                        listPrice += (long) catalog.getUnitPrice(productIndex) * itemQuantity;
+                    }
+                }
+            }
+            else
+            {
+                for (int line = 0; line < cart.getLineCount(); line++)
+                {
+                    int itemQuantity = cart.getLineQuantity(line);
+                    quantity += itemQuantity;
+                    listPrice += (long) catalog.getUnitPrice(cart.getLineProductIndex(line)) * itemQuantity;
+                }
+            }
+        }
+    }
+
+    /**
+     * Visitor collecting the positions of the rules for each product held by a cart.
+     */
+    private static class RuleCollector implements IItemVisitor
+    {
+        final Map<String, int[]> positionsByProductId;
+        int[] positions = NO_POSITIONS;
+        int count;
+
+        RuleCollector(Map<String, int[]> positionsByProductId)
+        {
+            this.positionsByProductId = positionsByProductId;
+        }
+
+        @Override
+        public void visit(String productId, int quantity)
+        {
+            if (quantity > 0)
+            {
+                int[] productPositions = positionsByProductId.get(productId);
+                if (productPositions != null)
+                {
+                    if (count + productPositions.length > positions.length)
+                    {
+                        positions = Arrays.copyOf(positions, Math.max(count + productPositions.length, count * 2));
+                    }
+
+                    System.arraycopy(productPositions, 0, positions, count, productPositions.length);
+                    count += productPositions.length;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package supermarket;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative price rules file, so that promotions can be changed without rebuilding the program.
+ *
+ * <p>Each line of the file declares one price rule, as a rule type followed by its arguments, separated by spaces or
+ * tabs.  Rules are processed in the order they are declared.  Blank lines are skipped, as is everything from a
+ * {@code #} to the end of a line.  The rule types are:</p>
+ * <ul>
+ *     <li>{@code XForThePriceOfY <productId> <totalQuantity> <paidQuantity>}: an {@link XForThePriceOfYPriceRule}.
+ *     For example, {@code XForThePriceOfY B 5 3} sells five B for the price of three.</li>
+ *     <li>{@code Bundle <bundlePrice> <productId>[*<quantity>]...}: a {@link BundlePriceRule}, with a quantity of 1
+ *     for any product given without one.  For example, {@code Bundle 90 A*2 B} sells two A and one B for 90.</li>
+ *     <li>{@code BaseUnitPrice}: a {@link BaseUnitPriceRule}, charging the unit price of every item left.</li>
+ * </ul>
+ * <p>A file is parsed and every rule constructed before any is returned, so a file with any error yields no rules at
+ * all.</p>
+ */
+final class PriceRulesFile
+{
+    static final String X_FOR_THE_PRICE_OF_Y = "XForThePriceOfY";
+    static final String BUNDLE = "Bundle";
+    static final String BASE_UNIT_PRICE = "BaseUnitPrice";
+
+    private static final Charset RULES_CHARSET = Charset.forName("UTF-8");
+
+    private PriceRulesFile()
+    {
+    }
+
+    /**
+     * Load the price rules declared in a file.
+     * @param file  File to load.  Value cannot be null.
+     * @return  Price rules, in declared order.  Will have at least one element.
+     * @throws IOException  If the file cannot be read, or does not declare a valid, non-empty list of rules.
+     */
+    public static List<IPriceRule> load(File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        Reader reader = new InputStreamReader(new FileInputStream(file), RULES_CHARSET.newDecoder());
+        try
+        {
+            return parse(reader, file.getPath());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parse the price rules declared by a reader.
+     * @param rules  Reader supplying the rules.  Value cannot be null.  The reader is read to the end but is not
+     *               closed.
+     * @param sourceName  Name of the source of the rules, used in error messages.  Value cannot be null.
+     * @return  Price rules, in declared order.  Will have at least one element.
+     * @throws IOException  If the reader fails, or does not declare a valid, non-empty list of rules.
+     */
+    public static List<IPriceRule> parse(Reader rules, String sourceName) throws IOException
+    {
+        if (rules == null)
+        {
+            throw new IllegalArgumentException("rules cannot be null");
+        }
+
+        if (sourceName == null)
+        {
+            throw new IllegalArgumentException("sourceName cannot be null");
+        }
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        BufferedReader lines = new BufferedReader(rules);
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null)
+        {
+            lineNumber++;
+
+            int comment = line.indexOf('#');
+            String[] tokens = (comment >= 0 ? line.substring(0, comment) : line).trim().split("[ \t]+");
+            if (!tokens[0].isEmpty())
+            {
+                try
+                {
+                    priceRules.add(parseRule(tokens));
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    throw new IOException(sourceName + " line " + lineNumber + ": " + iae.getMessage(), iae);
+                }
+            }
+        }
+
+        if (priceRules.isEmpty())
+        {
+            throw new IOException(sourceName + ": no price rules declared");
+        }
+
+        return priceRules;
+    }
+
+    private static IPriceRule parseRule(String[] tokens)
+    {
+        String ruleType = tokens[0];
+        if (X_FOR_THE_PRICE_OF_Y.equals(ruleType))
+        {
+            expectArguments(tokens, "<productId> <totalQuantity> <paidQuantity>");
+            return new XForThePriceOfYPriceRule(tokens[1], parseQuantity(tokens[2]), parseQuantity(tokens[3]));
+        }
+
+        if (BUNDLE.equals(ruleType))
+        {
+            return parseBundle(tokens);
+        }
+
+        if (BASE_UNIT_PRICE.equals(ruleType))
+        {
+            expectArguments(tokens, "");
+            return new BaseUnitPriceRule();
+        }
+
+        throw new IllegalArgumentException("unknown rule type " + ruleType);
+    }
+
+    private static IPriceRule parseBundle(String[] tokens)
+    {
+        if (tokens.length < 3)
+        {
+            throw new IllegalArgumentException("expected " + BUNDLE + " <bundlePrice> <productId>[*<quantity>]...");
+        }
+
+        Map<String, Integer> componentQuantities = new LinkedHashMap<String, Integer>();
+        for (int i = 2; i < tokens.length; i++)
+        {
+            int separator = tokens[i].lastIndexOf('*');
+            String productId = separator >= 0 ? tokens[i].substring(0, separator) : tokens[i];
+            int quantity = separator >= 0 ? parseQuantity(tokens[i].substring(separator + 1)) : 1;
+
+            if (componentQuantities.put(productId, quantity) != null)
+            {
+                throw new IllegalArgumentException("product " + productId + " repeated in bundle");
+            }
+        }
+
+        return new BundlePriceRule(componentQuantities, parseQuantity(tokens[1]));
+    }
+
+    private static void expectArguments(String[] tokens, String usage)
+    {
+        int expected = usage.isEmpty() ? 0 : usage.split(" ").length;
+        if (tokens.length - 1 != expected)
+        {
+            throw new IllegalArgumentException("expected " + (tokens[0] + " " + usage).trim());
+        }
+    }
+
+    private static int parseQuantity(String token)
+    {
+        try
+        {
+            return Integer.parseInt(token);
+        }
+        catch (NumberFormatException nfe)
+        {
+            throw new IllegalArgumentException("quantity " + token + " is not an integer");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package supermarket;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watcher reloading a scanner's price rules whenever its {@link PriceRulesFile} changes.  A changed file is loaded,
+ * validated and, if the scanner was using a compiled plan, compiled on the watcher's own thread; only then is the new
+ * configuration swapped into the scanner in one step, so checkouts never wait for a reload and never see part of one.
+ * A file which cannot be loaded leaves the scanner's rules as they were, and the error is kept for
+ * {@link #getLastError()}.
+ *
+ * <p>Changes are noticed through the file system's watch service on the file's directory, so replacing the file by
+ * renaming another over it is noticed as well as writing it in place.  Bursts of changes, such as an editor's save,
+ * are reloaded once, after no change has been seen for {@link #SETTLE_MILLIS}.</p>
+ */
+class PriceRulesWatcher
+{
+    static final long SETTLE_MILLIS = 50;
+
+    private final PriceScanner priceScanner;
+    private final File file;
+    private final WatchService watchService;
+    private final Object reloadLock = new Object();
+    private Thread thread;
+    private volatile IOException lastError;
+    private volatile long reloadCount;
+
+    /**
+     * Class constructor
+     * @param priceScanner  Scanner whose price rules are reloaded.  Value cannot be null.
+     * @param file  Price rules file to watch.  Value cannot be null.
+     * @throws IOException  If the file's directory cannot be watched.
+     */
+    public PriceRulesWatcher(PriceScanner priceScanner, File file) throws IOException
+    {
+        if (priceScanner == null)
+        {
+            throw new IllegalArgumentException("priceScanner cannot be null");
+        }
+
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        this.priceScanner = priceScanner;
+        this.file = file.getAbsoluteFile();
+
+        watchService = FileSystems.getDefault().newWatchService();
+        try
+        {
+            this.file.getParentFile().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException ioe)
+        {
+            watchService.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Start watching the file on a daemon thread of the watcher's own.
+     */
+    public synchronized void start()
+    {
+        if (thread != null)
+        {
+            throw new IllegalStateException("watcher already started");
+        }
+
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                watch();
+            }
+        }, "price-rules-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching the file, waiting for a reload in progress to finish.
+     */
+    public synchronized void stop()
+    {
+        try
+        {
+            watchService.close();
+        }
+        catch (IOException ioe)
+        {
+            // Nothing more can be done while shutting down
+        }
+
+        if (thread != null)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Load the file and, if it is valid, swap its price rules into the scanner.
+     * @return  True if the rules were swapped in.  Otherwise, false, with the error available from
+     * {@link #getLastError()}.
+     */
+    public boolean reload()
+    {
+        // Reloads are made one at a time, so an older version of the file is never swapped in after a newer one
+        synchronized (reloadLock)
+        {
+            try
+            {
+                List<IPriceRule> priceRules = PriceRulesFile.load(file);
+
+                boolean compiled = priceScanner.getSnapshot().getPricingPlan() != null;
+                priceScanner.setPriceRules(priceRules, compiled);
+                reloadCount++;
+
+                lastError = null;
+                return true;
+            }
+            catch (IOException ioe)
+            {
+                lastError = ioe;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Get the error from the last reload.
+     * @return  Error, if the last reload failed.  Otherwise, null.
+     */
+    public IOException getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * Get the number of times price rules have been swapped into the scanner.
+     * @return  Number of successful reloads.
+     */
+    public long getReloadCount()
+    {
+        return reloadCount;
+    }
+
+    private void watch()
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = watchService.take();
+                boolean changed = drainEvents(key);
+
+                // Wait for the burst of changes to end, so a file being written is not loaded half way through
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                {
+                    changed |= drainEvents(key);
+                }
+
+                if (changed)
+                {
+                    reload();
+                }
+            }
+        }
+        catch (ClosedWatchServiceException cwse)
+        {
+            // The watcher has been stopped
+        }
+        catch (InterruptedException ie)
+        {
+            // Nothing is waiting for the watcher's own thread, so it just finishes
+        }
+    }
+
+    private boolean drainEvents(WatchKey key)
+    {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            Object context = event.context();
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                    (context instanceof Path && context.toString().equals(file.getName()));
+        }
+        key.reset();
+
+        return changed;
+    }
+}
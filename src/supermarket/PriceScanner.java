@@ -1,14 +1,25 @@
 package supermarket;
 
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Scan shopping cart items to compute a total price.
+ * Scan shopping cart items to compute a total price.  The scanner's configuration is held in an immutable
+ * {@link PricingSnapshot} which is replaced with a single atomic swap whenever the price rules or the inventory's
+ * products change.  Each scan pins one snapshot, so scans never lock and are never affected by a concurrent update.
+ * Rules which declare their products through {@link IProductPriceRule} are only processed against carts holding those
+ * products.
  */
 class PriceScanner implements IPriceScanner, IInventoryLookup
 {
-    private IInventoryLookup inventory;
-    private Iterable<IPriceRule> priceRules;
+    static final int MINIMUM_PARTITION_LINES = 4096;
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final IInventoryLookup inventory;
+    private final AtomicReference<PricingSnapshot> snapshot;
+    private volatile IScanListener scanListener;
+    private volatile boolean optimalPricing;
 
     /**
      * Class constructor.
@@ -22,30 +33,110 @@ class PriceScanner implements IPriceScanner, IInventoryLookup
             throw new IllegalArgumentException("inventory cannot be null");
         }
 
-        this.inventory = inventory;
+        validatePriceRules(priceRules);
 
-        setPriceRules(priceRules);
+        this.inventory = inventory;
+        snapshot = new AtomicReference<PricingSnapshot>(new PricingSnapshot(1, pinInventory(), priceRules, null));
     }
 
     /**
      * Set the price rules which can be used by the scanner.  Price rules previously in use will be purged from the
-     * scanner before the new price rules are added.
+     * scanner before the new price rules are added.  Any compiled pricing plan is discarded; call {@link #compile()}
+     * again to compile the new price rules.  Scans already in progress finish with the previous price rules.
      * @param priceRules  Price rules to seed into the scanner.  Must be non-null and have at least one element.
      */
     public void setPriceRules(Iterable<IPriceRule> priceRules)
     {
-        if (priceRules == null)
+        setPriceRules(priceRules, false);
+    }
+
+    /**
+     * Set the price rules which can be used by the scanner, optionally compiling them first.  The new price rules,
+     * their index and, if compiled, their plan are all built before being published together, so scans go straight
+     * from the previous configuration to the new one.  Scans already in progress finish with the previous price rules.
+     * @param priceRules  Price rules to seed into the scanner.  Must be non-null and have at least one element.
+     * @param compile  True to compile the price rules as by {@link #compile()}.  Otherwise, false.
+     * @return  True if a plan was compiled and will be used to scan items.  Otherwise, false.
+     */
+    public boolean setPriceRules(Iterable<IPriceRule> priceRules, boolean compile)
+    {
+        validatePriceRules(priceRules);
+
+        PricingSnapshot current;
+        PricingSnapshot updated;
+        do
         {
-            throw new IllegalArgumentException("priceRules cannot be null");
+            current = snapshot.get();
+            IInventoryLookup pinnedInventory = pinInventory();
+
+            PricingPlan plan = null;
+            if (compile && pinnedInventory instanceof IProductCatalog)
+            {
+                plan = PricingPlan.compile((IProductCatalog) pinnedInventory, priceRules, optimalPricing);
+            }
+
+            updated = new PricingSnapshot(current.getVersion() + 1, pinnedInventory, priceRules, plan);
         }
+        while (!snapshot.compareAndSet(current, updated));
 
-        Iterator<IPriceRule> priceRuleIterator = priceRules.iterator();
-        if (priceRuleIterator == null || !priceRuleIterator.hasNext())
+        return updated.getPricingPlan() != null;
+    }
+
+    /**
+     * Compile the inventory and price rules into a per-product pricing plan, so that scanning a cart becomes a single
+     * pass over its items rather than a call into every price rule.  Compilation only succeeds when the inventory is
+     * an {@link IProductCatalog} and every price rule is an {@link ICompilablePriceRule}; otherwise the scanner keeps
+     * processing each price rule in turn.  If the inventory's products change after compilation, the scanner goes back
+     * to processing each price rule until this is called again.
+     * @return  True if the plan was compiled and will be used to scan items.  Otherwise, false.
+     */
+    public boolean compile()
+    {
+        PricingPlan plan;
+        PricingSnapshot current;
+        do
         {
-            throw new IllegalArgumentException("priceRules must have at least one element");
+            current = getSnapshot();
+            plan = null;
+
+            if (current.getInventory() instanceof IProductCatalog)
+            {
+                plan = PricingPlan.compile((IProductCatalog) current.getInventory(), current.getPriceRules(),
+                        optimalPricing);
+            }
+        }
+        while (plan != null &&
+                !snapshot.compareAndSet(current, current.withInventory(current.getInventory(), plan)));
+
+        return plan != null;
+    }
+
+    /**
+     * Get the scanner's current configuration.  If the inventory's products have changed since the last snapshot was
+     * published, a snapshot holding the new products, and no compiled plan, is published first.
+     * @return  Current snapshot.  Will be non-null.
+     */
+    public PricingSnapshot getSnapshot()
+    {
+        PricingSnapshot current = snapshot.get();
+
+        // The inventory is pinned after reading the snapshot, so a newer inventory is never replaced by an older one
+        IInventoryLookup pinnedInventory = pinInventory();
+        while (current.getInventory() != pinnedInventory)
+        {
+            PricingSnapshot refreshed = current.withInventory(pinnedInventory, null);
+            if (snapshot.compareAndSet(current, refreshed))
+            {
+                current = refreshed;
+            }
+            else
+            {
+                current = snapshot.get();
+                pinnedInventory = pinInventory();
+            }
         }
 
-        this.priceRules = priceRules;
+        return current;
     }
 
     /**
@@ -56,22 +147,167 @@ class PriceScanner implements IPriceScanner, IInventoryLookup
      */
     @Override
     public int scanItems(IShoppingCart cart)
+    {
+        return scanItems(cart, getSnapshot());
+    }
+
+    /**
+     * Scan the items in a shopping cart, with a 64-bit total so that wholesale quantities cannot overflow it.  An
+     * {@link IndexedShoppingCart} keyed by the dictionary of a compiled plan is priced by a dense loop over its lines.
+     * Uncompiled price rules are totalled in 64 bits too, each {@link IExactPriceRule} computing its own cost in 64
+     * bits.
+     * @param cart  Shopping cart to scan.  Must be non-null.  On return, items successfully scanned will be removed
+     *              from the cart (signified by the item quantity being decremented).
+     * @return  Total cost of the items in the cart.
+     * @throws ArithmeticException  If a price rule which is not an {@link IExactPriceRule} claims items worth more
+     * than {@link Integer#MAX_VALUE}, so that its 32-bit cost may have overflowed.
+     */
+    public long scanItemsExact(IShoppingCart cart)
+    {
+        return scanItems(cart, getSnapshot(), true);
+    }
+
+    /**
+     * Scan the items in a large shopping cart, splitting it by product so that price rules are processed against the
+     * parts concurrently.  Only an {@link IndexedShoppingCart} holding no unknown items and at least twice
+     * {@link #MINIMUM_PARTITION_LINES} distinct products is split, and only runs of consecutive
+     * {@link IPartitionablePriceRule}s are processed concurrently; other rules are processed against the whole cart
+     * between them.  A compiled plan prices the cart in a single pass as usual.  The total is the same as that of
+     * {@link #scanItems(IShoppingCart)}.
+     * @param cart  Shopping cart to scan.  Must be non-null.  On return, items successfully scanned will be removed
+     *              from the cart (signified by the item quantity being decremented).
+     * @param pool  Pool on which to process the parts of the cart.  Must be non-null.  The scanner's inventory is
+     *              looked up from the pool's threads, so must be safe for concurrent use.
+     * @return  Total cost of the items in the cart.
+     */
+    public int scanItems(IShoppingCart cart, ForkJoinPool pool)
+    {
+        if (cart == null)
+        {
+            throw new IllegalArgumentException("cart cannot be null");
+        }
+
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+
+        PricingSnapshot pinned = getSnapshot();
+
+        int partitionCount = 0;
+        if (pinned.getPricingPlan() == null && cart instanceof IndexedShoppingCart &&
+                !((IndexedShoppingCart) cart).hasUnknownItems())
+        {
+            partitionCount = Math.min(pool.getParallelism() * PARTITIONS_PER_THREAD,
+                    ((IndexedShoppingCart) cart).getLineCount() / MINIMUM_PARTITION_LINES);
+        }
+
+        int total;
+        if (partitionCount > 1)
+        {
+            IScanListener listener = scanListener;
+            long start = listener != null ? System.nanoTime() : 0;
+
+            IInventoryLookup lookup = pinned.getInventory() instanceof IProductCatalog ? pinned.getInventory() : this;
+            total = pinned.getPriceRuleIndex().process((IndexedShoppingCart) cart, lookup, pool, partitionCount,
+                    listener);
+
+            if (listener != null)
+            {
+                listener.scanCompleted(total, System.nanoTime() - start);
+            }
+        }
+        else
+        {
+            total = scanItems(cart, pinned);
+        }
+
+        return total;
+    }
+
+    /**
+     * Scan the items in a shopping cart with a particular configuration.
+     * @param cart  Shopping cart to scan.  Must be non-null.  On return, items successfully scanned will be removed
+     *              from the cart (signified by the item quantity being decremented).
+     * @param pinned  Configuration to scan with, obtained from {@link #getSnapshot()}.  Must be non-null.
+     * @return  Total cost of the items in the cart.
+     */
+    int scanItems(IShoppingCart cart, PricingSnapshot pinned)
+    {
+        return (int) scanItems(cart, pinned, false);
+    }
+
+    private long scanItems(IShoppingCart cart, PricingSnapshot pinned, boolean exact)
     {
         if (cart == null)
         {
             throw new IllegalArgumentException("cart cannot be null");
         }
 
-        int total = 0;
+        if (pinned == null)
+        {
+            throw new IllegalArgumentException("pinned cannot be null");
+        }
+
+        long total;
+
+        IScanListener listener = scanListener;
+        long start = listener != null ? System.nanoTime() : 0;
 
-        for (IPriceRule priceRule : priceRules)
+        PricingPlan plan = pinned.getPricingPlan();
+        if (plan != null)
         {
-            total += priceRule.process(cart, this);
+            total = exact ? plan.priceExact(cart) : plan.price(cart);
+        }
+        else
+        {
+            // Rules are handed a product catalog directly so that they can work on product indexes
+            IInventoryLookup lookup = pinned.getInventory() instanceof IProductCatalog ? pinned.getInventory() : this;
+
+            PriceRuleIndex priceRuleIndex = pinned.getPriceRuleIndex();
+            total = exact ? priceRuleIndex.processExact(cart, lookup, listener) :
+                    priceRuleIndex.process(cart, lookup, listener);
+        }
+
+        if (listener != null)
+        {
+            listener.scanCompleted(total, System.nanoTime() - start);
         }
 
         return total;
     }
 
+    /**
+     * Set the listener notified of each scan and of each price rule processed, such as {@link CheckoutMetrics}.  Scans
+     * already in progress may finish with the previous listener.  To notify several listeners, such as metrics and a
+     * {@link CheckoutEventRecorder} together, install a {@link CompositeScanListener}.
+     * @param scanListener  Listener to notify.  May be null, in which case scans are not measured at all.
+     */
+    public void setScanListener(IScanListener scanListener)
+    {
+        this.scanListener = scanListener;
+    }
+
+    /**
+     * Set whether compiled plans price each product's bulk deals as their cheapest combination, so that a customer is
+     * never charged more than necessary when promotions for the same product overlap.  Takes effect the next time
+     * price rules are compiled.  Price rules which cannot be compiled are always processed in order.
+     * @param optimalPricing  True to pick the cheapest combination of bulk deals.  False to apply them in rule order.
+     */
+    public void setOptimalPricing(boolean optimalPricing)
+    {
+        this.optimalPricing = optimalPricing;
+    }
+
+    /**
+     * Get whether compiled plans price each product's bulk deals as their cheapest combination.
+     * @return  True if optimal pricing is set.  Otherwise, false.
+     */
+    public boolean isOptimalPricing()
+    {
+        return optimalPricing;
+    }
+
     /**
      * Get the product whose id matches the supplied parameter.
      * @param id  Id of the product to get.  Must be non-null and non-empty.
@@ -92,4 +328,23 @@ class PriceScanner implements IPriceScanner, IInventoryLookup
 
         return inventory.getProduct(id);
     }
+
+    private IInventoryLookup pinInventory()
+    {
+        return inventory instanceof Inventory ? ((Inventory) inventory).getCatalog() : inventory;
+    }
+
+    private static void validatePriceRules(Iterable<IPriceRule> priceRules)
+    {
+        if (priceRules == null)
+        {
+            throw new IllegalArgumentException("priceRules cannot be null");
+        }
+
+        Iterator<IPriceRule> priceRuleIterator = priceRules.iterator();
+        if (priceRuleIterator == null || !priceRuleIterator.hasNext())
+        {
+            throw new IllegalArgumentException("priceRules must have at least one element");
+        }
+    }
 }
\ No newline at end of file
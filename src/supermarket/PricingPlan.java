@@ -0,0 +1,310 @@
+package supermarket;
+
+import java.util.Arrays;
+
+/**
+ * Per-product pricing table compiled from a product catalog and an ordered list of price rules.  Pricing a cart
+ * against the plan is a single pass over the cart's items, with no rule calls.  The plan is keyed by the product
+ * indexes of the catalog's dictionary at compile time, so the catalog must not change while the plan is in use.
+ *
+ * <p>An optimal plan prices each product's bulk deals as the cheapest combination of them, rather than applying them
+ * in rule order, so that overlapping promotions never charge more than the best the customer could have asked for.</p>
+ */
+class PricingPlan
+{
+    private final IProductCatalog catalog;
+    private final ProductDictionary dictionary;
+    private final ProductIndexMap pricingMap;
+    private final boolean optimal;
+    private ProductPricing[] productPricings;
+    private boolean remainderCharged;
+
+    /**
+     * Class constructor for a plan applying bulk deals in rule order
+     * @param catalog  Catalog of the products which may be priced by the plan.  Must be non-null.
+     */
+    public PricingPlan(IProductCatalog catalog)
+    {
+        this(catalog, false);
+    }
+
+    /**
+     * Class constructor
+     * @param catalog  Catalog of the products which may be priced by the plan.  Must be non-null.
+     * @param optimal  True to price each product's bulk deals as their cheapest combination.  False to apply them in
+     *                 rule order.
+     */
+    public PricingPlan(IProductCatalog catalog, boolean optimal)
+    {
+        if (catalog == null)
+        {
+            throw new IllegalArgumentException("catalog cannot be null");
+        }
+
+        this.catalog = catalog;
+        dictionary = catalog.getDictionary();
+        pricingMap = new ProductIndexMap();
+        this.optimal = optimal;
+        productPricings = new ProductPricing[0];
+    }
+
+    /**
+     * Compile a product catalog and price rules into a plan.
+     * @param catalog  Catalog of the products which may be priced by the plan.  Must be non-null.
+     * @param priceRules  Price rules, in the order in which they are processed.  Must be non-null.
+     * @return  Compiled plan, if every price rule is an {@link ICompilablePriceRule}.  Otherwise, null.
+     */
+    static PricingPlan compile(IProductCatalog catalog, Iterable<IPriceRule> priceRules)
+    {
+        return compile(catalog, priceRules, false);
+    }
+
+    /**
+     * Compile a product catalog and price rules into a plan.
+     * @param catalog  Catalog of the products which may be priced by the plan.  Must be non-null.
+     * @param priceRules  Price rules, in the order in which they are processed.  Must be non-null.
+     * @param optimal  True to price each product's bulk deals as their cheapest combination.  False to apply them in
+     *                 rule order.
+     * @return  Compiled plan, if every price rule is an {@link ICompilablePriceRule}.  Otherwise, null.
+     */
+    static PricingPlan compile(IProductCatalog catalog, Iterable<IPriceRule> priceRules, boolean optimal)
+    {
+        PricingPlan plan = new PricingPlan(catalog, optimal);
+
+        for (IPriceRule priceRule : priceRules)
+        {
+            if (!(priceRule instanceof ICompilablePriceRule))
+            {
+                return null;
+            }
+
+            ((ICompilablePriceRule) priceRule).compileInto(plan);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Add a bulk deal for a product after any deals previously added for it.  Ignored if the product is not in the
+     * catalog, matching a rule which finds no product in inventory, or once the remainder is charged, since no
+     * quantity is left for later deals to claim.
+     * @param productId  Id of the product.  Must be non-null and non-empty.
+     * @param totalQuantity  Quantity claimed by one application of the deal.  Must be 1 or greater.
+     * @param paidQuantity  Quantity paid for at unit price by one application of the deal.
+     */
+    void addBulkDeal(String productId, int totalQuantity, int paidQuantity)
+    {
+        int productIndex = dictionary.indexOf(productId);
+        if (productIndex >= 0 && !remainderCharged)
+        {
+            int position = pricingMap.get(productIndex);
+            if (position < 0)
+            {
+                position = productPricings.length;
+                productPricings = Arrays.copyOf(productPricings, position + 1);
+                productPricings[position] = new ProductPricing(optimal);
+                pricingMap.put(productIndex, position);
+            }
+
+            productPricings[position].addBulkDeal(totalQuantity, paidQuantity);
+        }
+    }
+
+    /**
+     * Charge whatever quantity of each product is left after its bulk deals at the product's unit price.
+     */
+    void chargeRemainder()
+    {
+        remainderCharged = true;
+    }
+
+    /**
+     * Price the items in a shopping cart.
+     * @param cart  Shopping cart to price.  Must be non-null.  On return, the quantity of each item claimed by the plan
+     *              will have been decremented, as if the compiled rules had been processed against the cart.
+     * @return  Total cost of the items claimed by the plan.
+     */
+    int price(IShoppingCart cart)
+    {
+        return (int) total(cart);
+    }
+
+    private long total(IShoppingCart cart)
+    {
+        long total = 0;
+
+        if (cart instanceof IndexedShoppingCart && ((IndexedShoppingCart) cart).getDictionary() == dictionary)
+        {
+            IndexedShoppingCart indexedCart = (IndexedShoppingCart) cart;
+
+            int lineCount = indexedCart.getLineCount();
+            for (int line = 0; line < lineCount; line++)
+            {
+                int quantity = indexedCart.getLineQuantity(line);
+                if (quantity > 0)
+                {
+                    int productIndex = indexedCart.getLineProductIndex(line);
+                    total += priceExact(productIndex, quantity);
+                    indexedCart.setLineQuantity(line, remainder(productIndex, quantity));
+                }
+            }
+        }
+        else if (cart instanceof CharIndexedShoppingCart)
+        {
+            CharIndexedShoppingCart charCart = (CharIndexedShoppingCart) cart;
+
+            int productCount = charCart.getProductCount();
+            for (int i = 0; i < productCount; i++)
+            {
+                char id = charCart.getProductId(i);
+                int quantity = charCart.getQuantity(id);
+                int productIndex = dictionary.indexOf(id);
+                if (quantity > 0 && productIndex >= 0)
+                {
+                    total += priceExact(productIndex, quantity);
+                    charCart.setQuantity(id, remainder(productIndex, quantity));
+                }
+            }
+        }
+        else
+        {
+            for (IItem item : cart.getItems())
+            {
+                int quantity = item.getQuantity();
+                int productIndex = dictionary.indexOf(item.getProductId());
+                if (quantity > 0 && productIndex >= 0)
+                {
+                    total += priceExact(productIndex, quantity);
+
+                    int remainder = remainder(productIndex, quantity);
+                    if (remainder != quantity)
+                    {
+                        cart.setItemQuantity(item.getProductId(), remainder);
+                    }
+                }
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Price the items in a shopping cart with a 64-bit total so that large quantities cannot overflow it.  A cart keyed
+     * by the plan's dictionary has each line reduced to a unit price and a quantity paid for at that price, and the
+     * lines are then totalled by {@link DensePricingKernel}.
+     * @param cart  Shopping cart to price.  Must be non-null.  On return, the quantity of each item claimed by the plan
+     *              will have been decremented, as by {@link #price(IShoppingCart)}.
+     * @return  Total cost of the items claimed by the plan.
+     */
+    long priceExact(IShoppingCart cart)
+    {
+        if (!(cart instanceof IndexedShoppingCart) || ((IndexedShoppingCart) cart).getDictionary() != dictionary)
+        {
+            return total(cart);
+        }
+
+        return priceLines((IndexedShoppingCart) cart);
+    }
+
+    private long priceLines(IndexedShoppingCart cart)
+    {
+        int lineCount = cart.getLineCount();
+        int[] unitPrices = new int[lineCount];
+        int[] paidQuantities = new int[lineCount];
+
+        for (int line = 0; line < lineCount; line++)
+        {
+            int quantity = cart.getLineQuantity(line);
+            if (quantity > 0)
+            {
+                int productIndex = cart.getLineProductIndex(line);
+                int paid = 0;
+                int remaining = quantity;
+
+                int position = pricingMap.get(productIndex);
+                if (position >= 0)
+                {
+                    paid = productPricings[position].paidQuantity(quantity);
+                    remaining = productPricings[position].remainder(quantity);
+                }
+
+                if (remainderCharged)
+                {
+                    paid += remaining;
+                    remaining = 0;
+                }
+
+                unitPrices[line] = catalog.getUnitPrice(productIndex);
+                paidQuantities[line] = paid;
+                cart.setLineQuantity(line, remaining);
+            }
+        }
+
+        return DensePricingKernel.total(unitPrices, paidQuantities, lineCount);
+    }
+
+    /**
+     * Get whether the plan prices each product's bulk deals as their cheapest combination.
+     * @return  True if the plan is optimal.  False if it applies bulk deals in rule order.
+     */
+    boolean isOptimal()
+    {
+        return optimal;
+    }
+
+    /**
+     * Get the dictionary whose product indexes key the plan.
+     * @return  Product dictionary.
+     */
+    ProductDictionary getDictionary()
+    {
+        return dictionary;
+    }
+
+    /**
+     * Price a quantity of one product.  Products are priced independently of each other, so the total for a cart is
+     * the sum of this over its products.
+     * @param productIndex  Index of the product in the plan's dictionary.  Must be non-negative and less than the size
+     *                      of the dictionary.
+     * @param quantity  Quantity of the product.  Must be non-negative.
+     * @return  Cost of the quantity claimed by the plan.
+     */
+    int price(int productIndex, int quantity)
+    {
+        return (int) priceExact(productIndex, quantity);
+    }
+
+    private long priceExact(int productIndex, int quantity)
+    {
+        int paid = 0;
+        int remaining = quantity;
+
+        int position = pricingMap.get(productIndex);
+        if (position >= 0)
+        {
+            ProductPricing pricing = productPricings[position];
+            paid = pricing.paidQuantity(quantity);
+            remaining = pricing.remainder(quantity);
+        }
+
+        if (remainderCharged)
+        {
+            paid += remaining;
+        }
+
+        return (long) paid * catalog.getUnitPrice(productIndex);
+    }
+
+    private int remainder(int productIndex, int quantity)
+    {
+        int remaining = 0;
+
+        if (!remainderCharged)
+        {
+            int position = pricingMap.get(productIndex);
+            remaining = position >= 0 ? productPricings[position].remainder(quantity) : quantity;
+        }
+
+        return remaining;
+    }
+}
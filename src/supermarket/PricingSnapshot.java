@@ -0,0 +1,112 @@
+package supermarket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable pricing configuration: the products, the price rules and, if compiled, the pricing plan in effect for a
+ * checkout.  A price scanner publishes a new snapshot whenever its configuration changes and pins one snapshot for
+ * each scan, so a scan never sees a mix of old and new configuration.
+ */
+final class PricingSnapshot
+{
+    private final long version;
+    private final IInventoryLookup inventory;
+    private final List<IPriceRule> priceRules;
+    private final PriceRuleIndex priceRuleIndex;
+    private final PricingPlan pricingPlan;
+
+    /**
+     * Class constructor
+     * @param version  Version of the configuration.  Versions increase with each snapshot published by a scanner.
+     * @param inventory  Product information finder.  Must be non-null and must not change while the snapshot is in
+     *                   use.
+     * @param priceRules  Price rules, in the order in which they are processed.  Must be non-null and have at least one
+     *                    element.  The rules are copied.
+     * @param pricingPlan  Plan compiled from the inventory and price rules.  May be null if not compiled.
+     */
+    public PricingSnapshot(long version, IInventoryLookup inventory, Iterable<IPriceRule> priceRules,
+                           PricingPlan pricingPlan)
+    {
+        List<IPriceRule> priceRuleList = new ArrayList<IPriceRule>();
+        for (IPriceRule priceRule : priceRules)
+        {
+            priceRuleList.add(priceRule);
+        }
+
+        this.version = version;
+        this.inventory = inventory;
+        this.priceRules = Collections.unmodifiableList(priceRuleList);
+        this.priceRuleIndex = new PriceRuleIndex(priceRuleList);
+        this.pricingPlan = pricingPlan;
+    }
+
+    private PricingSnapshot(long version, IInventoryLookup inventory, PricingSnapshot rulesFrom,
+                            PricingPlan pricingPlan)
+    {
+        this.version = version;
+        this.inventory = inventory;
+        this.priceRules = rulesFrom.priceRules;
+        this.priceRuleIndex = rulesFrom.priceRuleIndex;
+        this.pricingPlan = pricingPlan;
+    }
+
+    /**
+     * Create the next version of this configuration, keeping its price rules but replacing its products and plan.  The
+     * price rules are not copied or indexed again.
+     * @param inventory  Product information finder.  Must be non-null and must not change while the snapshot is in
+     *                   use.
+     * @param pricingPlan  Plan compiled from the inventory and price rules.  May be null if not compiled.
+     * @return  New snapshot, one version later than this one.
+     */
+    PricingSnapshot withInventory(IInventoryLookup inventory, PricingPlan pricingPlan)
+    {
+        return new PricingSnapshot(version + 1, inventory, this, pricingPlan);
+    }
+
+    /**
+     * Get the version of the configuration.
+     * @return  Version.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Get the product information finder.
+     * @return  Product information finder.  Will be non-null.
+     */
+    public IInventoryLookup getInventory()
+    {
+        return inventory;
+    }
+
+    /**
+     * Get the price rules.
+     * @return  Price rules, in the order in which they are processed.  The list is read-only.
+     */
+    public List<IPriceRule> getPriceRules()
+    {
+        return priceRules;
+    }
+
+    /**
+     * Get the price rules indexed by the products they apply to.
+     * @return  Price rule index.  Will be non-null.
+     */
+    PriceRuleIndex getPriceRuleIndex()
+    {
+        return priceRuleIndex;
+    }
+
+    /**
+     * Get the compiled pricing plan.
+     * @return  Pricing plan, if compiled.  Otherwise, null.
+     */
+    public PricingPlan getPricingPlan()
+    {
+        return pricingPlan;
+    }
+}
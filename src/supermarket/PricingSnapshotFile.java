@@ -0,0 +1,422 @@
+package supermarket;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file holding a price scanner's whole configuration: its product catalog, including the hash table of the
+ * catalog's dictionary, its price rules and whether its pricing plan was compiled.  Restoring a scanner from the file
+ * maps it and copies each section out in bulk, so a restarted pricing node does not parse product data, validate it or
+ * hash its ids again.
+ *
+ * <p>The file holds the following big-endian sections:</p>
+ * <ul>
+ *     <li>Header: magic number, format version, flags, product count, id block length, hash table length, price rule
+ *     count and price rule block length, each an int.  Flag 1 is set if the scanner's plan was compiled, and flag 2 if
+ *     the plan was optimal.</li>
+ *     <li>Offsets: product count + 1 ints, giving the start of each id within the id block and the end of the
+ *     last.</li>
+ *     <li>Prices: product count ints, giving the unit price of each product.</li>
+ *     <li>Hash table: the dictionary's slots, as returned by {@link ProductDictionary#getSlots()}.</li>
+ *     <li>Id block: the UTF-8 bytes of every product id, in product index order.</li>
+ *     <li>Price rule block: each price rule in order, as a byte tag followed by its fields.  A
+ *     {@link BaseUnitPriceRule} has no fields.  An {@link XForThePriceOfYPriceRule} has an unsigned short id length,
+ *     the UTF-8 product id and two ints: the total quantity and the paid quantity.  A {@link BundlePriceRule} has an
+ *     int bundle price and an unsigned short product count, followed by each product's id, as above, and int
+ *     quantity.</li>
+ * </ul>
+ * <p>The hash table depends on {@link String#hashCode()}, which is fixed by the language specification, and on the
+ * dictionary's probing scheme; the format version changes if the probing scheme does.</p>
+ */
+final class PricingSnapshotFile
+{
+    static final int MAGIC = 0x534d5053;
+    static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 32;
+    private static final int COMPILED_FLAG = 1;
+    private static final int OPTIMAL_FLAG = 2;
+    private static final byte BASE_UNIT_PRICE_RULE = 1;
+    private static final byte X_FOR_THE_PRICE_OF_Y_PRICE_RULE = 2;
+    private static final byte BUNDLE_PRICE_RULE = 3;
+    private static final Charset ID_CHARSET = Charset.forName("UTF-8");
+
+    private PricingSnapshotFile()
+    {
+    }
+
+    /**
+     * Write a scanner's current configuration to a file.
+     * @param priceScanner  Scanner whose configuration is written.  Value cannot be null.  Its inventory must be an
+     *                      {@link Inventory} or other {@link IProductCatalog}, and each of its price rules a
+     *                      {@link BaseUnitPriceRule}, {@link XForThePriceOfYPriceRule} or {@link BundlePriceRule}.
+     * @param file  File to write.  Value cannot be null.  An existing file is replaced.
+     * @throws IOException  If the file cannot be written.
+     */
+    public static void write(PriceScanner priceScanner, File file) throws IOException
+    {
+        if (priceScanner == null)
+        {
+            throw new IllegalArgumentException("priceScanner cannot be null");
+        }
+
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        PricingSnapshot snapshot = priceScanner.getSnapshot();
+        if (!(snapshot.getInventory() instanceof IProductCatalog))
+        {
+            throw new IllegalArgumentException("priceScanner inventory must be a product catalog");
+        }
+
+        IProductCatalog catalog = (IProductCatalog) snapshot.getInventory();
+        ProductDictionary dictionary = catalog.getDictionary();
+        byte[] rules = encodeRules(snapshot.getPriceRules());
+
+        byte[][] ids = new byte[dictionary.size()][];
+        long idBlockLength = 0;
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = dictionary.getId(i).getBytes(ID_CHARSET);
+            idBlockLength += ids[i].length;
+        }
+        int[] slots = dictionary.getSlots();
+
+        long fileLength = HEADER_LENGTH + (ids.length * 2L + 1 + slots.length) * 4 + idBlockLength + rules.length;
+        if (fileLength > Integer.MAX_VALUE)
+        {
+            throw new IOException("Pricing snapshot too large to map: " + fileLength + " bytes");
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(encodeFlags(snapshot.getPricingPlan()));
+            output.writeInt(ids.length);
+            output.writeInt((int) idBlockLength);
+            output.writeInt(slots.length);
+            output.writeInt(snapshot.getPriceRules().size());
+            output.writeInt(rules.length);
+
+            int offset = 0;
+            for (byte[] id : ids)
+            {
+                output.writeInt(offset);
+                offset += id.length;
+            }
+            output.writeInt(offset);
+
+            for (int i = 0; i < ids.length; i++)
+            {
+                output.writeInt(catalog.getUnitPrice(i));
+            }
+
+            for (int slot : slots)
+            {
+                output.writeInt(slot);
+            }
+
+            for (byte[] id : ids)
+            {
+                output.write(id);
+            }
+
+            output.write(rules);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Restore a scanner from a file written by {@link #write(PriceScanner, File)}.  The scanner's inventory is an
+     * {@link Inventory} holding the restored catalog, and its plan is compiled again, optimal if it was before, if it
+     * was compiled when written.
+     * @param file  File to read.  Value cannot be null.
+     * @return  Scanner ready to scan items.
+     * @throws IOException  If the file cannot be mapped or is not a valid pricing snapshot file.
+     */
+    public static PriceScanner load(File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        ByteBuffer buffer;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+            long length = channel.size();
+            if (length < HEADER_LENGTH || length > Integer.MAX_VALUE)
+            {
+                throw new IOException("Invalid pricing snapshot file length " + length + ": " + file);
+            }
+
+            // Closing the file leaves the buffer mapped until it is garbage collected
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        if (buffer.getInt(0) != MAGIC)
+        {
+            throw new IOException("Not a pricing snapshot file: " + file);
+        }
+
+        if (buffer.getInt(4) != VERSION)
+        {
+            throw new IOException("Unsupported pricing snapshot file version " + buffer.getInt(4) + ": " + file);
+        }
+
+        int flags = buffer.getInt(8);
+        int productCount = buffer.getInt(12);
+        int idBlockLength = buffer.getInt(16);
+        int slotCount = buffer.getInt(20);
+        int ruleCount = buffer.getInt(24);
+        int rulesLength = buffer.getInt(28);
+
+        long intsLength = ((long) productCount * 2 + 1 + slotCount) * 4;
+        if (productCount < 0 || idBlockLength < 0 || slotCount < 0 || ruleCount < 1 || rulesLength < 0 ||
+                HEADER_LENGTH + intsLength + idBlockLength + rulesLength != buffer.capacity())
+        {
+            throw new IOException("Corrupt pricing snapshot file: " + file);
+        }
+
+        buffer.position(HEADER_LENGTH);
+        IntBuffer ints = buffer.slice().asIntBuffer();
+        int[] offsets = new int[productCount + 1];
+        int[] unitPrices = new int[productCount];
+        int[] slots = new int[slotCount];
+        ints.get(offsets);
+        ints.get(unitPrices);
+        ints.get(slots);
+
+        byte[] idBlock = new byte[idBlockLength];
+        buffer.position(HEADER_LENGTH + (int) intsLength);
+        buffer.get(idBlock);
+
+        try
+        {
+            validateSlots(slots, productCount);
+            ProductDictionary dictionary = new ProductDictionary(decodeIds(idBlock, offsets), slots);
+
+            Inventory inventory = new Inventory();
+            inventory.setCatalog(new ProductCatalog(dictionary, unitPrices));
+
+            PriceScanner priceScanner = new PriceScanner(inventory, decodeRules(buffer, ruleCount));
+            priceScanner.setOptimalPricing((flags & OPTIMAL_FLAG) != 0);
+            if ((flags & COMPILED_FLAG) != 0)
+            {
+                priceScanner.compile();
+            }
+            return priceScanner;
+        }
+        catch (IllegalArgumentException iae)
+        {
+            throw new IOException("Corrupt pricing snapshot file: " + file, iae);
+        }
+        catch (BufferUnderflowException bue)
+        {
+            throw new IOException("Corrupt pricing snapshot file: " + file, bue);
+        }
+    }
+
+    private static void validateSlots(int[] slots, int productCount)
+    {
+        // A table missing an empty slot, or holding an index twice, would leave lookups of unknown ids probing forever
+        boolean[] seen = new boolean[productCount + 1];
+        int filled = 0;
+        for (int slot : slots)
+        {
+            if (slot < 0 || slot > productCount)
+            {
+                throw new IllegalArgumentException("slot outside the product indexes");
+            }
+
+            if (slot > 0)
+            {
+                if (seen[slot])
+                {
+                    throw new IllegalArgumentException("product index in more than one slot");
+                }
+                seen[slot] = true;
+                filled++;
+            }
+        }
+
+        if (filled != productCount)
+        {
+            throw new IllegalArgumentException("product index missing from the slots");
+        }
+    }
+
+    private static int encodeFlags(PricingPlan plan)
+    {
+        int flags = 0;
+        if (plan != null)
+        {
+            flags |= COMPILED_FLAG;
+            if (plan.isOptimal())
+            {
+                flags |= OPTIMAL_FLAG;
+            }
+        }
+
+        return flags;
+    }
+
+    private static byte[] encodeRules(List<IPriceRule> priceRules) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        for (IPriceRule priceRule : priceRules)
+        {
+            if (priceRule instanceof BaseUnitPriceRule)
+            {
+                output.writeByte(BASE_UNIT_PRICE_RULE);
+            }
+            else if (priceRule instanceof XForThePriceOfYPriceRule)
+            {
+                XForThePriceOfYPriceRule deal = (XForThePriceOfYPriceRule) priceRule;
+                output.writeByte(X_FOR_THE_PRICE_OF_Y_PRICE_RULE);
+                writeId(output, deal.getProductId());
+                output.writeInt(deal.getTotalQuantityForRule());
+                output.writeInt(deal.getQuantityPaidPerUnitPrice());
+            }
+            else if (priceRule instanceof BundlePriceRule)
+            {
+                BundlePriceRule bundle = (BundlePriceRule) priceRule;
+                output.writeByte(BUNDLE_PRICE_RULE);
+                output.writeInt(bundle.getBundlePrice());
+
+                Collection<String> productIds = bundle.getProductIds();
+                if (productIds.size() > 0xffff)
+                {
+                    throw new IllegalArgumentException("bundle of more than 65535 products cannot be written");
+                }
+
+                output.writeShort(productIds.size());
+                for (String productId : productIds)
+                {
+                    writeId(output, productId);
+                    output.writeInt(bundle.getComponentQuantity(productId));
+                }
+            }
+            else
+            {
+                throw new IllegalArgumentException("price rule cannot be written: " + priceRule.getClass().getName());
+            }
+        }
+
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static List<IPriceRule> decodeRules(ByteBuffer buffer, int ruleCount)
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>(ruleCount);
+        for (int i = 0; i < ruleCount; i++)
+        {
+            byte tag = buffer.get();
+            if (tag == BASE_UNIT_PRICE_RULE)
+            {
+                priceRules.add(new BaseUnitPriceRule());
+            }
+            else if (tag == X_FOR_THE_PRICE_OF_Y_PRICE_RULE)
+            {
+                String productId = readId(buffer);
+                int totalQuantity = buffer.getInt();
+                priceRules.add(new XForThePriceOfYPriceRule(productId, totalQuantity, buffer.getInt()));
+            }
+            else if (tag == BUNDLE_PRICE_RULE)
+            {
+                int bundlePrice = buffer.getInt();
+                int productCount = buffer.getShort() & 0xffff;
+
+                Map<String, Integer> componentQuantities = new LinkedHashMap<String, Integer>();
+                for (int component = 0; component < productCount; component++)
+                {
+                    String productId = readId(buffer);
+                    componentQuantities.put(productId, buffer.getInt());
+                }
+                priceRules.add(new BundlePriceRule(componentQuantities, bundlePrice));
+            }
+            else
+            {
+                throw new IllegalArgumentException("unknown price rule tag " + tag);
+            }
+        }
+
+        if (buffer.hasRemaining())
+        {
+            throw new IllegalArgumentException("price rule block longer than its rules");
+        }
+
+        return priceRules;
+    }
+
+    private static String[] decodeIds(byte[] idBlock, int[] offsets)
+    {
+        String[] ids = new String[offsets.length - 1];
+        for (int i = 0; i < ids.length; i++)
+        {
+            if (offsets[i] < 0 || offsets[i + 1] <= offsets[i] || offsets[i + 1] > idBlock.length)
+            {
+                throw new IllegalArgumentException("id offsets out of order");
+            }
+
+            ids[i] = new String(idBlock, offsets[i], offsets[i + 1] - offsets[i], ID_CHARSET);
+        }
+
+        if (offsets[ids.length] != idBlock.length)
+        {
+            throw new IllegalArgumentException("id offsets do not cover the id block");
+        }
+
+        return ids;
+    }
+
+    private static void writeId(DataOutputStream output, String id) throws IOException
+    {
+        byte[] bytes = id.getBytes(ID_CHARSET);
+        if (bytes.length > 0xffff)
+        {
+            throw new IllegalArgumentException("product id longer than 65535 bytes: " + id.substring(0, 16) + "...");
+        }
+
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readId(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, ID_CHARSET);
+    }
+}
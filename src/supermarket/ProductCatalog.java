@@ -0,0 +1,145 @@
+package supermarket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable set of products.  Products are held in arrays indexed by the product index assigned by the catalog's
+ * dictionary; the String-keyed lookup resolves the id through the dictionary.  Since a catalog never changes, it can be
+ * read by any number of threads without locking.
+ */
+final class ProductCatalog implements IProductCatalog
+{
+    private final ProductDictionary dictionary;
+    private final IProduct[] products;
+    private final int[] unitPrices;
+
+    /**
+     * Class constructor
+     * @param products  Products in the catalog.  May be null.  Null products are skipped.  If more than one product
+     *                  has the same id, the last one wins.
+     */
+    public ProductCatalog(Iterable<IProduct> products)
+    {
+        List<IProduct> productList = new ArrayList<IProduct>();
+        List<String> ids = new ArrayList<String>();
+
+        if (products != null)
+        {
+            for (IProduct product : products)
+            {
+                if (product != null)
+                {
+                    productList.add(product);
+                    ids.add(product.getId());
+                }
+            }
+        }
+
+        dictionary = new ProductDictionary(ids);
+        this.products = new IProduct[dictionary.size()];
+        unitPrices = new int[dictionary.size()];
+
+        for (IProduct product : productList)
+        {
+            int index = dictionary.indexOf(product.getId());
+            this.products[index] = product;
+            unitPrices[index] = product.getUnitPrice();
+        }
+    }
+
+    /**
+     * Class constructor for a catalog built from unit prices alone, as loaded in bulk by {@link CatalogLoader}.  No
+     * product objects are held; {@link #getProduct(String)} creates one on each call.
+     * @param dictionary  Dictionary of the catalog's product ids.  Value cannot be null.
+     * @param unitPrices  Unit price of each product, by product index.  Value cannot be null, and must be the same
+     *                    length as the dictionary.  The array is used directly, so must not be changed afterwards.
+     */
+    ProductCatalog(ProductDictionary dictionary, int[] unitPrices)
+    {
+        if (dictionary == null)
+        {
+            throw new IllegalArgumentException("dictionary cannot be null");
+        }
+
+        if (unitPrices == null || unitPrices.length != dictionary.size())
+        {
+            throw new IllegalArgumentException("unitPrices cannot be null and must match the dictionary's size");
+        }
+
+        this.dictionary = dictionary;
+        this.products = null;
+        this.unitPrices = unitPrices;
+    }
+
+    /**
+     * Get the product whose id matches the supplied parameter.
+     * @param id  Id of the product to get.  Must be non-null and non-empty.
+     * @return  The product, if one can be found.  Otherwise, null.
+     */
+    @Override
+    public IProduct getProduct(String id)
+    {
+        if (id == null)
+        {
+            throw new IllegalArgumentException("id must not be null");
+        }
+
+        if (id.isEmpty())
+        {
+            throw new IllegalArgumentException("id must not be empty");
+        }
+
+        int index = dictionary.indexOf(id);
+        if (index < 0)
+        {
+            return null;
+        }
+
+        return products != null ? products[index] : new Product(id, unitPrices[index]);
+    }
+
+    /**
+     * Get the dictionary mapping the catalog's product ids to product indexes.
+     * @return  Product dictionary.  Will be non-null.
+     */
+    @Override
+    public ProductDictionary getDictionary()
+    {
+        return dictionary;
+    }
+
+    /**
+     * Get the unit price of a product by its index.
+     * @param productIndex  Index of the product in the dictionary returned by {@link #getDictionary()}.  Must be
+     *                      non-negative and less than the size of the dictionary.
+     * @return  Unit price of the product.
+     */
+    @Override
+    public int getUnitPrice(int productIndex)
+    {
+        return unitPrices[productIndex];
+    }
+
+    /**
+     * Get all of the products in the catalog as a collection.
+     * @return  Collection of the products in the catalog.  The collection is read-only.
+     */
+    public Collection<IProduct> getProducts()
+    {
+        if (products == null)
+        {
+            List<IProduct> created = new ArrayList<IProduct>(unitPrices.length);
+            for (int i = 0; i < unitPrices.length; i++)
+            {
+                created.add(new Product(dictionary.getId(i), unitPrices[i]));
+            }
+            return Collections.unmodifiableList(created);
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(products));
+    }
+}
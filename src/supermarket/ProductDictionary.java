@@ -0,0 +1,379 @@
+package supermarket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Immutable mapping from product ids to dense product indexes, 0 to size() - 1, in the order the ids were first
+ * supplied.  Resolving ids to indexes once lets inventories, carts and rules key their data by int, using arrays
+ * instead of String-keyed maps.  Single character ids can also be resolved from a char, and ASCII ids from bytes in a
+ * buffer, without a String.
+ */
+final class ProductDictionary
+{
+    private static final int NOT_FOUND = -1;
+    private static final Charset ID_CHARSET = Charset.forName("UTF-8");
+
+    private final String[] ids;
+    private final int[] slots;
+    private final int[] charIndexes;
+
+    /**
+     * Class constructor
+     * @param ids  Product ids to index.  Must be non-null, and each element must be non-null and non-empty.  Repeated
+     *             ids are given the index of their first occurrence.
+     */
+    public ProductDictionary(Iterable<String> ids)
+    {
+        if (ids == null)
+        {
+            throw new IllegalArgumentException("ids cannot be null");
+        }
+
+        String[] uniqueIds = new String[16];
+        int uniqueIdCount = 0;
+        int[] table = new int[32];
+
+        for (String id : ids)
+        {
+            if (id == null)
+            {
+                throw new IllegalArgumentException("ids cannot contain null elements");
+            }
+
+            if (id.isEmpty())
+            {
+                throw new IllegalArgumentException("ids cannot contain empty elements");
+            }
+
+            int slot = findSlot(table, uniqueIds, id);
+            if (slot < 0)
+            {
+                if (uniqueIdCount == uniqueIds.length)
+                {
+                    uniqueIds = Arrays.copyOf(uniqueIds, uniqueIdCount * 2);
+                }
+
+                if ((uniqueIdCount + 1) * 2 > table.length)
+                {
+                    table = rehash(uniqueIds, uniqueIdCount, table.length * 2);
+                    slot = findSlot(table, uniqueIds, id);
+                }
+
+                uniqueIds[uniqueIdCount++] = id;
+                table[~slot] = uniqueIdCount;
+            }
+        }
+
+        this.ids = Arrays.copyOf(uniqueIds, uniqueIdCount);
+        this.slots = table;
+        this.charIndexes = createCharIndexes(this.ids);
+    }
+
+    /**
+     * Class constructor for a known number of ids, sizing the dictionary for them up front so that each id is hashed
+     * once, and recording the index given to each.
+     * @param ids  Product ids to index.  Must be non-null, and each of the first idCount elements must be non-null and
+     *             non-empty.  Repeated ids are given the index of their first occurrence.
+     * @param idCount  Number of leading elements of ids to index.  Must be non-negative and no more than the length of
+     *                 ids.
+     * @param indexes  Array receiving the index given to each of the first idCount ids.  Must be non-null and no
+     *                 shorter than idCount.
+     */
+    ProductDictionary(String[] ids, int idCount, int[] indexes)
+    {
+        if (ids == null)
+        {
+            throw new IllegalArgumentException("ids cannot be null");
+        }
+
+        if (idCount < 0 || idCount > ids.length)
+        {
+            throw new IllegalArgumentException("idCount must be from 0 to the length of ids");
+        }
+
+        if (indexes == null || indexes.length < idCount)
+        {
+            throw new IllegalArgumentException("indexes cannot be null or shorter than idCount");
+        }
+
+        String[] uniqueIds = new String[idCount];
+        int uniqueIdCount = 0;
+        int[] table = new int[Math.max(32, Integer.highestOneBit(Math.max(1, idCount)) << 2)];
+
+        for (int i = 0; i < idCount; i++)
+        {
+            String id = ids[i];
+            if (id == null)
+            {
+                throw new IllegalArgumentException("ids cannot contain null elements");
+            }
+
+            if (id.isEmpty())
+            {
+                throw new IllegalArgumentException("ids cannot contain empty elements");
+            }
+
+            int slot = findSlot(table, uniqueIds, id);
+            if (slot < 0)
+            {
+                uniqueIds[uniqueIdCount++] = id;
+                table[~slot] = uniqueIdCount;
+                indexes[i] = uniqueIdCount - 1;
+            }
+            else
+            {
+                indexes[i] = table[slot] - 1;
+            }
+        }
+
+        this.ids = uniqueIdCount == idCount ? uniqueIds : Arrays.copyOf(uniqueIds, uniqueIdCount);
+        this.slots = table;
+        this.charIndexes = createCharIndexes(this.ids);
+    }
+
+    /**
+     * Class constructor for a dictionary restored from the ids and hash table of another, as written to a
+     * {@link PricingSnapshotFile}, so that the ids are not hashed again.
+     * @param ids  Product ids, by product index.  Must be non-null.  The array is used directly, so must not be changed
+     *             afterwards.
+     * @param slots  Hash table returned by {@link #getSlots()} for the same ids.  Must be non-null.  The array is used
+     *               directly, so must not be changed afterwards.
+     */
+    ProductDictionary(String[] ids, int[] slots)
+    {
+        if (ids == null)
+        {
+            throw new IllegalArgumentException("ids cannot be null");
+        }
+
+        if (slots == null || Integer.bitCount(slots.length) != 1 || slots.length < ids.length * 2)
+        {
+            throw new IllegalArgumentException("slots must be a power of two in length and at least twice the ids");
+        }
+
+        this.ids = ids;
+        this.slots = slots;
+        this.charIndexes = createCharIndexes(ids);
+    }
+
+    /**
+     * Get the number of distinct product ids in the dictionary.
+     * @return  Number of product ids.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Get the product id for a product index.
+     * @param index  Product index.  Must be non-negative and less than {@link #size()}.
+     * @return  Product id.
+     */
+    public String getId(int index)
+    {
+        return ids[index];
+    }
+
+    /**
+     * Get the product index for a product id.
+     * @param id  Product id.  Must be non-null.
+     * @return  Product index, if the id is in the dictionary.  Otherwise, -1.
+     */
+    public int indexOf(String id)
+    {
+        int slot = findSlot(slots, ids, id);
+        return slot >= 0 ? slots[slot] - 1 : NOT_FOUND;
+    }
+
+    /**
+     * Get the product index for a single character product id.
+     * @param id  Product id character.
+     * @return  Product index, if the id is in the dictionary.  Otherwise, -1.
+     */
+    public int indexOf(char id)
+    {
+        return id < charIndexes.length ? charIndexes[id] : NOT_FOUND;
+    }
+
+    /**
+     * Get the product index for a product id held in a range of a character sequence.  The id is hashed and compared
+     * in place, without creating a String.
+     * @param chars  Characters holding the id.  Must be non-null.
+     * @param offset  Position of the first character of the id.
+     * @param length  Number of characters in the id.  Must be non-negative, with the id lying within the sequence.
+     * @return  Product index, if the id is in the dictionary.  Otherwise, -1.
+     */
+    public int indexOf(CharSequence chars, int offset, int length)
+    {
+        // Same hash as String.hashCode(), so the id is found in the slot its String would be
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            hash = 31 * hash + chars.charAt(i);
+        }
+
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+
+        int entry;
+        while ((entry = slots[slot]) != 0)
+        {
+            if (charsEqual(ids[entry - 1], chars, offset, length))
+            {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Get the product index for a product id held as UTF-8 bytes in a buffer.  Ids made up of ASCII characters are
+     * hashed and compared in place, without creating a String.
+     * @param buffer  Buffer holding the id.  Must be non-null.  Its position and limit are not changed.
+     * @param offset  Absolute position of the first byte of the id in the buffer.
+     * @param length  Number of bytes in the id.  Must be non-negative, with the id lying within the buffer's limit.
+     * @return  Product index, if the id is in the dictionary.  Otherwise, -1.
+     */
+    public int indexOf(ByteBuffer buffer, int offset, int length)
+    {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            byte b = buffer.get(i);
+            if (b < 0)
+            {
+                // Not ASCII, so the bytes do not map one-to-one onto the id's chars
+                byte[] bytes = new byte[length];
+                for (int j = 0; j < length; j++)
+                {
+                    bytes[j] = buffer.get(offset + j);
+                }
+                return indexOf(new String(bytes, ID_CHARSET));
+            }
+
+            hash = 31 * hash + b;
+        }
+
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+
+        int entry;
+        while ((entry = slots[slot]) != 0)
+        {
+            if (asciiEquals(ids[entry - 1], buffer, offset, length))
+            {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Get the dictionary's hash table, which holds each product index plus one in the slot found by probing from the
+     * spread hash of its id, or zero in unused slots.
+     * @return  Copy of the hash table.
+     */
+    int[] getSlots()
+    {
+        return slots.clone();
+    }
+
+    private static boolean charsEqual(String id, CharSequence chars, int offset, int length)
+    {
+        if (id.length() != length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            if (id.charAt(i) != chars.charAt(offset + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean asciiEquals(String id, ByteBuffer buffer, int offset, int length)
+    {
+        if (id.length() != length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            if (id.charAt(i) != buffer.get(offset + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int findSlot(int[] table, String[] ids, String id)
+    {
+        int mask = table.length - 1;
+        int slot = spread(id.hashCode()) & mask;
+
+        int entry;
+        while ((entry = table[slot]) != 0)
+        {
+            if (ids[entry - 1].equals(id))
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return ~slot;
+    }
+
+    private static int[] createCharIndexes(String[] ids)
+    {
+        int maxChar = -1;
+        for (String id : ids)
+        {
+            if (id.length() == 1)
+            {
+                maxChar = Math.max(maxChar, id.charAt(0));
+            }
+        }
+
+        int[] charIndexes = new int[maxChar + 1];
+        Arrays.fill(charIndexes, NOT_FOUND);
+        for (int i = 0; i < ids.length; i++)
+        {
+            if (ids[i].length() == 1)
+            {
+                charIndexes[ids[i].charAt(0)] = i;
+            }
+        }
+        return charIndexes;
+    }
+
+    private static int[] rehash(String[] ids, int idCount, int capacity)
+    {
+        int[] table = new int[capacity];
+        for (int i = 0; i < idCount; i++)
+        {
+            table[~findSlot(table, ids, ids[i])] = i + 1;
+        }
+        return table;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+}
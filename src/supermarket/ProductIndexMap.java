@@ -0,0 +1,135 @@
+package supermarket;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from non-negative product indexes to non-negative int values, avoiding the boxing and per-entry
+ * objects of a HashMap.  Not thread-safe.
+ */
+class ProductIndexMap
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Class constructor
+     */
+    public ProductIndexMap()
+    {
+        this(INITIAL_CAPACITY / 2);
+    }
+
+    /**
+     * Class constructor
+     * @param expectedSize  Number of entries the map should hold without growing.  Must be non-negative.
+     */
+    public ProductIndexMap(int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException("expectedSize cannot be negative");
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize * 2)
+        {
+            capacity <<= 1;
+        }
+
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+    }
+
+    /**
+     * Get the number of entries in the map.
+     * @return  Number of entries.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Get the value mapped to a product index.
+     * @param productIndex  Product index.  Must be non-negative.
+     * @return  Mapped value, if one is present.  Otherwise, -1.
+     */
+    int get(int productIndex)
+    {
+        int mask = keys.length - 1;
+        int slot = hash(productIndex) & mask;
+
+        int key;
+        while ((key = keys[slot]) != EMPTY)
+        {
+            if (key == productIndex)
+            {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return EMPTY;
+    }
+
+    /**
+     * Map a product index to a value, replacing any value previously mapped to it.
+     * @param productIndex  Product index.  Must be non-negative.
+     * @param value  Value to map.  Must be non-negative.
+     */
+    void put(int productIndex, int value)
+    {
+        if ((size + 1) * 2 > keys.length)
+        {
+            resize(keys.length * 2);
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(productIndex) & mask;
+
+        int key;
+        while ((key = keys[slot]) != EMPTY)
+        {
+            if (key == productIndex)
+            {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = productIndex;
+        values[slot] = value;
+        size++;
+    }
+
+    private void resize(int capacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(int productIndex)
+    {
+        int h = productIndex * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
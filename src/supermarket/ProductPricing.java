@@ -0,0 +1,210 @@
+package supermarket;
+
+import java.util.Arrays;
+
+/**
+ * Compiled bulk deals for a single product.  By default the deals are applied greedily, in order, as the price rules
+ * they were compiled from would be.  Optimal pricing instead picks the number of applications of each deal which
+ * minimizes the cost of the whole quantity, counting whatever quantity the deals leave as charged at unit price.
+ *
+ * <p>Optimal pricing is a dynamic program over quantity, measuring cost in units paid for so that it does not depend on
+ * the unit price.  Its table is built on first use and shared by every later call.  Only quantities below a bound need
+ * a table entry: writing t for the quantity of the deal paying least per unit and T for the largest deal quantity, any
+ * optimal combination for a quantity of at least t * T includes that deal, since fewer than t applications of other
+ * deals can never be improved on, so larger quantities apply it until they fall below the bound.  The table is capped
+ * at {@link #MAXIMUM_TABLE_LENGTH} entries, and a product with a deal too large to fit in it is priced greedily.</p>
+ */
+class ProductPricing
+{
+    static final int MAXIMUM_TABLE_LENGTH = 1 << 16;
+
+    private final boolean optimal;
+    private int[] dealTotalQuantities;
+    private int[] dealPaidQuantities;
+    private int dealCount;
+    private boolean dealsFitTable = true;
+    private volatile OptimalTable optimalTable;
+
+    /**
+     * Class constructor for greedy pricing
+     */
+    public ProductPricing()
+    {
+        this(false);
+    }
+
+    /**
+     * Class constructor
+     * @param optimal  True to pick the cheapest combination of deals.  False to apply the deals greedily, in order.
+     */
+    public ProductPricing(boolean optimal)
+    {
+        this.optimal = optimal;
+        dealTotalQuantities = new int[0];
+        dealPaidQuantities = new int[0];
+    }
+
+    /**
+     * Add a bulk deal after any deals previously added.
+     * @param totalQuantity  Quantity claimed by one application of the deal.  Must be 1 or greater.
+     * @param paidQuantity  Quantity paid for at unit price by one application of the deal.
+     */
+    void addBulkDeal(int totalQuantity, int paidQuantity)
+    {
+        dealTotalQuantities = Arrays.copyOf(dealTotalQuantities, dealCount + 1);
+        dealPaidQuantities = Arrays.copyOf(dealPaidQuantities, dealCount + 1);
+        dealTotalQuantities[dealCount] = totalQuantity;
+        dealPaidQuantities[dealCount] = paidQuantity;
+        dealCount++;
+        dealsFitTable &= totalQuantity <= MAXIMUM_TABLE_LENGTH;
+        optimalTable = null;
+    }
+
+    /**
+     * Compute the cost of the quantity claimed by the bulk deals.
+     * @param quantity  Quantity of the product.  Must be non-negative.
+     * @param unitPrice  Unit price of the product.
+     * @return  Cost of the quantity claimed by the bulk deals.
+     */
+    int price(int quantity, int unitPrice)
+    {
+        return paidQuantity(quantity) * unitPrice;
+    }
+
+    /**
+     * Compute the quantity paid for at unit price by the bulk deals.
+     * @param quantity  Quantity of the product.  Must be non-negative.
+     * @return  Paid quantity.  Will be no greater than the quantity.
+     */
+    int paidQuantity(int quantity)
+    {
+        if (optimal && dealsFitTable)
+        {
+            return getOptimalTable().paidQuantity(quantity);
+        }
+
+        int paid = 0;
+        int remaining = quantity;
+
+        for (int i = 0; i < dealCount; i++)
+        {
+            paid += (remaining / dealTotalQuantities[i]) * dealPaidQuantities[i];
+            remaining %= dealTotalQuantities[i];
+        }
+
+        return paid;
+    }
+
+    /**
+     * Compute the quantity left unclaimed by the bulk deals.
+     * @param quantity  Quantity of the product.  Must be non-negative.
+     * @return  Unclaimed quantity.
+     */
+    int remainder(int quantity)
+    {
+        if (optimal && dealsFitTable)
+        {
+            return getOptimalTable().remainder(quantity);
+        }
+
+        int remaining = quantity;
+
+        for (int i = 0; i < dealCount; i++)
+        {
+            remaining %= dealTotalQuantities[i];
+        }
+
+        return remaining;
+    }
+
+    private OptimalTable getOptimalTable()
+    {
+        OptimalTable table = optimalTable;
+        if (table == null)
+        {
+            // Building the table more than once in a race is harmless, since every build gives the same table
+            table = new OptimalTable(dealTotalQuantities, dealPaidQuantities, dealCount);
+            optimalTable = table;
+        }
+
+        return table;
+    }
+
+    /**
+     * Cheapest combination of deals for each quantity below the bound, with the deal paying least per unit applied to
+     * quantities above it.
+     */
+    private static class OptimalTable
+    {
+        private final int bestTotalQuantity;
+        private final int bestPaidQuantity;
+        private final boolean bestIsUnitPrice;
+        private final int[] paidQuantities;
+        private final int[] remainders;
+
+        OptimalTable(int[] dealTotalQuantities, int[] dealPaidQuantities, int dealCount)
+        {
+            // Leaving an item to be charged at unit price acts as a deal of one paid for one
+            int bestTotal = 1;
+            int bestPaid = 1;
+            int largestTotal = 1;
+            for (int i = 0; i < dealCount; i++)
+            {
+                if ((long) dealPaidQuantities[i] * bestTotal < (long) bestPaid * dealTotalQuantities[i])
+                {
+                    bestTotal = dealTotalQuantities[i];
+                    bestPaid = dealPaidQuantities[i];
+                }
+                largestTotal = Math.max(largestTotal, dealTotalQuantities[i]);
+            }
+
+            bestTotalQuantity = bestTotal;
+            bestPaidQuantity = bestPaid;
+            bestIsUnitPrice = bestTotal == 1;
+
+            // Costs count every unit paid for, whether through a deal or left over, so that leftovers are minimized too
+            int length = (int) Math.min(MAXIMUM_TABLE_LENGTH, (long) bestTotal * largestTotal);
+            int[] costs = new int[length];
+            paidQuantities = new int[length];
+            remainders = new int[length];
+            for (int quantity = 1; quantity < length; quantity++)
+            {
+                costs[quantity] = costs[quantity - 1] + 1;
+                paidQuantities[quantity] = paidQuantities[quantity - 1];
+                remainders[quantity] = remainders[quantity - 1] + 1;
+
+                for (int i = 0; i < dealCount; i++)
+                {
+                    int rest = quantity - dealTotalQuantities[i];
+                    if (rest >= 0 && costs[rest] + dealPaidQuantities[i] < costs[quantity])
+                    {
+                        costs[quantity] = costs[rest] + dealPaidQuantities[i];
+                        paidQuantities[quantity] = paidQuantities[rest] + dealPaidQuantities[i];
+                        remainders[quantity] = remainders[rest];
+                    }
+                }
+            }
+        }
+
+        int paidQuantity(int quantity)
+        {
+            int applications = applicationsAboveBound(quantity);
+            int paid = paidQuantities[quantity - applications * bestTotalQuantity];
+
+            return bestIsUnitPrice ? paid : paid + applications * bestPaidQuantity;
+        }
+
+        int remainder(int quantity)
+        {
+            int applications = applicationsAboveBound(quantity);
+            int remainder = remainders[quantity - applications * bestTotalQuantity];
+
+            return bestIsUnitPrice ? remainder + applications : remainder;
+        }
+
+        private int applicationsAboveBound(int quantity)
+        {
+            return quantity < remainders.length ? 0 : (quantity - remainders.length) / bestTotalQuantity + 1;
+        }
+    }
+}
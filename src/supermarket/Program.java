@@ -1,5 +1,7 @@
 package supermarket;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,16 +10,39 @@ import java.util.List;
  */
 class Program
 {
+    private static final String SERVE_OPTION = "--serve";
+
     /**
      * Program main
      * @param args First argument is used as the item token string to be sent to the Supermarket for checkout.
+     *             Alternatively, "--serve" followed by a port number starts a {@link CheckoutServer} on that port.
      */
     public static void main(String[] args)
     {
-        String item = parseItem(args);
-        if (item != null)
+        if (args != null && args.length == 2 && SERVE_OPTION.equals(args[0]))
         {
-            checkout(item);
+            Integer port = parsePort(args[1]);
+            if (port != null)
+            {
+                try
+                {
+                    CheckoutServer server = serve(port);
+                    server.start();
+                    System.out.println("checkout server listening on port " + server.getAddress().getPort());
+                }
+                catch (IOException ioe)
+                {
+                    System.out.println("cannot listen on port " + port + ": " + ioe.getMessage());
+                }
+            }
+        }
+        else
+        {
+            String item = parseItem(args);
+            if (item != null)
+            {
+                checkout(item);
+            }
         }
     }
 
@@ -27,6 +52,25 @@ class Program
      * @return  Total price computed for the items.
      */
     static int checkout(String item)
+    {
+        int total = createSupermarket().checkout(item);
+        System.out.println("total at checkout is " + total);
+
+        return total;
+    }
+
+    /**
+     * Setup dependencies and create a checkout server for them, without starting it.
+     * @param port  Port on which the server will listen.  A port of 0 listens on any free port.
+     * @return  Checkout server.
+     * @throws IOException  If the port cannot be bound.
+     */
+    static CheckoutServer serve(int port) throws IOException
+    {
+        return new CheckoutServer(createSupermarket(), new InetSocketAddress(port));
+    }
+
+    private static Supermarket createSupermarket()
     {
         List<IProduct> originalProducts = new ArrayList<IProduct>();
         originalProducts.add(new Product("A", 20));
@@ -40,12 +84,9 @@ class Program
         priceRules.add(new BaseUnitPriceRule());
 
         PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        priceScanner.compile();
 
-        Supermarket supermarket = new Supermarket(priceScanner);
-        int total = supermarket.checkout(item);
-        System.out.println("total at checkout is " + total);
-
-        return total;
+        return new Supermarket(priceScanner, inventory);
     }
 
     /**
@@ -86,9 +127,41 @@ class Program
         return item;
     }
 
+    /**
+     * Parse the port argument of the serve option
+     * @param arg  Port number.
+     * @return  Port, if the argument is a valid port number.  Otherwise, null.
+     */
+    private static Integer parsePort(String arg)
+    {
+        Integer port = null;
+
+        try
+        {
+            int value = Integer.parseInt(arg);
+            if (value >= 0 && value <= 65535)
+            {
+                port = value;
+            }
+        }
+        catch (NumberFormatException nfe)
+        {
+            // Reported below
+        }
+
+        if (port == null)
+        {
+            System.out.println("invalid port " + arg);
+            usage();
+        }
+
+        return port;
+    }
+
     private static void usage()
     {
         System.out.println("usage: one string with each character denoting the id");
         System.out.println("       of an associated product in a shopping cart");
+        System.out.println("   or: " + SERVE_OPTION + " <port> to serve checkouts over HTTP");
     }
 }
@@ -58,6 +58,27 @@ class ShoppingCart implements IShoppingCart
         return returnValue;
     }
 
+    /**
+     * Get the quantity of a shopping cart item by its product id, without creating an item.
+     * @param productId  Product id.  Value cannot be null or empty.
+     * @return  Quantity of the matching item.  Zero if no item is available.
+     */
+    public int getItemQuantity(String productId)
+    {
+        if (productId == null)
+        {
+            throw new IllegalArgumentException("productId cannot be null");
+        }
+
+        if (productId.isEmpty())
+        {
+            throw new IllegalArgumentException("productId cannot be empty");
+        }
+
+        Integer quantity = itemMap.get(productId);
+        return quantity != null ? quantity : 0;
+    }
+
     /**
      * Get all of the items in the shopping cart in the form of a collection.
      * @return Collection of items.  Collection will be read-only and be a copy of the data held by the shopping cart.
@@ -75,6 +96,25 @@ class ShoppingCart implements IShoppingCart
         return Collections.unmodifiableCollection(items);
     }
 
+    /**
+     * Pass each item in the shopping cart to a visitor, without creating an item for each.  The visitor may change the
+     * quantity of the item it is visiting through {@link #setItemQuantity(String, int)}.
+     * @param visitor  Visitor receiving the items.  Value cannot be null.
+     */
+    public void forEachItem(IItemVisitor visitor)
+    {
+        if (visitor == null)
+        {
+            throw new IllegalArgumentException("visitor cannot be null");
+        }
+
+        // Changing the quantity of an existing item does not structurally modify the map, so is safe while iterating
+        for (Entry<String,Integer> entry : itemMap.entrySet())
+        {
+            visitor.visit(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Change the quantity of an item in the cart.  Will not insert a new item in the cart if no prior item
      * corresponding to the productId was present.
@@ -113,24 +153,19 @@ class ShoppingCart implements IShoppingCart
 
     private void convertItemsToMap(String items)
     {
-        if (!items.isEmpty())
+        // Walk the characters directly rather than splitting on "", since String.split() only produces a leading
+        // empty element on JDKs prior to 8
+        for (int i = 0; i < items.length(); i++)
         {
-            String[] itemIds = items.split("");
-            if (itemIds != null)
+            String itemId = String.valueOf(items.charAt(i));
+            Integer quantity = itemMap.get(itemId);
+            if (quantity != null)
+            {
+                itemMap.put(itemId, ++quantity);
+            }
+            else
             {
-                for (int i = 1; i < itemIds.length; i++)
-                {
-                    String itemId = itemIds[i];
-                    Integer quantity = itemMap.get(itemId);
-                    if (quantity != null)
-                    {
-                        itemMap.put(itemId, ++quantity);
-                    }
-                    else
-                    {
-                        itemMap.put(itemId, 1);
-                    }
-                }
+                itemMap.put(itemId, 1);
             }
         }
     }
@@ -0,0 +1,133 @@
+package supermarket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Tokenizer for carts of multi-character product ids, such as barcodes and alphanumeric SKUs, separated by commas or
+ * whitespace.  For example, {@code "4006381333931, 4006381333931 AB-12"} holds two items with the id
+ * {@code 4006381333931} and one with the id {@code AB-12}.  Repeated and empty delimiters are skipped.
+ *
+ * <p>Each token is looked up in the cart's dictionary where it lies, hashing and comparing the characters or bytes in
+ * place, so a cart of known products is counted without creating a String per item.  Only ids which are not in the
+ * dictionary are copied out, to be kept as unknown items.</p>
+ */
+final class SkuTokenizer
+{
+    private static final Charset ITEMS_CHARSET = Charset.forName("UTF-8");
+
+    private SkuTokenizer()
+    {
+    }
+
+    /**
+     * Add the items in a sequence of delimited product ids to a cart.
+     * @param items  Product ids separated by commas or whitespace.  Must be non-null.
+     * @param cart  Cart to which the items are added.  Must be non-null.
+     */
+    public static void addItems(CharSequence items, IndexedShoppingCart cart)
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        if (cart == null)
+        {
+            throw new IllegalArgumentException("cart cannot be null");
+        }
+
+        ProductDictionary dictionary = cart.getDictionary();
+        int length = items.length();
+        int position = 0;
+        while (position < length)
+        {
+            if (isDelimiter(items.charAt(position)))
+            {
+                position++;
+            }
+            else
+            {
+                int start = position;
+                while (position < length && !isDelimiter(items.charAt(position)))
+                {
+                    position++;
+                }
+
+                int productIndex = dictionary.indexOf(items, start, position - start);
+                if (productIndex >= 0)
+                {
+                    cart.addItems(productIndex, 1);
+                }
+                else
+                {
+                    cart.addUnknownItems(items.subSequence(start, position).toString(), 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the items in a buffer of delimited, UTF-8 encoded product ids to a cart.
+     * @param items  Buffer whose bytes from its position to its limit hold product ids separated by commas or
+     *               whitespace.  Must be non-null.  Its position and limit are not changed.
+     * @param cart  Cart to which the items are added.  Must be non-null.
+     */
+    public static void addItems(ByteBuffer items, IndexedShoppingCart cart)
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        if (cart == null)
+        {
+            throw new IllegalArgumentException("cart cannot be null");
+        }
+
+        ProductDictionary dictionary = cart.getDictionary();
+        int limit = items.limit();
+        int position = items.position();
+        while (position < limit)
+        {
+            if (isDelimiter((char) items.get(position)))
+            {
+                position++;
+            }
+            else
+            {
+                int start = position;
+                while (position < limit && !isDelimiter((char) items.get(position)))
+                {
+                    position++;
+                }
+
+                int productIndex = dictionary.indexOf(items, start, position - start);
+                if (productIndex >= 0)
+                {
+                    cart.addItems(productIndex, 1);
+                }
+                else
+                {
+                    cart.addUnknownItems(decode(items, start, position), 1);
+                }
+            }
+        }
+    }
+
+    private static boolean isDelimiter(char c)
+    {
+        return c == ',' || c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static String decode(ByteBuffer items, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = items.get(start + i);
+        }
+
+        return new String(bytes, ITEMS_CHARSET);
+    }
+}
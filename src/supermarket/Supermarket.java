@@ -1,5 +1,22 @@
 package supermarket;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 /**
  * Supermarket
  */
@@ -8,7 +25,14 @@ package supermarket;
 @SuppressWarnings("WeakerAccess")
 public class Supermarket
 {
-    private IPriceScanner priceScanner;
+    private static final Charset ITEMS_CHARSET = Charset.forName("UTF-8");
+
+    private static final int TASKS_PER_THREAD = 4;
+    private static final ProductDictionary NO_PRODUCTS = new ProductDictionary(Collections.<String>emptyList());
+
+    private final IPriceScanner priceScanner;
+    private final IProductCatalog catalog;
+    private volatile ICheckoutListener checkoutListener;
 
     /**
      * Class constructor
@@ -22,6 +46,29 @@ public class Supermarket
         }
 
         this.priceScanner = priceScanner;
+        this.catalog = null;
+    }
+
+    /**
+     * Class constructor.  Carts are built keyed by the product indexes of the catalog's dictionary, so that price
+     * rules can process them without looking up product ids.
+     * @param priceScanner  Cart item scanner for computing total price.  Value cannot be null.
+     * @param catalog  Catalog of the products being scanned.  Value cannot be null.
+     */
+    public Supermarket(IPriceScanner priceScanner, IProductCatalog catalog)
+    {
+        if (priceScanner == null)
+        {
+            throw new IllegalArgumentException("priceScanner cannot be null");
+        }
+
+        if (catalog == null)
+        {
+            throw new IllegalArgumentException("catalog cannot be null");
+        }
+
+        this.priceScanner = priceScanner;
+        this.catalog = catalog;
     }
 
     /**
@@ -38,7 +85,336 @@ public class Supermarket
             throw new IllegalArgumentException("items cannot be null");
         }
 
-        ShoppingCart cart = new ShoppingCart(items);
+        return scanItems(createCart(new CharIndexedShoppingCart(items)));
+    }
+
+    /**
+     * Check out the items in a sequence of multi-character product ids, such as barcodes, to compute a total price.
+     * Ids of products in the catalog are resolved where they lie, without creating a String per item; without a
+     * catalog, every id is kept as text and priced by product id.
+     * @param items  Product ids separated by commas or whitespace, as read by {@link SkuTokenizer}.  Value cannot be
+     *               null.  For example, a value of '4006381333931,4006381333931,AB-12' would indicate that two items
+     *               having the id '4006381333931' and one item having the id 'AB-12' are present in the cart.
+     * @return  Total cost of the items in the cart.
+     */
+    public int checkoutSkus(CharSequence items)
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        IndexedShoppingCart cart = createSkuCart();
+        SkuTokenizer.addItems(items, cart);
+        return scanItems(cart);
+    }
+
+    /**
+     * Check out the items in a buffer of multi-character product ids to compute a total price.
+     * @param items  Buffer whose bytes from its position to its limit hold UTF-8 encoded product ids in the same
+     *               format as accepted by {@link #checkoutSkus(CharSequence)}.  Value cannot be null.  Its position
+     *               and limit are not changed.
+     * @return  Total cost of the items in the cart.
+     */
+    public int checkoutSkus(ByteBuffer items)
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        IndexedShoppingCart cart = createSkuCart();
+        SkuTokenizer.addItems(items, cart);
+        return scanItems(cart);
+    }
+
+    /**
+     * Check out the items in the supplied token string to compute a 64-bit total price, for carts whose quantities
+     * could overflow the total returned by {@link #checkout(String)}.  The total is computed in 64 bits throughout when
+     * the supermarket's scanner is a {@link PriceScanner}, as by {@link PriceScanner#scanItemsExact(IShoppingCart)}.
+     * @param items  String with product ids in the same format as accepted by {@link #checkout(String)}.  Value cannot
+     *               be null.
+     * @return  Total cost of the items in the cart.
+     * @throws ArithmeticException  If a price rule which can only compute a 32-bit cost claims items worth more than
+     * {@link Integer#MAX_VALUE}.
+     */
+    public long checkoutExact(String items)
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        return scanItems(createCart(new CharIndexedShoppingCart(items)), true);
+    }
+
+    /**
+     * Check out the items read from the supplied reader to compute a total price.  Items are counted as they are read,
+     * so the full set of items never needs to be held in memory.
+     * @param items  Reader supplying product ids in the same format as the token string accepted by
+     *               {@link #checkout(String)}.  Value cannot be null.  The reader is read to the end but is not closed.
+     * @return  Total cost of the items in the cart.
+     * @throws IOException  If reading the items fails.
+     */
+    public int checkout(Reader items) throws IOException
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        return scanItems(createCart(new CharIndexedShoppingCart(items)));
+    }
+
+    /**
+     * Check out the items read from the supplied stream to compute a total price.  Items are counted as they are read,
+     * so the full set of items never needs to be held in memory.
+     * @param items  Stream supplying UTF-8 encoded product ids in the same format as the token string accepted by
+     *               {@link #checkout(String)}.  Value cannot be null.  The stream is read to the end but is not closed.
+     * @return  Total cost of the items in the cart.
+     * @throws IOException  If reading the items fails.
+     */
+    public int checkout(InputStream items) throws IOException
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        return checkout(new InputStreamReader(items, ITEMS_CHARSET.newDecoder()));
+    }
+
+    /**
+     * Check out the items read from the supplied channel to compute a total price.  Items are counted as they are
+     * read, so the full set of items never needs to be held in memory.
+     * @param items  Channel supplying UTF-8 encoded product ids in the same format as the token string accepted by
+     *               {@link #checkout(String)}.  Value cannot be null.  The channel is read to the end but is not
+     *               closed.
+     * @return  Total cost of the items in the cart.
+     * @throws IOException  If reading the items fails.
+     */
+    public int checkout(ReadableByteChannel items) throws IOException
+    {
+        if (items == null)
+        {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+
+        return checkout(Channels.newReader(items, ITEMS_CHARSET.newDecoder(), -1));
+    }
+
+    /**
+     * Check out a batch of carts in parallel on a shared fork/join pool sized to the number of available processors.
+     * The price scanner is shared by all of the threads, so its inventory and price rules must not be changed while
+     * the batch is running.
+     * @param carts  Item token strings for the carts to check out, each in the format accepted by
+     *               {@link #checkout(String)}.  Value cannot be null or contain null elements.
+     * @return  Total cost of each cart, in the same order as the supplied carts.
+     */
+    public int[] checkoutAll(List<String> carts)
+    {
+        return checkoutAll(carts, DefaultPoolHolder.POOL);
+    }
+
+    /**
+     * Check out a batch of carts in parallel on the supplied fork/join pool.  The price scanner is shared by all of
+     * the threads, so its inventory and price rules must not be changed while the batch is running.
+     * @param carts  Item token strings for the carts to check out, each in the format accepted by
+     *               {@link #checkout(String)}.  Value cannot be null or contain null elements.
+     * @param pool  Pool on which to run the checkouts.  Value cannot be null.
+     * @return  Total cost of each cart, in the same order as the supplied carts.
+     */
+    public int[] checkoutAll(List<String> carts, ForkJoinPool pool)
+    {
+        String[] cartArray = toCartArray(carts);
+
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+
+        int[] results = new int[cartArray.length];
+        if (cartArray.length > 0)
+        {
+            int threshold = Math.max(1, cartArray.length / (pool.getParallelism() * TASKS_PER_THREAD));
+            pool.invoke(new BatchCheckoutTask(this, cartArray, results, 0, cartArray.length, threshold));
+        }
+
+        return results;
+    }
+
+    /**
+     * Check out a batch of carts in parallel on the supplied executor.  The carts are split into contiguous ranges,
+     * one task per range, and this call blocks until every task has completed.  The price scanner is shared by all of
+     * the threads, so its inventory and price rules must not be changed while the batch is running.
+     * @param carts  Item token strings for the carts to check out, each in the format accepted by
+     *               {@link #checkout(String)}.  Value cannot be null or contain null elements.
+     * @param executor  Executor on which to run the checkouts.  Value cannot be null.
+     * @return  Total cost of each cart, in the same order as the supplied carts.
+     * @throws InterruptedException  If the calling thread is interrupted while waiting for the checkouts to complete.
+     */
+    public int[] checkoutAll(List<String> carts, ExecutorService executor) throws InterruptedException
+    {
+        final String[] cartArray = toCartArray(carts);
+
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        final int[] results = new int[cartArray.length];
+        int taskCount = Math.min(cartArray.length, Runtime.getRuntime().availableProcessors() * TASKS_PER_THREAD);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(taskCount);
+        for (int i = 0; i < taskCount; i++)
+        {
+            final int start = (int) ((long) cartArray.length * i / taskCount);
+            final int end = (int) ((long) cartArray.length * (i + 1) / taskCount);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    for (int j = start; j < end; j++)
+                    {
+                        results[j] = checkout(cartArray[j]);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        for (Future<Void> future : executor.invokeAll(tasks))
+        {
+            try
+            {
+                future.get();
+            }
+            catch (ExecutionException ee)
+            {
+                Throwable cause = ee.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("checkout failed", cause);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Set the listener notified of each cart checked out, such as {@link CheckoutEventRecorder}.  Checkouts already in
+     * progress may finish with the previous listener.  To notify several listeners, install a
+     * {@link CompositeCheckoutListener}.
+     * @param checkoutListener  Listener to notify.  May be null, in which case checkouts are not measured at all.
+     */
+    public void setCheckoutListener(ICheckoutListener checkoutListener)
+    {
+        this.checkoutListener = checkoutListener;
+    }
+
+    private int scanItems(IShoppingCart cart)
+    {
+        // A 32-bit scan's total always fits back into an int
+        return (int) scanItems(cart, false);
+    }
+
+    private long scanItems(IShoppingCart cart, boolean exact)
+    {
+        ICheckoutListener listener = checkoutListener;
+        if (listener == null)
+        {
+            return scan(cart, exact);
+        }
+
+        // Price rules consume the items they price, so the cart is measured before it is scanned
+        CartCounter counter = new CartCounter();
+        cart.forEachItem(counter);
+
+        long start = System.nanoTime();
+        long total = scan(cart, exact);
+        listener.checkoutCompleted(counter.itemCount, counter.productCount, total, System.nanoTime() - start);
+
+        return total;
+    }
+
+    private long scan(IShoppingCart cart, boolean exact)
+    {
+        if (exact && priceScanner instanceof PriceScanner)
+        {
+            return ((PriceScanner) priceScanner).scanItemsExact(cart);
+        }
+
         return priceScanner.scanItems(cart);
     }
+
+    private IShoppingCart createCart(CharIndexedShoppingCart items)
+    {
+        IShoppingCart cart = items;
+
+        if (catalog != null)
+        {
+            cart = new IndexedShoppingCart(items, catalog.getDictionary());
+        }
+
+        return cart;
+    }
+
+    private IndexedShoppingCart createSkuCart()
+    {
+        // With no catalog, every id is unknown to the cart's dictionary and is kept as text
+        return new IndexedShoppingCart(catalog != null ? catalog.getDictionary() : NO_PRODUCTS);
+    }
+
+    private static String[] toCartArray(List<String> carts)
+    {
+        if (carts == null)
+        {
+            throw new IllegalArgumentException("carts cannot be null");
+        }
+
+        String[] cartArray = carts.toArray(new String[carts.size()]);
+        for (String cart : cartArray)
+        {
+            if (cart == null)
+            {
+                throw new IllegalArgumentException("carts cannot contain null elements");
+            }
+        }
+
+        return cartArray;
+    }
+
+    /**
+     * Visitor counting the items and distinct products in a cart.
+     */
+    private static class CartCounter implements IItemVisitor
+    {
+        long itemCount;
+        int productCount;
+
+        @Override
+        public void visit(String productId, int quantity)
+        {
+            if (quantity > 0)
+            {
+                itemCount += quantity;
+                productCount++;
+            }
+        }
+    }
+
+    /**
+     * Lazily created pool backing {@link #checkoutAll(List)}, so that no threads are started unless a batch is run.
+     */
+    private static class DefaultPoolHolder
+    {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
 }
@@ -1,9 +1,13 @@
 package supermarket;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * Pricing rule for buying some bulk quantity of a product and getting some quantity of the product for free.
  */
-class XForThePriceOfYPriceRule implements IPriceRule
+class XForThePriceOfYPriceRule
+        implements ICompilablePriceRule, IProductPriceRule, IPartitionablePriceRule, IExactPriceRule
 {
     private String productId;
     private int totalQuantityForRule;
@@ -68,6 +72,18 @@ class XForThePriceOfYPriceRule implements IPriceRule
      */
     @Override
     public int process(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        return (int) processExact(cart, lookup);
+    }
+
+    /**
+     * Process this rule against the items in the shopping cart, with a 64-bit cost.
+     * @param cart  Shopping cart containing items to process.  Must be non-null.
+     * @param lookup  Product information finder.  Must be non-null.
+     * @return  Cost of the items claimed by this rule.
+     */
+    @Override
+    public long processExact(IShoppingCart cart, IInventoryLookup lookup)
     {
         if (cart == null)
         {
@@ -79,28 +95,112 @@ class XForThePriceOfYPriceRule implements IPriceRule
             throw new IllegalArgumentException("lookup cannot be null");
         }
 
-        int price = 0;
+        long price;
+
+        IProductCatalog catalog = IndexedShoppingCart.getMatchingCatalog(cart, lookup);
+        if (catalog != null)
+        {
+            price = processByProductIndex((IndexedShoppingCart) cart, catalog);
+        }
+        else
+        {
+            price = processByProductId(cart, lookup);
+        }
+
+        return price;
+    }
+
+    /**
+     * Get the id of the product to which this rule applies.
+     * @return  Single element collection holding the rule's product id.
+     */
+    @Override
+    public Collection<String> getProductIds()
+    {
+        return Collections.singleton(productId);
+    }
+
+    /**
+     * Get the id of the product to which this rule applies.
+     * @return  Product id.  Will be non-null and non-empty.
+     */
+    public String getProductId()
+    {
+        return productId;
+    }
+
+    /**
+     * Get the total quantity of the product claimed by one application of the rule.
+     * @return  Total quantity.
+     */
+    public int getTotalQuantityForRule()
+    {
+        return totalQuantityForRule;
+    }
+
+    /**
+     * Get the quantity of the product paid for at unit price by one application of the rule.
+     * @return  Paid quantity.
+     */
+    public int getQuantityPaidPerUnitPrice()
+    {
+        return quantityPaidPerUnitPrice;
+    }
+
+    /**
+     * Add this rule's bulk deal for its product to a plan.
+     * @param plan  Plan being compiled.  Must be non-null.
+     */
+    @Override
+    public void compileInto(PricingPlan plan)
+    {
+        if (plan == null)
+        {
+            throw new IllegalArgumentException("plan cannot be null");
+        }
+
+        plan.addBulkDeal(productId, totalQuantityForRule, quantityPaidPerUnitPrice);
+    }
+
+    private long processByProductId(IShoppingCart cart, IInventoryLookup lookup)
+    {
+        long price = 0;
+
+        int quantity = cart.getItemQuantity(productId);
+        if (quantity > 0)
+        {
+            IProduct productInInventory = lookup.getProduct(productId);
+
+            // TODO: Consider what to do if this fails.  Failure would indicate that the product to which
+            //  this rule applies is no longer in the product inventory.  Should throw exception, write
+            //  error to log, ...?
+            if (productInInventory != null)
+            {
+                price = (long) (quantity / totalQuantityForRule) * quantityPaidPerUnitPrice *
+                        productInInventory.getUnitPrice();
+                cart.setItemQuantity(productId, quantity % totalQuantityForRule);
+            }
+        }
+
+        return price;
+    }
+
+    private long processByProductIndex(IndexedShoppingCart cart, IProductCatalog catalog)
+    {
+        long price = 0;
 
-        IItem cartItem = cart.getItem(productId);
-        if (cartItem != null)
+        int productIndex = catalog.getDictionary().indexOf(productId);
+        if (productIndex >= 0)
         {
-            int quantity = cartItem.getQuantity();
+            int quantity = cart.getQuantity(productIndex);
             if (quantity > 0)
             {
-                IProduct productInInventory = lookup.getProduct(productId);
-
-                // TODO: Consider what to do if this fails.  Failure would indicate that the product to which
-                //  this rule applies is no longer in the product inventory.  Should throw exception, write
-                //  error to log, ...?
-                if (productInInventory != null)
-                {
-                    price = (quantity / totalQuantityForRule) * quantityPaidPerUnitPrice *
-                            productInInventory.getUnitPrice();
-                    cart.setItemQuantity(productId, quantity % totalQuantityForRule);
-                }
+                price = (long) (quantity / totalQuantityForRule) * quantityPaidPerUnitPrice *
+                        catalog.getUnitPrice(productIndex);
+                cart.setQuantity(productIndex, quantity % totalQuantityForRule);
             }
         }
 
         return price;
     }
-}
\ No newline at end of file
+}
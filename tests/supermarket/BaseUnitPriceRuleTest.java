@@ -1,14 +1,14 @@
 package supermarket;
 
 import org.jmock.Expectations;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  *
  */
@@ -50,25 +50,12 @@ public class BaseUnitPriceRuleTest
 
         final BaseUnitPriceRule baseUnitPriceRule = new BaseUnitPriceRule();
 
-        final IItem firstItem = context.mock(IItem.class, "item 1");
-        final IItem secondItem = context.mock(IItem.class, "item 2");
-
         final IProduct firstProduct = context.mock(IProduct.class, "product 1");
         final IProduct secondProduct = context.mock(IProduct.class, "product 2");
 
-        final Collection<IItem> cartItems = new ArrayList<IItem>();
-        cartItems.add(firstItem);
-        cartItems.add(secondItem);
-
         context.checking(new Expectations() {{
-            oneOf(cart).getItems();
-            will(returnValue(cartItems));
-
-            oneOf(firstItem).getQuantity();
-            will(returnValue(5));
-
-            oneOf(firstItem).getProductId();
-            will(returnValue("A"));
+            oneOf(cart).forEachItem(with(any(IItemVisitor.class)));
+            will(visitItems(new String[] {"A", "B"}, new int[] {5, 2}));
 
             oneOf(inventory).getProduct("A");
             will(returnValue(firstProduct));
@@ -78,12 +65,6 @@ public class BaseUnitPriceRuleTest
 
             oneOf(cart).setItemQuantity("A", 0);
 
-            oneOf(secondItem).getQuantity();
-            will(returnValue(2));
-
-            oneOf(secondItem).getProductId();
-            will(returnValue("B"));
-
             oneOf(inventory).getProduct("B");
             will(returnValue(secondProduct));
 
@@ -108,11 +89,9 @@ public class BaseUnitPriceRuleTest
 
         final BaseUnitPriceRule baseUnitPriceRule = new BaseUnitPriceRule();
 
-        final Collection<IItem> cartItems = new ArrayList<IItem>();
-
         context.checking(new Expectations() {{
-            oneOf(cart).getItems();
-            will(returnValue(cartItems));
+            oneOf(cart).forEachItem(with(any(IItemVisitor.class)));
+            will(visitItems(new String[0], new int[0]));
         }});
 
         Assert.assertEquals("Unexpected total returned from checkout", 0,
@@ -130,26 +109,11 @@ public class BaseUnitPriceRuleTest
 
         final BaseUnitPriceRule baseUnitPriceRule = new BaseUnitPriceRule();
 
-        final IItem firstItem = context.mock(IItem.class, "item 1");
-        final IItem secondItem = context.mock(IItem.class, "item 2");
         final IProduct secondProduct = context.mock(IProduct.class, "product 2");
 
-        final Collection<IItem> cartItems = new ArrayList<IItem>();
-        cartItems.add(firstItem);
-        cartItems.add(secondItem);
-
         context.checking(new Expectations() {{
-            oneOf(cart).getItems();
-            will(returnValue(cartItems));
-
-            oneOf(firstItem).getQuantity();
-            will(returnValue(0));
-
-            oneOf(secondItem).getQuantity();
-            will(returnValue(2));
-
-            oneOf(secondItem).getProductId();
-            will(returnValue("B"));
+            oneOf(cart).forEachItem(with(any(IItemVisitor.class)));
+            will(visitItems(new String[] {"A", "B"}, new int[] {0, 2}));
 
             oneOf(inventory).getProduct("B");
             will(returnValue(secondProduct));
@@ -175,33 +139,15 @@ public class BaseUnitPriceRuleTest
 
         final BaseUnitPriceRule baseUnitPriceRule = new BaseUnitPriceRule();
 
-        final IItem firstItem = context.mock(IItem.class, "item 1");
-        final IItem secondItem = context.mock(IItem.class, "item 2");
         final IProduct secondProduct = context.mock(IProduct.class, "product 2");
 
-        final Collection<IItem> cartItems = new ArrayList<IItem>();
-        cartItems.add(firstItem);
-        cartItems.add(secondItem);
-
         context.checking(new Expectations() {{
-            oneOf(cart).getItems();
-            will(returnValue(cartItems));
-
-            oneOf(firstItem).getQuantity();
-            will(returnValue(2));
-
-            oneOf(firstItem).getProductId();
-            will(returnValue("A"));
+            oneOf(cart).forEachItem(with(any(IItemVisitor.class)));
+            will(visitItems(new String[] {"A", "B"}, new int[] {2, 5}));
 
             oneOf(inventory).getProduct("A");
             will(returnValue(null));
 
-            oneOf(secondItem).getQuantity();
-            will(returnValue(5));
-
-            oneOf(secondItem).getProductId();
-            will(returnValue("B"));
-
             oneOf(inventory).getProduct("B");
             will(returnValue(secondProduct));
 
@@ -214,4 +160,32 @@ public class BaseUnitPriceRuleTest
         Assert.assertEquals("Unexpected total returned from checkout", 150,
                 baseUnitPriceRule.process(cart, inventory));
     }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null plan is passed into a BaseUnitPriceRule object's
+     * compileInto() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullPlanInCompileIntoCallThrowsIllegalArgumentException()
+    {
+        new BaseUnitPriceRule().compileInto(null);
+    }
+
+    private static Action visitItems(final String[] productIds, final int[] quantities)
+    {
+        return new CustomAction("visit items")
+        {
+            @Override
+            public Object invoke(Invocation invocation)
+            {
+                IItemVisitor visitor = (IItemVisitor) invocation.getParameter(0);
+                for (int i = 0; i < productIds.length; i++)
+                {
+                    visitor.visit(productIds[i], quantities[i]);
+                }
+
+                return null;
+            }
+        };
+    }
 }
@@ -0,0 +1,223 @@
+package supermarket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the BinaryCheckoutServer class, run against a server listening on localhost
+ */
+public class BinaryCheckoutServerTest
+{
+    private static final int MAXIMUM_FRAME_LENGTH = 256;
+
+    private PriceScanner priceScanner;
+    private BinaryCheckoutServer server;
+    private Socket socket;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("4006381333931", 50));
+        products.add(new Product("\u00e9clair", 30));
+        Inventory inventory = new Inventory(products);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("4006381333931", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        priceScanner = new PriceScanner(inventory, priceRules);
+        server = new BinaryCheckoutServer(priceScanner, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                MAXIMUM_FRAME_LENGTH);
+        server.start();
+
+        socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        socket.setSoTimeout(5000);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        socket.close();
+        server.stop();
+    }
+
+    /**
+     * Validate that requests sent without waiting for replies are each priced, with the replies in request order and
+     * stamped with the configuration version.
+     * @throws IOException  If the exchange fails.
+     */
+    @Test
+    public void testCanPipelineRequests() throws IOException
+    {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        requests.write(encode(new String[] {"A", "4006381333931"}, new int[] {3, 5}));
+        requests.write(encode(new String[] {"\u00e9clair", "unknown"}, new int[] {2, 4}));
+        requests.write(encode(new String[0], new int[0]));
+        socket.getOutputStream().write(requests.toByteArray());
+
+        long version = priceScanner.getSnapshot().getVersion();
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        validateReply(in, version, 210);
+        validateReply(in, version, 60);
+        validateReply(in, version, 0);
+    }
+
+    /**
+     * Validate that a request arriving a byte at a time is priced once it is complete.
+     * @throws IOException  If the exchange fails.
+     */
+    @Test
+    public void testCanReceiveRequestInPieces() throws IOException
+    {
+        OutputStream out = socket.getOutputStream();
+        for (byte b : encode(new String[] {"A", "A"}, new int[] {1, 2}))
+        {
+            out.write(b);
+            out.flush();
+        }
+
+        validateReply(new DataInputStream(socket.getInputStream()), priceScanner.getSnapshot().getVersion(), 60);
+    }
+
+    /**
+     * Validate that the reply's version stamp follows changes to the price rules.
+     * @throws IOException  If the exchange fails.
+     */
+    @Test
+    public void testReplyVersionFollowsConfiguration() throws IOException
+    {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        socket.getOutputStream().write(encode(new String[] {"A"}, new int[] {2}));
+        validateReply(in, priceScanner.getSnapshot().getVersion(), 40);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("A", 2, 1));
+        priceRules.add(new BaseUnitPriceRule());
+        priceScanner.setPriceRules(priceRules);
+
+        socket.getOutputStream().write(encode(new String[] {"A"}, new int[] {2}));
+        validateReply(in, priceScanner.getSnapshot().getVersion(), 20);
+    }
+
+    /**
+     * Validate that a connection sending a frame whose items do not fill it is closed.
+     * @throws IOException  If the exchange fails.
+     */
+    @Test
+    public void testMalformedFrameClosesConnection() throws IOException
+    {
+        byte[] request = encode(new String[] {"A"}, new int[] {1});
+        request[7] = 2;
+        socket.getOutputStream().write(request);
+
+        Assert.assertEquals("Connection not closed", -1, socket.getInputStream().read());
+    }
+
+    /**
+     * Validate that a connection sending a frame longer than the maximum is closed.
+     * @throws IOException  If the exchange fails.
+     */
+    @Test
+    public void testOversizedFrameClosesConnection() throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeInt(MAXIMUM_FRAME_LENGTH + 1);
+        out.flush();
+
+        Assert.assertEquals("Connection not closed", -1, socket.getInputStream().read());
+    }
+
+    /**
+     * Validate that a price rule failing closes only the connection whose request it was pricing, and that later
+     * clients are still served.
+     * @throws IOException  If the exchange fails.
+     */
+    @Test
+    public void testFailingRuleClosesOnlyItsConnection() throws IOException
+    {
+        List<IPriceRule> failingRules = new ArrayList<IPriceRule>();
+        failingRules.add(new IPriceRule()
+        {
+            @Override
+            public int process(IShoppingCart cart, IInventoryLookup lookup)
+            {
+                throw new IllegalStateException("rule failed");
+            }
+        });
+        priceScanner.setPriceRules(failingRules);
+
+        socket.getOutputStream().write(encode(new String[] {"A"}, new int[] {1}));
+        Assert.assertEquals("Connection not closed", -1, socket.getInputStream().read());
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+        priceScanner.setPriceRules(priceRules);
+
+        Socket nextSocket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        try
+        {
+            nextSocket.setSoTimeout(5000);
+            nextSocket.getOutputStream().write(encode(new String[] {"A"}, new int[] {2}));
+            validateReply(new DataInputStream(nextSocket.getInputStream()), priceScanner.getSnapshot().getVersion(),
+                    40);
+        }
+        finally
+        {
+            nextSocket.close();
+        }
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null price scanner argument is passed into a
+     * BinaryCheckoutServer object's constructor.
+     * @throws IOException  If the address cannot be bound.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullPriceScannerInConstructorThrowsIllegalArgumentException() throws IOException
+    {
+        new BinaryCheckoutServer(null, new InetSocketAddress(0));
+    }
+
+    private static byte[] encode(String[] productIds, int[] quantities) throws IOException
+    {
+        ByteArrayOutputStream items = new ByteArrayOutputStream();
+        DataOutputStream itemsOut = new DataOutputStream(items);
+        itemsOut.writeInt(productIds.length);
+        for (int i = 0; i < productIds.length; i++)
+        {
+            byte[] id = productIds[i].getBytes("UTF-8");
+            itemsOut.writeShort(id.length);
+            itemsOut.write(id);
+            itemsOut.writeInt(quantities[i]);
+        }
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream frameOut = new DataOutputStream(frame);
+        frameOut.writeInt(items.size());
+        items.writeTo(frameOut);
+
+        return frame.toByteArray();
+    }
+
+    private static void validateReply(DataInputStream in, long expectedVersion, int expectedTotal) throws IOException
+    {
+        Assert.assertEquals("Unexpected reply length", BinaryCheckoutServer.REPLY_LENGTH, in.readInt());
+        Assert.assertEquals("Unexpected version", expectedVersion, in.readLong());
+        Assert.assertEquals("Unexpected total", expectedTotal, in.readInt());
+    }
+}
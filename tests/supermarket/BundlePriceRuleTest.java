@@ -0,0 +1,134 @@
+package supermarket;
+
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests for the BundlePriceRule class
+ */
+public class BundlePriceRuleTest
+{
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null component quantities argument is passed into a
+     * BundlePriceRule object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullComponentQuantitiesInConstructorThrowsIllegalArgumentException()
+    {
+        new BundlePriceRule(null, 90);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when empty component quantities are passed into a
+     * BundlePriceRule object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyComponentQuantitiesInConstructorThrowsIllegalArgumentException()
+    {
+        new BundlePriceRule(Collections.<String, Integer>emptyMap(), 90);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a component quantity of zero is passed into a
+     * BundlePriceRule object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testZeroComponentQuantityInConstructorThrowsIllegalArgumentException()
+    {
+        new BundlePriceRule(Collections.singletonMap("A", 0), 90);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a negative bundle price is passed into a
+     * BundlePriceRule object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeBundlePriceInConstructorThrowsIllegalArgumentException()
+    {
+        new BundlePriceRule(Collections.singletonMap("A", 1), -1);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null cart argument is passed into the process()
+     * method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullCartInProcessCallThrowsIllegalArgumentException()
+    {
+        IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        createBundle().process(null, inventory);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null lookup argument is passed into the process()
+     * method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullLookupInProcessCallThrowsIllegalArgumentException()
+    {
+        createBundle().process(new ShoppingCart("AB"), null);
+    }
+
+    /**
+     * Validate that the bundle is applied as many times as its scarcest component allows, claiming each component's
+     * quantity from the cart.
+     */
+    @Test
+    public void testCanProcessWithEveryComponentInCart()
+    {
+        IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        IShoppingCart cart = new ShoppingCart("AABABAABC");
+
+        Assert.assertEquals("Unexpected total", 180, createBundle().process(cart, inventory));
+        Assert.assertEquals("Unexpected quantity of A", 1, cart.getItemQuantity("A"));
+        Assert.assertEquals("Unexpected quantity of B", 1, cart.getItemQuantity("B"));
+        Assert.assertEquals("Unexpected quantity of C", 1, cart.getItemQuantity("C"));
+    }
+
+    /**
+     * Validate that the bundle claims nothing when any component is missing from the cart.
+     */
+    @Test
+    public void testCanProcessWithComponentMissingFromCart()
+    {
+        IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        IShoppingCart cart = new ShoppingCart("AAAC");
+
+        Assert.assertEquals("Unexpected total", 0, createBundle().process(cart, inventory));
+        Assert.assertEquals("Unexpected quantity of A", 3, cart.getItemQuantity("A"));
+        Assert.assertEquals("Unexpected quantity of C", 1, cart.getItemQuantity("C"));
+    }
+
+    /**
+     * Validate that the bundle prices an indexed cart the same as any other, and leaves the rest to later rules.
+     */
+    @Test
+    public void testCanProcessIndexedCartWithLaterRules()
+    {
+        Inventory inventory = new Inventory(Arrays.<IProduct>asList(new Product("A", 20),
+                new Product("B", 50), new Product("C", 30)));
+        IShoppingCart cart = new IndexedShoppingCart(new CharIndexedShoppingCart("CAABAB"), inventory.getDictionary());
+
+        int total = createBundle().process(cart, inventory) + new BaseUnitPriceRule().process(cart, inventory);
+        Assert.assertEquals("Unexpected total", 90 + 20 + 50 + 30, total);
+    }
+
+    private static BundlePriceRule createBundle()
+    {
+        Map<String, Integer> componentQuantities = new LinkedHashMap<String, Integer>();
+        componentQuantities.put("A", 2);
+        componentQuantities.put("B", 1);
+
+        return new BundlePriceRule(componentQuantities, 90);
+    }
+}
@@ -0,0 +1,211 @@
+package supermarket;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the CachingInventoryLookup class
+ */
+public class CachingInventoryLookupTest
+{
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null inventory argument is passed into a
+     * CachingInventoryLookup object's constructor
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotConstructWithNullInventory()
+    {
+        new CachingInventoryLookup(null, 10);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a maximum size less than 1 is passed into a
+     * CachingInventoryLookup object's constructor
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotConstructWithMaximumSizeLessThanOne()
+    {
+        new CachingInventoryLookup(context.mock(IInventoryLookup.class), 0);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a time to live of zero is passed into a
+     * CachingInventoryLookup object's constructor
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotConstructWithZeroTimeToLive()
+    {
+        new CachingInventoryLookup(context.mock(IInventoryLookup.class), 10, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null product id argument is passed into a
+     * CachingInventoryLookup object's getProduct() method
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotGetProductWithNullId()
+    {
+        new CachingInventoryLookup(context.mock(IInventoryLookup.class), 10).getProduct(null);
+    }
+
+    /**
+     * Validate that a product is only looked up in the underlying inventory the first time it is requested.
+     */
+    @Test
+    public void testRepeatedLookupIsAnsweredFromCache()
+    {
+        final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        final IProduct product = new Product("A", 20);
+
+        context.checking(new Expectations() {{
+            oneOf(inventory).getProduct("A");
+            will(returnValue(product));
+        }});
+
+        CachingInventoryLookup cache = new CachingInventoryLookup(inventory, 10);
+        Assert.assertSame("Unexpected product on first lookup", product, cache.getProduct("A"));
+        Assert.assertSame("Unexpected product on second lookup", product, cache.getProduct("A"));
+        Assert.assertSame("Unexpected product on third lookup", product, cache.getProduct("A"));
+
+        Assert.assertEquals("Unexpected hit count", 2, cache.getHitCount());
+        Assert.assertEquals("Unexpected miss count", 1, cache.getMissCount());
+        Assert.assertEquals("Unexpected eviction count", 0, cache.getEvictionCount());
+    }
+
+    /**
+     * Validate that an id which is not found in the underlying inventory is cached as not found.
+     */
+    @Test
+    public void testMissingProductIsCached()
+    {
+        final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+
+        context.checking(new Expectations() {{
+            oneOf(inventory).getProduct("Z");
+            will(returnValue(null));
+        }});
+
+        CachingInventoryLookup cache = new CachingInventoryLookup(inventory, 10);
+        Assert.assertNull("Unexpected product on first lookup", cache.getProduct("Z"));
+        Assert.assertNull("Unexpected product on second lookup", cache.getProduct("Z"));
+        Assert.assertEquals("Unexpected hit count", 1, cache.getHitCount());
+    }
+
+    /**
+     * Validate that an entry is loaded again once its time to live has passed.
+     */
+    @Test
+    public void testExpiredEntryIsLoadedAgain()
+    {
+        final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        final IProduct originalProduct = new Product("A", 20);
+        final IProduct newProduct = new Product("A", 25);
+        final long[] now = {0};
+
+        context.checking(new Expectations() {{
+            oneOf(inventory).getProduct("A");
+            will(returnValue(originalProduct));
+
+            oneOf(inventory).getProduct("A");
+            will(returnValue(newProduct));
+        }});
+
+        CachingInventoryLookup cache = new CachingInventoryLookup(inventory, 10, 5, TimeUnit.SECONDS,
+                new ITimeSource()
+                {
+                    @Override
+                    public long nanoTime()
+                    {
+                        return now[0];
+                    }
+                });
+
+        Assert.assertSame("Unexpected product on first lookup", originalProduct, cache.getProduct("A"));
+        now[0] = TimeUnit.SECONDS.toNanos(5) - 1;
+        Assert.assertSame("Unexpected product before expiry", originalProduct, cache.getProduct("A"));
+        now[0] = TimeUnit.SECONDS.toNanos(5);
+        Assert.assertSame("Unexpected product after expiry", newProduct, cache.getProduct("A"));
+        Assert.assertEquals("Unexpected miss count", 2, cache.getMissCount());
+        Assert.assertEquals("Unexpected eviction count", 0, cache.getEvictionCount());
+    }
+
+    /**
+     * Validate that invalidated entries are loaded again.
+     */
+    @Test
+    public void testInvalidatedEntriesAreLoadedAgain()
+    {
+        final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        final IProduct productA = new Product("A", 20);
+        final IProduct productB = new Product("B", 50);
+
+        context.checking(new Expectations() {{
+            exactly(3).of(inventory).getProduct("A");
+            will(returnValue(productA));
+
+            exactly(2).of(inventory).getProduct("B");
+            will(returnValue(productB));
+        }});
+
+        CachingInventoryLookup cache = new CachingInventoryLookup(inventory, 10);
+        cache.getProduct("A");
+        cache.getProduct("B");
+
+        cache.invalidate("A");
+        Assert.assertEquals("Unexpected size after invalidating one id", 1, cache.size());
+        cache.getProduct("A");
+        cache.getProduct("B");
+
+        cache.invalidateAll();
+        Assert.assertEquals("Unexpected size after invalidating all ids", 0, cache.size());
+        cache.getProduct("A");
+        cache.getProduct("B");
+
+        Assert.assertEquals("Unexpected hit count", 1, cache.getHitCount());
+        Assert.assertEquals("Unexpected miss count", 5, cache.getMissCount());
+    }
+
+    /**
+     * Validate that the cache stays within its maximum size, and that frequently used ids stay cached while a stream
+     * of ids which are used once passes through it.
+     */
+    @Test
+    public void testFrequentlyUsedIdsSurviveEviction()
+    {
+        Inventory inventory = new Inventory();
+        CachingInventoryLookup cache = new CachingInventoryLookup(inventory, 100);
+
+        for (int round = 0; round < 5; round++)
+        {
+            for (int i = 0; i < 50; i++)
+            {
+                cache.getProduct("popular" + i);
+            }
+        }
+
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.getProduct("once" + i);
+            Assert.assertTrue("Cache exceeded maximum size", cache.size() <= 100);
+        }
+
+        long hitCount = cache.getHitCount();
+        for (int i = 0; i < 50; i++)
+        {
+            cache.getProduct("popular" + i);
+        }
+
+        // Frequencies are approximate, so allow for a few frequently used ids losing out to hash collisions.  A plain
+        // LRU cache would have evicted all of them.
+        Assert.assertTrue("Frequently used ids were evicted", cache.getHitCount() - hitCount >= 45);
+        Assert.assertTrue("Unexpected eviction count", cache.getEvictionCount() >= 950);
+    }
+}
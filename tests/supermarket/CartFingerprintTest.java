@@ -0,0 +1,84 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests for the CartFingerprint class
+ */
+public class CartFingerprintTest
+{
+    /**
+     * Validate that carts of the same kind holding the same quantities of the same products have equal fingerprints,
+     * whatever their item order.
+     */
+    @Test
+    public void testSameContentsHaveEqualFingerprints()
+    {
+        CartFingerprint first = new CartFingerprint(new ShoppingCart("ABBAC"));
+        CartFingerprint second = new CartFingerprint(new ShoppingCart("CBBAA"));
+
+        Assert.assertEquals("Fingerprints not equal", first, second);
+        Assert.assertEquals("Hash codes not equal", first.hashCode(), second.hashCode());
+        Assert.assertEquals("Unexpected product count", 3, first.getProductCount());
+        Assert.assertEquals("Unexpected quantity of B", 2, first.getQuantity(1));
+
+        Assert.assertEquals("Char indexed fingerprints not equal",
+                new CartFingerprint(new CharIndexedShoppingCart("ABBAC")),
+                new CartFingerprint(new CharIndexedShoppingCart("CBBAA")));
+
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("C", "B", "A"));
+        Assert.assertEquals("Indexed fingerprints not equal",
+                new CartFingerprint(new IndexedShoppingCart(new CharIndexedShoppingCart("ABBAC"), dictionary)),
+                new CartFingerprint(new IndexedShoppingCart(new CharIndexedShoppingCart("CBBAA"), dictionary)));
+    }
+
+    /**
+     * Validate that quantities can be read from and written to a cart by position in the fingerprint.
+     */
+    @Test
+    public void testCanGetAndSetQuantitiesInCart()
+    {
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("A", "B"));
+        IShoppingCart[] carts = {new ShoppingCart("ABB"), new CharIndexedShoppingCart("ABB"),
+                new IndexedShoppingCart(new CharIndexedShoppingCart("ABB"), dictionary)};
+
+        for (IShoppingCart cart : carts)
+        {
+            CartFingerprint fingerprint = new CartFingerprint(cart);
+            Assert.assertEquals("Unexpected quantity of A", 1, fingerprint.getQuantityIn(cart, 0));
+
+            fingerprint.setQuantityIn(cart, 1, 5);
+            Assert.assertEquals("Unexpected quantity of B in fingerprint", 2, fingerprint.getQuantity(1));
+            Assert.assertEquals("Unexpected quantity of B in cart", 5, cart.getItem("B").getQuantity());
+        }
+    }
+
+    /**
+     * Validate that carts with different quantities have different fingerprints, and that items with no quantity are
+     * left out.
+     */
+    @Test
+    public void testDifferentContentsHaveDifferentFingerprints()
+    {
+        ShoppingCart emptiedCart = new ShoppingCart("AB");
+        emptiedCart.setItemQuantity("B", 0);
+
+        Assert.assertFalse("Fingerprints equal", new CartFingerprint(new ShoppingCart("AB")).equals(
+                new CartFingerprint(new ShoppingCart("ABB"))));
+        Assert.assertEquals("Item with no quantity included", new CartFingerprint(new ShoppingCart("A")),
+                new CartFingerprint(emptiedCart));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null cart argument is passed into a CartFingerprint
+     * object's constructor
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotConstructWithNullCart()
+    {
+        new CartFingerprint(null);
+    }
+}
@@ -0,0 +1,151 @@
+package supermarket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for the CatalogLoader class.
+ */
+public class CatalogLoaderTest
+{
+    private File file;
+    private ForkJoinPool pool;
+
+    /**
+     * Create the file from which each test loads its catalog.
+     * @throws IOException  If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("catalog", ".csv");
+        file.deleteOnExit();
+        pool = new ForkJoinPool(4);
+    }
+
+    /**
+     * Delete the catalog file.
+     */
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+        file.delete();
+    }
+
+    /**
+     * Validate that products are loaded from a file with a header, blank lines, CRLF line endings, padded fields and no
+     * final line break, with the last of repeated ids winning.
+     * @throws IOException  If the file cannot be loaded.
+     */
+    @Test
+    public void testCanLoadProducts() throws IOException
+    {
+        write("id,unitPrice\r\nA,20\r\n\r\n B , 50\n4006381333931,30\nA,25");
+
+        CatalogLoader.Result result = new CatalogLoader(pool).load(file);
+        ProductCatalog catalog = result.getCatalog();
+
+        Assert.assertTrue("Unexpected errors " + result.getErrors(), result.getErrors().isEmpty());
+        Assert.assertEquals("Unexpected product count", 3, catalog.getDictionary().size());
+        Assert.assertEquals("Unexpected price for A", 25, catalog.getProduct("A").getUnitPrice());
+        Assert.assertEquals("Unexpected price for B", 50, catalog.getProduct("B").getUnitPrice());
+        Assert.assertEquals("Unexpected price for barcode", 30, catalog.getProduct("4006381333931").getUnitPrice());
+        Assert.assertEquals("Unexpected products", 3, catalog.getProducts().size());
+        Assert.assertNull("Unexpected header product", catalog.getProduct("id"));
+    }
+
+    /**
+     * Validate that invalid lines are reported with their line numbers and left out, while the valid lines are loaded.
+     * @throws IOException  If the file cannot be loaded.
+     */
+    @Test
+    public void testInvalidLinesAreReported() throws IOException
+    {
+        write("A,20\nB\n,30\nC,-1\nD,x\nE,99999999999\nF,40\n");
+
+        CatalogLoader.Result result = new CatalogLoader(pool).load(file);
+
+        Assert.assertEquals("Unexpected product count", 2, result.getCatalog().getDictionary().size());
+        Assert.assertEquals("Unexpected error count", 5, result.getErrors().size());
+        for (int i = 0; i < 5; i++)
+        {
+            Assert.assertEquals("Unexpected line for error " + i, i + 2, result.getErrors().get(i).getLine());
+        }
+        Assert.assertEquals("Unexpected message", "id is empty", result.getErrors().get(1).getMessage());
+    }
+
+    /**
+     * Validate that a file split into several chunks loads every product and numbers error lines across chunks.
+     * @throws IOException  If the file cannot be loaded.
+     */
+    @Test
+    public void testCanLoadFileOfSeveralChunks() throws IOException
+    {
+        int lineCount = 300000;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try
+        {
+            for (int i = 1; i <= lineCount; i++)
+            {
+                out.write((i % 100000 == 0 ? "bad line\n" : "SKU" + i + "," + i + "\n").getBytes("US-ASCII"));
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        Assert.assertTrue("File too short to split", file.length() > 2 << 20);
+
+        CatalogLoader.Result result = new CatalogLoader(pool).load(file);
+
+        Assert.assertEquals("Unexpected product count", lineCount - 3, result.getCatalog().getDictionary().size());
+        Assert.assertEquals("Unexpected price", 123457, result.getCatalog().getProduct("SKU123457").getUnitPrice());
+        Assert.assertEquals("Unexpected error count", 3, result.getErrors().size());
+        Assert.assertEquals("Unexpected error line", 200000, result.getErrors().get(1).getLine());
+        Assert.assertEquals("Unexpected error line", 300000, result.getErrors().get(2).getLine());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null pool argument is passed into a CatalogLoader
+     * object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullPoolInConstructorThrowsIllegalArgumentException()
+    {
+        new CatalogLoader(null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null file argument is passed into a CatalogLoader
+     * object's load() method.
+     * @throws IOException  If the file cannot be loaded.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullFileInLoadCallThrowsIllegalArgumentException() throws IOException
+    {
+        new CatalogLoader(pool).load(null);
+    }
+
+    private void write(String text) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(text.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tests for the CharIndexedShoppingCart class.
+ */
+public class CharIndexedShoppingCartTest
+{
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null items argument is passed into a
+     * CharIndexedShoppingCart object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullItemsInConstructorThrowsIllegalArgumentException()
+    {
+        new CharIndexedShoppingCart((String) null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null reader argument is passed into a
+     * CharIndexedShoppingCart object's constructor.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullReaderInConstructorThrowsIllegalArgumentException() throws IOException
+    {
+        new CharIndexedShoppingCart((Reader) null);
+    }
+
+    /**
+     * Validate that items read from a reader in several chunks are counted the same as items passed as a string.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test
+    public void testCanCaptureItemsFromReaderCorrectly() throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+        {
+            builder.append("ABBACBBAB");
+        }
+        String items = builder.toString();
+
+        Collection<IItem> expectedItems = new CharIndexedShoppingCart(items).getItems();
+        Collection<IItem> cartItems = new CharIndexedShoppingCart(new StringReader(items)).getItems();
+
+        validateItems(new ArrayList<IItem>(expectedItems), cartItems);
+        validateItem(new CharIndexedShoppingCart(new StringReader(items)).getItem("B"), "B", 50000);
+    }
+
+    /**
+     * Validate that a shopping cart with an empty items argument is translated to a collection of zero Item objects.
+     */
+    @Test
+    public void testCanCaptureZeroItemsCorrectly()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("");
+
+        validateItems(expectedItems, cart.getItems());
+    }
+
+    /**
+     * Validate that a shopping cart with an items argument with multiple items is translated to a collection with the
+     * appropriate corresponding content.
+     */
+    @Test
+    public void testCanCaptureMultipleItemsCorrectly()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 3));
+        expectedItems.add(new Item("B", 5));
+        expectedItems.add(new Item("C", 1));
+
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+
+        validateItems(expectedItems, cart.getItems());
+    }
+
+    /**
+     * Validate that items whose product id falls outside of the ASCII range are counted correctly.
+     */
+    @Test
+    public void testCanCaptureNonAsciiItemsCorrectly()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 1));
+        expectedItems.add(new Item("\u00e9", 2));
+        expectedItems.add(new Item("\u4e2d", 1));
+
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("\u00e9A\u4e2d\u00e9");
+
+        validateItems(expectedItems, cart.getItems());
+    }
+
+    /**
+     * Validate that an item obtained from a shopping cart has the expected content.
+     */
+    @Test
+    public void testCanFindItem()
+    {
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+
+        validateItem(cart.getItem("B"), "B", 5);
+    }
+
+    /**
+     * Validate that an item not expected to be present in a shopping cart is obtained as null.
+     */
+    @Test
+    public void testCannotFindNonexistentItem()
+    {
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+
+        Assert.assertNull("Item retrieved is non-null", cart.getItem("D"));
+        Assert.assertNull("Item retrieved for multi-character id is non-null", cart.getItem("AB"));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an empty product id argument is passed into a
+     * CharIndexedShoppingCart object's getItem() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyProductIdInGetItemCallThrowsIllegalArgumentException()
+    {
+        new CharIndexedShoppingCart("").getItem("");
+    }
+
+    /**
+     * Validate that the quantity for an item in the shopping cart can be set properly, including down to zero, and
+     * that an item set to zero remains in the cart.
+     */
+    @Test
+    public void testCanSetItemQuantity()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 0));
+        expectedItems.add(new Item("B", 2));
+        expectedItems.add(new Item("C", 1));
+
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+        Assert.assertTrue("Set quantity failed", cart.setItemQuantity("A", 0));
+        Assert.assertTrue("Set quantity failed", cart.setItemQuantity("B", 2));
+
+        validateItem(cart.getItem("A"), "A", 0);
+        validateItems(expectedItems, cart.getItems());
+    }
+
+    /**
+     * Validate that the quantity for an item not in the shopping cart cannot be set.
+     */
+    @Test
+    public void testCannotSetItemQuantityForNonexistentItem()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 3));
+        expectedItems.add(new Item("B", 5));
+        expectedItems.add(new Item("C", 1));
+
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+        Assert.assertFalse("Set quantity succeeded", cart.setItemQuantity("D", 1));
+        Assert.assertFalse("Set quantity succeeded for multi-character id", cart.setItemQuantity("AB", 1));
+
+        validateItems(expectedItems, cart.getItems());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a negative quantity argument is passed into a
+     * CharIndexedShoppingCart object's setItemQuantity() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeQuantityInSetItemQuantityThrowsIllegalArgumentException()
+    {
+        new CharIndexedShoppingCart("ABBACBBAB").setItemQuantity("A", -5);
+    }
+
+    /**
+     * Validate that the cart reports the same items as a ShoppingCart built from the same token string.
+     */
+    @Test
+    public void testItemsMatchShoppingCart()
+    {
+        String items = "BACABBACBBABBBCBBBA";
+
+        Collection<IItem> expectedItems = new ShoppingCart(items).getItems();
+        Collection<IItem> cartItems = new CharIndexedShoppingCart(items).getItems();
+
+        validateItems(new ArrayList<IItem>(expectedItems), cartItems);
+    }
+
+    /**
+     * Validate that each item is passed to a visitor, and that the visitor can change the quantity of the item it is
+     * visiting.
+     */
+    @Test
+    public void testCanVisitItems()
+    {
+        final CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+        final List<IItem> visitedItems = new ArrayList<IItem>();
+
+        cart.forEachItem(new IItemVisitor()
+        {
+            @Override
+            public void visit(String productId, int quantity)
+            {
+                visitedItems.add(new Item(productId, quantity));
+                cart.setItemQuantity(productId, 0);
+            }
+        });
+
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 3));
+        expectedItems.add(new Item("B", 5));
+        expectedItems.add(new Item("C", 1));
+        validateItems(expectedItems, visitedItems);
+        Assert.assertEquals("Unexpected quantity after visit", 0, cart.getItemQuantity("A"));
+    }
+
+    /**
+     * Validate that the quantity of an item can be obtained by product id, and is zero for items not in the cart.
+     */
+    @Test
+    public void testCanGetItemQuantity()
+    {
+        CharIndexedShoppingCart cart = new CharIndexedShoppingCart("ABBACBBAB");
+
+        Assert.assertEquals("Unexpected quantity", 3, cart.getItemQuantity("A"));
+        Assert.assertEquals("Unexpected quantity for nonexistent item", 0, cart.getItemQuantity("D"));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an empty product id argument is passed into a
+     * CharIndexedShoppingCart object's getItemQuantity() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyProductIdInGetItemQuantityCallThrowsIllegalArgumentException()
+    {
+        new CharIndexedShoppingCart("").getItemQuantity("");
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null visitor argument is passed into a
+     * CharIndexedShoppingCart object's forEachItem() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullVisitorInForEachItemCallThrowsIllegalArgumentException()
+    {
+        new CharIndexedShoppingCart("").forEachItem(null);
+    }
+
+    private void validateItem(IItem item, String expectedProductId, int expectedQuantity)
+    {
+        Assert.assertNotNull("Item retrieved is null", item);
+        Assert.assertEquals("Unexpected product id returned for item", expectedProductId, item.getProductId());
+        Assert.assertEquals("Unexpected quantity returned for item", expectedQuantity, item.getQuantity());
+    }
+
+    private void validateItems(List<IItem> expectedItems, Collection<IItem> cartItems)
+    {
+        String message = IShoppingCartMatcher.getItemComparisonFailureMessage(expectedItems, cartItems);
+        if (!message.isEmpty())
+        {
+            Assert.fail("Errors comparing expected items to cart items: " + message);
+        }
+    }
+}
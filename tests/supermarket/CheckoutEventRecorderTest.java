@@ -0,0 +1,95 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the CheckoutEventRecorder class
+ */
+public class CheckoutEventRecorderTest
+{
+    /**
+     * Validate that each checkout and each price rule processed is recorded once the recorder is installed.
+     */
+    @Test
+    public void testCheckoutsAndRulesAreRecorded()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        PriceScanner priceScanner = new PriceScanner(new Inventory(products), priceRules);
+        Supermarket supermarket = new Supermarket(priceScanner);
+        CheckoutEventRecorder recorder = new CheckoutEventRecorder();
+
+        supermarket.checkout("AB");
+        supermarket.setCheckoutListener(recorder);
+        priceScanner.setScanListener(recorder);
+        Assert.assertEquals("Unexpected total", 270, supermarket.checkout("ABBBBBBB"));
+
+        List<CheckoutEventRecorder.RecordedEvent> events = recorder.getEvents();
+        Assert.assertEquals("Unexpected event count", 3, events.size());
+
+        CheckoutEventRecorder.RuleEvent dealEvent = (CheckoutEventRecorder.RuleEvent) events.get(0);
+        Assert.assertEquals("Unexpected rule class", XForThePriceOfYPriceRule.class.getName(),
+                dealEvent.getRuleClass());
+        Assert.assertEquals("Unexpected product ids", "B", dealEvent.getProductIds());
+        Assert.assertEquals("Unexpected quantity consumed", 5, dealEvent.getQuantityConsumed());
+
+        CheckoutEventRecorder.RuleEvent unitPriceEvent = (CheckoutEventRecorder.RuleEvent) events.get(1);
+        Assert.assertNull("Unexpected product ids", unitPriceEvent.getProductIds());
+        Assert.assertEquals("Unexpected quantity consumed", 3, unitPriceEvent.getQuantityConsumed());
+
+        CheckoutEventRecorder.CheckoutEvent checkoutEvent = (CheckoutEventRecorder.CheckoutEvent) events.get(2);
+        Assert.assertEquals("Unexpected item count", 8, checkoutEvent.getItemCount());
+        Assert.assertEquals("Unexpected product count", 2, checkoutEvent.getProductCount());
+        Assert.assertEquals("Unexpected total", 270, checkoutEvent.getTotal());
+        Assert.assertEquals("Unexpected thread", Thread.currentThread().getName(), checkoutEvent.getThreadName());
+        Assert.assertTrue("Unexpected duration", checkoutEvent.getDurationNanos() >= 0);
+    }
+
+    /**
+     * Validate that only the most recent events are kept once the recorder is full, and that they are dumped oldest
+     * first.
+     * @throws IOException  If the events cannot be dumped.
+     */
+    @Test
+    public void testOldestEventsAreOverwritten() throws IOException
+    {
+        CheckoutEventRecorder recorder = new CheckoutEventRecorder(2);
+        for (int total = 1; total <= 5; total++)
+        {
+            recorder.checkoutCompleted(1, 1, total, 0);
+        }
+
+        List<CheckoutEventRecorder.RecordedEvent> events = recorder.getEvents();
+        Assert.assertEquals("Unexpected event count", 2, events.size());
+        Assert.assertEquals("Unexpected oldest total", 4,
+                ((CheckoutEventRecorder.CheckoutEvent) events.get(0)).getTotal());
+
+        StringBuilder dump = new StringBuilder();
+        recorder.dump(dump);
+        String[] lines = dump.toString().split("\n");
+        Assert.assertEquals("Unexpected line count", 2, lines.length);
+        Assert.assertTrue("Unexpected last line " + lines[1], lines[1].startsWith("CheckoutEvent ") &&
+                lines[1].endsWith(" total=5"));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a capacity of zero is passed into a
+     * CheckoutEventRecorder object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testZeroCapacityInConstructorThrowsIllegalArgumentException()
+    {
+        new CheckoutEventRecorder(0);
+    }
+}
@@ -0,0 +1,165 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the CheckoutMetrics class
+ */
+public class CheckoutMetricsTest
+{
+    private Inventory inventory;
+    private PriceScanner priceScanner;
+    private CheckoutMetrics metrics;
+
+    @Before
+    public void setUp()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        inventory = new Inventory(products);
+        priceScanner = new PriceScanner(inventory, priceRules);
+        metrics = new CheckoutMetrics();
+        priceScanner.setScanListener(metrics);
+    }
+
+    /**
+     * Validate that scans and rules are counted, along with the quantity each rule consumed and the discount it
+     * granted.
+     * @throws JMException  If an attribute cannot be read.
+     */
+    @Test
+    public void testScansAndRulesAreCounted() throws JMException
+    {
+        Assert.assertEquals("Unexpected total", 270, priceScanner.scanItems(new ShoppingCart("ABBBBBBB")));
+        Assert.assertEquals("Unexpected total", 20, priceScanner.scanItems(new ShoppingCart("A")));
+
+        Assert.assertEquals("Unexpected scan count", 2L, metrics.getAttribute("ScanCount"));
+        Assert.assertEquals("Unexpected total priced", 290L, metrics.getAttribute("ScanTotalPriced"));
+
+        Assert.assertEquals("Unexpected deal invocations", 1L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].Invocations"));
+        Assert.assertEquals("Unexpected deal quantity", 5L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].QuantityConsumed"));
+        Assert.assertEquals("Unexpected deal discount", 100L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].DiscountGranted"));
+
+        Assert.assertEquals("Unexpected unit price invocations", 2L,
+                metrics.getAttribute("BaseUnitPriceRule.Invocations"));
+        Assert.assertEquals("Unexpected unit price matches", 2L,
+                metrics.getAttribute("BaseUnitPriceRule.MatchedInvocations"));
+        Assert.assertEquals("Unexpected unit price quantity", 4L,
+                metrics.getAttribute("BaseUnitPriceRule.QuantityConsumed"));
+        Assert.assertEquals("Unexpected unit price discount", 0L,
+                metrics.getAttribute("BaseUnitPriceRule.DiscountGranted"));
+    }
+
+    /**
+     * Validate that the metrics can be read through the platform MBean server once registered.
+     * @throws JMException  If the metrics cannot be registered or read.
+     */
+    @Test
+    public void testCanReadThroughPlatformMBeanServer() throws JMException
+    {
+        priceScanner.scanItems(new ShoppingCart("AB"));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.register();
+        try
+        {
+            Assert.assertEquals("Unexpected scan count", 1L, server.getAttribute(name, "ScanCount"));
+            Assert.assertEquals("Unexpected invocations", 1L,
+                    server.getAttribute(name, "BaseUnitPriceRule.Invocations"));
+            Assert.assertTrue("Max below p99", (Long) server.getAttribute(name, "ScanLatencyMaxNanos") >=
+                    (Long) server.getAttribute(name, "ScanLatencyP99Nanos"));
+
+            server.invoke(name, "reset", null, null);
+            Assert.assertEquals("Unexpected scan count after reset", 0L, server.getAttribute(name, "ScanCount"));
+        }
+        finally
+        {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Validate that nothing is recorded once the scanner's listener is removed.
+     * @throws JMException  If an attribute cannot be read.
+     */
+    @Test
+    public void testNothingIsRecordedWithoutListener() throws JMException
+    {
+        priceScanner.setScanListener(null);
+        priceScanner.scanItems(new ShoppingCart("AB"));
+
+        Assert.assertEquals("Unexpected scan count", 0L, metrics.getAttribute("ScanCount"));
+        Assert.assertEquals("Unexpected rule attributes", 6, metrics.getMBeanInfo().getAttributes().length);
+    }
+
+    /**
+     * Validate that equivalent rules loaded in place of the old ones keep their metrics rather than adding new ones,
+     * and that duplicate rules are told apart by their order.
+     * @throws JMException  If an attribute cannot be read.
+     */
+    @Test
+    public void testReloadedRulesKeepTheirMetrics() throws JMException
+    {
+        priceScanner.scanItems(new ShoppingCart("B"));
+        int attributeCount = metrics.getMBeanInfo().getAttributes().length;
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+        priceScanner.setPriceRules(priceRules);
+        priceScanner.scanItems(new ShoppingCart("B"));
+
+        Assert.assertEquals("Unexpected deal invocations", 2L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].Invocations"));
+        Assert.assertEquals("Unexpected attribute count", attributeCount,
+                metrics.getMBeanInfo().getAttributes().length);
+
+        priceRules.add(1, new XForThePriceOfYPriceRule("B", 2, 1));
+        priceScanner.setPriceRules(priceRules);
+        priceScanner.scanItems(new ShoppingCart("B"));
+
+        Assert.assertEquals("Unexpected deal invocations", 3L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].Invocations"));
+        Assert.assertEquals("Unexpected duplicate deal invocations", 1L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B]#2.Invocations"));
+    }
+
+    /**
+     * Validate that an indexed cart is measured the same as a cart of product ids.
+     * @throws JMException  If an attribute cannot be read.
+     */
+    @Test
+    public void testIndexedCartIsMeasuredLikeCartOfIds() throws JMException
+    {
+        IndexedShoppingCart cart = new IndexedShoppingCart(inventory.getDictionary());
+        SkuTokenizer.addItems("A B B B B B B B Z", cart);
+        Assert.assertEquals("Unexpected total", 270, priceScanner.scanItems(cart));
+
+        Assert.assertEquals("Unexpected deal quantity", 5L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].QuantityConsumed"));
+        Assert.assertEquals("Unexpected deal discount", 100L,
+                metrics.getAttribute("XForThePriceOfYPriceRule[B].DiscountGranted"));
+        Assert.assertEquals("Unexpected unit price quantity", 3L,
+                metrics.getAttribute("BaseUnitPriceRule.QuantityConsumed"));
+        Assert.assertEquals("Unexpected unit price discount", 0L,
+                metrics.getAttribute("BaseUnitPriceRule.DiscountGranted"));
+    }
+}
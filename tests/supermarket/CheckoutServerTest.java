@@ -0,0 +1,270 @@
+package supermarket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the CheckoutServer class, run against a server listening on localhost
+ */
+public class CheckoutServerTest
+{
+    private static final int MAXIMUM_BODY_LENGTH = 64;
+
+    private PriceScanner priceScanner;
+    private CheckoutServer server;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("C", 30));
+        Inventory inventory = new Inventory(products);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        priceScanner = new PriceScanner(inventory, priceRules);
+        server = new CheckoutServer(new Supermarket(priceScanner, inventory),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, MAXIMUM_BODY_LENGTH);
+        server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    /**
+     * Validate that posting a cart to /checkout responds with its total.
+     * @throws IOException  If the request fails.
+     */
+    @Test
+    public void testCanCheckOutCart() throws IOException
+    {
+        HttpURLConnection connection = post("/checkout", "ABBACBBAB");
+
+        Assert.assertEquals("Unexpected status", 200, connection.getResponseCode());
+        Assert.assertEquals("Unexpected total", "240\n", readFully(connection.getInputStream()));
+    }
+
+    /**
+     * Validate that posting carts to /checkout/batch responds with the total of each, in order.
+     * @throws IOException  If the request fails.
+     */
+    @Test
+    public void testCanCheckOutBatch() throws IOException
+    {
+        HttpURLConnection connection = post("/checkout/batch", "ABBACBBAB\r\nA\n\nBACABBACBBABBBCBBBA\n");
+
+        Assert.assertEquals("Unexpected status", 200, connection.getResponseCode());
+        Assert.assertEquals("Unexpected totals", "240\n20\n0\n540\n", readFully(connection.getInputStream()));
+    }
+
+    /**
+     * Validate that a body longer than the maximum is refused.
+     * @throws IOException  If the request fails.
+     */
+    @Test
+    public void testBodyLongerThanMaximumIsRefused() throws IOException
+    {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i <= MAXIMUM_BODY_LENGTH; i++)
+        {
+            items.append('A');
+        }
+
+        Assert.assertEquals("Unexpected status", 413, post("/checkout", items.toString()).getResponseCode());
+    }
+
+    /**
+     * Validate that a request whose checkout throws is answered with a server error rather than a dropped connection,
+     * and that the server goes on serving once the rules are fixed.
+     * @throws IOException  If a request fails.
+     */
+    @Test
+    public void testFailingRuleRespondsWithServerError() throws IOException
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new IPriceRule()
+        {
+            @Override
+            public int process(IShoppingCart cart, IInventoryLookup lookup)
+            {
+                throw new IllegalStateException("rule failed");
+            }
+        });
+        priceScanner.setPriceRules(priceRules);
+
+        Assert.assertEquals("Unexpected status", 500, post("/checkout", "AB").getResponseCode());
+        Assert.assertEquals("Unexpected batch status", 500, post("/checkout/batch", "AB\nA\n").getResponseCode());
+
+        priceRules.set(0, new BaseUnitPriceRule());
+        priceScanner.setPriceRules(priceRules);
+        Assert.assertEquals("Unexpected status once fixed", 200, post("/checkout", "AB").getResponseCode());
+    }
+
+    /**
+     * Validate that requests other than POST, and paths other than the endpoints, are refused.
+     * @throws IOException  If the request fails.
+     */
+    @Test
+    public void testUnsupportedRequestsAreRefused() throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) createUrl("/checkout").openConnection();
+        Assert.assertEquals("Unexpected status for GET", 405, connection.getResponseCode());
+        Assert.assertEquals("Unexpected Allow header", "POST", connection.getHeaderField("Allow"));
+
+        Assert.assertEquals("Unexpected status for unknown path", 404, post("/checkouts", "A").getResponseCode());
+    }
+
+    /**
+     * Validate that several requests can be sent over one connection.
+     * @throws IOException  If a request fails.
+     */
+    @Test
+    public void testConnectionIsKeptAlive() throws IOException
+    {
+        Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        try
+        {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            String[] carts = {"ABBACBBAB", "C", "BBBBB"};
+            String[] totals = {"240\n", "30\n", "150\n"};
+            for (int i = 0; i < carts.length; i++)
+            {
+                out.write(("POST /checkout HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + carts[i].length() +
+                        "\r\n\r\n" + carts[i]).getBytes("US-ASCII"));
+                out.flush();
+
+                Assert.assertEquals("Unexpected total for request " + i, totals[i], readResponseBody(in));
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null supermarket argument is passed into a
+     * CheckoutServer object's constructor.
+     * @throws IOException  If the address cannot be bound.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullSupermarketInConstructorThrowsIllegalArgumentException() throws IOException
+    {
+        new CheckoutServer(null, new InetSocketAddress(0));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a maximum body length of zero is passed into a
+     * CheckoutServer object's constructor.
+     * @throws IOException  If the address cannot be bound.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testZeroMaximumBodyLengthInConstructorThrowsIllegalArgumentException() throws IOException
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        new CheckoutServer(new Supermarket(new PriceScanner(new Inventory(new ArrayList<IProduct>()), priceRules)),
+                new InetSocketAddress(0), null, 0);
+    }
+
+    private URL createUrl(String path) throws IOException
+    {
+        return new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+    }
+
+    private HttpURLConnection post(String path, String body) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) createUrl(path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+
+        OutputStream out = connection.getOutputStream();
+        out.write(body.getBytes("UTF-8"));
+        out.close();
+
+        return connection;
+    }
+
+    private static String readFully(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            bytes.write(buffer, 0, read);
+        }
+        in.close();
+
+        return bytes.toString("UTF-8");
+    }
+
+    private static String readResponseBody(InputStream in) throws IOException
+    {
+        int contentLength = -1;
+
+        String line;
+        while (!(line = readLine(in)).isEmpty())
+        {
+            if (line.toLowerCase().startsWith("content-length:"))
+            {
+                contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+            }
+        }
+
+        Assert.assertTrue("Response has no fixed length", contentLength >= 0);
+
+        byte[] body = new byte[contentLength];
+        int offset = 0;
+        while (offset < contentLength)
+        {
+            int read = in.read(body, offset, contentLength - offset);
+            Assert.assertTrue("Connection closed mid-response", read >= 0);
+            offset += read;
+        }
+
+        return new String(body, "UTF-8");
+    }
+
+    private static String readLine(InputStream in) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+
+        int b;
+        while ((b = in.read()) != '\n')
+        {
+            Assert.assertTrue("Connection closed mid-response", b >= 0);
+            if (b != '\r')
+            {
+                line.append((char) b);
+            }
+        }
+
+        return line.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the CheckoutSession class
+ */
+public class CheckoutSessionTest
+{
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null price scanner argument is passed into a
+     * CheckoutSession object's constructor
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotConstructWithNullPriceScanner()
+    {
+        new CheckoutSession(null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null product id argument is passed into a
+     * CheckoutSession object's scan() method
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotScanNullProductId()
+    {
+        new CheckoutSession(createPriceScanner(createPriceRules())).scan(null);
+    }
+
+    /**
+     * Validate that the running total follows each scan and void.
+     */
+    @Test
+    public void testRunningTotalFollowsScansAndVoids()
+    {
+        CheckoutSession session = new CheckoutSession(createPriceScanner(createPriceRules()));
+        Assert.assertEquals("Unexpected total for empty cart", 0, session.currentTotal());
+
+        session.scan("A");
+        Assert.assertEquals("Unexpected total after A", 20, session.currentTotal());
+        session.scan("A");
+        Assert.assertEquals("Unexpected total after AA", 40, session.currentTotal());
+        session.scan("A");
+        Assert.assertEquals("Unexpected total after AAA", 40, session.currentTotal());
+        session.scan("B");
+        Assert.assertEquals("Unexpected total after AAAB", 90, session.currentTotal());
+
+        Assert.assertTrue("Void of A failed", session.voidItem("A"));
+        Assert.assertEquals("Unexpected total after void of A", 90, session.currentTotal());
+        Assert.assertEquals("Unexpected quantity of A", 2, session.getQuantity("A"));
+
+        Assert.assertFalse("Void of C succeeded", session.voidItem("C"));
+        Assert.assertEquals("Unexpected total after void of C", 90, session.currentTotal());
+    }
+
+    /**
+     * Validate that items whose product is not in the inventory are counted but not priced.
+     */
+    @Test
+    public void testUnknownItemsAreNotPriced()
+    {
+        CheckoutSession session = new CheckoutSession(createPriceScanner(createPriceRules()));
+        session.scan("Z");
+        session.scan("B");
+
+        Assert.assertEquals("Unexpected total", 50, session.currentTotal());
+        Assert.assertEquals("Unexpected quantity of Z", 1, session.getQuantity("Z"));
+        Assert.assertTrue("Void of Z failed", session.voidItem("Z"));
+        Assert.assertEquals("Unexpected quantity of Z after void", 0, session.getQuantity("Z"));
+    }
+
+    /**
+     * Validate that the running total matches checking out the same items in one go, both for price rules which can
+     * be compiled and for price rules which cannot.
+     */
+    @Test
+    public void testRunningTotalMatchesCheckout()
+    {
+        List<IPriceRule> uncompilablePriceRules = createPriceRules();
+        uncompilablePriceRules.add(0, new IPriceRule()
+        {
+            @Override
+            public int process(IShoppingCart cart, IInventoryLookup lookup)
+            {
+                return new XForThePriceOfYPriceRule("C", 2, 1).process(cart, lookup);
+            }
+        });
+
+        Random random = new Random(7);
+        for (List<IPriceRule> priceRules : createPriceRuleLists(createPriceRules(), uncompilablePriceRules))
+        {
+            PriceScanner priceScanner = createPriceScanner(priceRules);
+            Supermarket supermarket = new Supermarket(priceScanner);
+            CheckoutSession session = new CheckoutSession(priceScanner);
+            StringBuilder items = new StringBuilder();
+
+            for (int i = 0; i < 200; i++)
+            {
+                String id = String.valueOf((char) ('A' + random.nextInt(5)));
+                int position = items.indexOf(id);
+                if (random.nextInt(4) == 0 && position >= 0)
+                {
+                    Assert.assertTrue("Void failed", session.voidItem(id));
+                    items.deleteCharAt(position);
+                }
+                else
+                {
+                    session.scan(id);
+                    items.append(id);
+                }
+
+                Assert.assertEquals("Unexpected total for " + items, supermarket.checkout(items.toString()),
+                        session.currentTotal());
+            }
+        }
+    }
+
+    /**
+     * Validate that a session keeps pricing with the configuration in effect when it started.
+     */
+    @Test
+    public void testSessionIsNotAffectedByLaterConfiguration()
+    {
+        PriceScanner priceScanner = createPriceScanner(createPriceRules());
+        CheckoutSession session = new CheckoutSession(priceScanner);
+
+        List<IPriceRule> newPriceRules = new ArrayList<IPriceRule>();
+        newPriceRules.add(new BaseUnitPriceRule());
+        priceScanner.setPriceRules(newPriceRules);
+
+        session.scan("A");
+        session.scan("A");
+        session.scan("A");
+        Assert.assertEquals("Unexpected total", 40, session.currentTotal());
+    }
+
+    private static List<List<IPriceRule>> createPriceRuleLists(List<IPriceRule> first, List<IPriceRule> second)
+    {
+        List<List<IPriceRule>> priceRuleLists = new ArrayList<List<IPriceRule>>();
+        priceRuleLists.add(first);
+        priceRuleLists.add(second);
+        return priceRuleLists;
+    }
+
+    private static List<IPriceRule> createPriceRules()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("A", 3, 2));
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+        return priceRules;
+    }
+
+    private static PriceScanner createPriceScanner(List<IPriceRule> priceRules)
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("C", 30));
+        products.add(new Product("D", 15));
+
+        return new PriceScanner(new Inventory(products), priceRules);
+    }
+}
@@ -0,0 +1,47 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the CompositeCheckoutListener class
+ */
+public class CompositeCheckoutListenerTest
+{
+    /**
+     * Validate that each listener installed through the composite records every checkout.
+     */
+    @Test
+    public void testEveryListenerIsNotified()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        CheckoutEventRecorder first = new CheckoutEventRecorder();
+        CheckoutEventRecorder second = new CheckoutEventRecorder();
+        Supermarket supermarket = new Supermarket(new PriceScanner(new Inventory(products), priceRules));
+        supermarket.setCheckoutListener(new CompositeCheckoutListener(first, second));
+
+        Assert.assertEquals("Unexpected total", 40, supermarket.checkout("AA"));
+        Assert.assertEquals("Unexpected first recorder total", 40,
+                ((CheckoutEventRecorder.CheckoutEvent) first.getEvents().get(0)).getTotal());
+        Assert.assertEquals("Unexpected second recorder total", 40,
+                ((CheckoutEventRecorder.CheckoutEvent) second.getEvents().get(0)).getTotal());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null listeners argument is passed into a
+     * CompositeCheckoutListener object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullListenersInConstructorThrowsIllegalArgumentException()
+    {
+        new CompositeCheckoutListener((ICheckoutListener[]) null);
+    }
+}
@@ -0,0 +1,49 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the CompositeScanListener class
+ */
+public class CompositeScanListenerTest
+{
+    /**
+     * Validate that metrics and a recorder installed together through the composite each see every scan and rule.
+     * @throws Exception  Not expected to be thrown.
+     */
+    @Test
+    public void testEveryListenerIsNotified() throws Exception
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        CheckoutMetrics metrics = new CheckoutMetrics();
+        CheckoutEventRecorder recorder = new CheckoutEventRecorder();
+        PriceScanner priceScanner = new PriceScanner(new Inventory(products), priceRules);
+        priceScanner.setScanListener(new CompositeScanListener(metrics, recorder));
+
+        Assert.assertEquals("Unexpected total", 270, new Supermarket(priceScanner).checkout("ABBBBBBB"));
+        Assert.assertEquals("Unexpected scan count", 1L, metrics.getAttribute("ScanCount"));
+        Assert.assertEquals("Unexpected total priced", 270L, metrics.getAttribute("ScanTotalPriced"));
+        Assert.assertEquals("Unexpected recorded rule count", 2, recorder.getEvents().size());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null listener is passed into a CompositeScanListener
+     * object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullListenerInConstructorThrowsIllegalArgumentException()
+    {
+        new CompositeScanListener(new CheckoutMetrics(), null);
+    }
+}
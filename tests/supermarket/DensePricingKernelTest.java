@@ -0,0 +1,63 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for the DensePricingKernel class
+ */
+public class DensePricingKernelTest
+{
+    /**
+     * Validate that the total matches a simple loop for every length, including those not a multiple of the lanes.
+     */
+    @Test
+    public void testTotalMatchesSimpleLoop()
+    {
+        Random random = new Random(42);
+        int[] unitPrices = new int[37];
+        int[] quantities = new int[37];
+        for (int i = 0; i < unitPrices.length; i++)
+        {
+            unitPrices[i] = random.nextInt(1000);
+            quantities[i] = random.nextInt(100);
+        }
+
+        for (int length = 0; length <= unitPrices.length; length++)
+        {
+            long expected = 0;
+            for (int i = 0; i < length; i++)
+            {
+                expected += (long) unitPrices[i] * quantities[i];
+            }
+
+            Assert.assertEquals("Unexpected total of " + length, expected,
+                    DensePricingKernel.total(unitPrices, quantities, length));
+        }
+    }
+
+    /**
+     * Validate that totals beyond the range of an int are not overflowed.
+     */
+    @Test
+    public void testLargeTotalDoesNotOverflow()
+    {
+        int[] unitPrices = {Integer.MAX_VALUE, Integer.MAX_VALUE, 3, 4, Integer.MAX_VALUE};
+        int[] quantities = {Integer.MAX_VALUE, 2, 1, 1, 1};
+
+        long expected = (long) Integer.MAX_VALUE * Integer.MAX_VALUE + 3L * Integer.MAX_VALUE + 7;
+        Assert.assertEquals("Unexpected total", expected, DensePricingKernel.total(unitPrices, quantities, 5));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a length beyond either array is passed into the
+     * total() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testLengthBeyondArraysInTotalCallThrowsIllegalArgumentException()
+    {
+        DensePricingKernel.total(new int[4], new int[3], 4);
+    }
+}
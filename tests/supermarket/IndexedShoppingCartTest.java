@@ -0,0 +1,202 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tests for the IndexedShoppingCart class.
+ */
+public class IndexedShoppingCartTest
+{
+    private static final ProductDictionary DICTIONARY = new ProductDictionary(Arrays.asList("A", "B", "C"));
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null dictionary argument is passed into an
+     * IndexedShoppingCart object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullDictionaryInConstructorThrowsIllegalArgumentException()
+    {
+        new IndexedShoppingCart(new CharIndexedShoppingCart("A"), null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null items argument is passed into an
+     * IndexedShoppingCart object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullItemsInConstructorThrowsIllegalArgumentException()
+    {
+        new IndexedShoppingCart(null, DICTIONARY);
+    }
+
+    /**
+     * Validate that items both in and not in the dictionary are captured correctly.
+     */
+    @Test
+    public void testCanCaptureItemsCorrectly()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 3));
+        expectedItems.add(new Item("B", 5));
+        expectedItems.add(new Item("D", 2));
+
+        IndexedShoppingCart cart = createCart("ABBADBBABD");
+
+        validateItems(expectedItems, cart.getItems());
+        Assert.assertEquals("Unexpected line count", 2, cart.getLineCount());
+    }
+
+    /**
+     * Validate that items can be found by product id and by product index.
+     */
+    @Test
+    public void testCanFindItem()
+    {
+        IndexedShoppingCart cart = createCart("ABBADBBABD");
+
+        validateItem(cart.getItem("B"), "B", 5);
+        validateItem(cart.getItem("D"), "D", 2);
+        Assert.assertNull("Item retrieved is non-null", cart.getItem("C"));
+        Assert.assertNull("Item retrieved is non-null", cart.getItem("E"));
+
+        Assert.assertEquals("Unexpected quantity by index", 5, cart.getQuantity(DICTIONARY.indexOf("B")));
+        Assert.assertEquals("Unexpected quantity by index", 0, cart.getQuantity(DICTIONARY.indexOf("C")));
+    }
+
+    /**
+     * Validate that the quantity of items both in and not in the dictionary can be set, and that items not in the cart
+     * cannot be set.
+     */
+    @Test
+    public void testCanSetItemQuantity()
+    {
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 0));
+        expectedItems.add(new Item("B", 1));
+        expectedItems.add(new Item("D", 7));
+
+        IndexedShoppingCart cart = createCart("ABBADBBABD");
+        Assert.assertTrue("Set quantity failed", cart.setItemQuantity("A", 0));
+        Assert.assertTrue("Set quantity failed", cart.setQuantity(DICTIONARY.indexOf("B"), 1));
+        Assert.assertTrue("Set quantity failed", cart.setItemQuantity("D", 7));
+        Assert.assertFalse("Set quantity succeeded", cart.setItemQuantity("C", 1));
+        Assert.assertFalse("Set quantity succeeded", cart.setQuantity(DICTIONARY.indexOf("C"), 1));
+        Assert.assertFalse("Set quantity succeeded", cart.setItemQuantity("E", 1));
+
+        validateItems(expectedItems, cart.getItems());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a negative quantity argument is passed into an
+     * IndexedShoppingCart object's setItemQuantity() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeQuantityInSetItemQuantityThrowsIllegalArgumentException()
+    {
+        createCart("AB").setItemQuantity("A", -1);
+    }
+
+    /**
+     * Validate that items added by product index accumulate on a single line per product.
+     */
+    @Test
+    public void testCanAddItemsByProductIndex()
+    {
+        IndexedShoppingCart cart = new IndexedShoppingCart(DICTIONARY);
+        for (int i = 0; i < 100; i++)
+        {
+            cart.addItems(i % 3, 2);
+        }
+
+        Assert.assertEquals("Unexpected line count", 3, cart.getLineCount());
+        validateItem(cart.getItem("A"), "A", 68);
+        validateItem(cart.getItem("C"), "C", 66);
+    }
+
+    /**
+     * Validate that each item is passed to a visitor, and that the visitor can change the quantity of the item it is
+     * visiting.
+     */
+    @Test
+    public void testCanVisitItems()
+    {
+        final IndexedShoppingCart cart = createCart("ABBADBBABD");
+        final List<IItem> visitedItems = new ArrayList<IItem>();
+
+        cart.forEachItem(new IItemVisitor()
+        {
+            @Override
+            public void visit(String productId, int quantity)
+            {
+                visitedItems.add(new Item(productId, quantity));
+                cart.setItemQuantity(productId, 0);
+            }
+        });
+
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 3));
+        expectedItems.add(new Item("B", 5));
+        expectedItems.add(new Item("D", 2));
+        validateItems(expectedItems, visitedItems);
+        Assert.assertEquals("Unexpected quantity after visit", 0, cart.getItemQuantity("A"));
+    }
+
+    /**
+     * Validate that the quantity of an item can be obtained by product id, and is zero for items not in the cart.
+     */
+    @Test
+    public void testCanGetItemQuantity()
+    {
+        IndexedShoppingCart cart = createCart("ABBADBBABD");
+
+        Assert.assertEquals("Unexpected quantity", 3, cart.getItemQuantity("A"));
+        Assert.assertEquals("Unexpected quantity for nonexistent item", 0, cart.getItemQuantity("C"));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an empty product id argument is passed into a
+     * IndexedShoppingCart object's getItemQuantity() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyProductIdInGetItemQuantityCallThrowsIllegalArgumentException()
+    {
+        createCart("").getItemQuantity("");
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null visitor argument is passed into a
+     * IndexedShoppingCart object's forEachItem() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullVisitorInForEachItemCallThrowsIllegalArgumentException()
+    {
+        createCart("").forEachItem(null);
+    }
+
+    private static IndexedShoppingCart createCart(String items)
+    {
+        return new IndexedShoppingCart(new CharIndexedShoppingCart(items), DICTIONARY);
+    }
+
+    private void validateItem(IItem item, String expectedProductId, int expectedQuantity)
+    {
+        Assert.assertNotNull("Item retrieved is null", item);
+        Assert.assertEquals("Unexpected product id returned for item", expectedProductId, item.getProductId());
+        Assert.assertEquals("Unexpected quantity returned for item", expectedQuantity, item.getQuantity());
+    }
+
+    private void validateItems(List<IItem> expectedItems, Collection<IItem> cartItems)
+    {
+        String message = IShoppingCartMatcher.getItemComparisonFailureMessage(expectedItems, cartItems);
+        if (!message.isEmpty())
+        {
+            Assert.fail("Errors comparing expected items to cart items: " + message);
+        }
+    }
+}
@@ -161,4 +161,95 @@ public class InventoryTest
     {
         new Inventory().getProduct("");
     }
-}
\ No newline at end of file
+
+    /**
+     * Validate that products can be obtained by product index, and that the last of several products sharing an id
+     * is the one kept.
+     */
+    @Test
+    public void testCanGetUnitPriceByProductIndex()
+    {
+        Product replacementProduct = new Product("A", 35);
+
+        List<IProduct> originalProducts = new ArrayList<IProduct>();
+        originalProducts.add(new Product("A", 30));
+        originalProducts.add(new Product("B", 10));
+        originalProducts.add(replacementProduct);
+
+        Inventory inventory = new Inventory(originalProducts);
+        ProductDictionary dictionary = inventory.getDictionary();
+
+        Assert.assertEquals("Unexpected dictionary size", 2, dictionary.size());
+        Assert.assertEquals("Unexpected unit price for B", 10, inventory.getUnitPrice(dictionary.indexOf("B")));
+        Assert.assertEquals("Unexpected unit price for A", 35, inventory.getUnitPrice(dictionary.indexOf("A")));
+        Assert.assertSame("Unexpected product found", replacementProduct, inventory.getProduct("A"));
+        Assert.assertEquals("Unexpected number of products", 2, inventory.getProducts().size());
+    }
+
+    /**
+     * Validate that setting the products replaces the inventory's dictionary.
+     */
+    @Test
+    public void testSetProductsReplacesDictionary()
+    {
+        Inventory inventory = new Inventory();
+        ProductDictionary originalDictionary = inventory.getDictionary();
+
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 30));
+        inventory.setProducts(products);
+
+        Assert.assertNotSame("Dictionary not replaced", originalDictionary, inventory.getDictionary());
+        Assert.assertEquals("Unexpected index for A", 0, inventory.getDictionary().indexOf("A"));
+    }
+
+    /**
+     * Validate that a catalog obtained from the inventory keeps its products after new products are set.
+     */
+    @Test
+    public void testCatalogIsNotAffectedBySettingProducts()
+    {
+        List<IProduct> originalProducts = new ArrayList<IProduct>();
+        originalProducts.add(new Product("A", 30));
+
+        Inventory inventory = new Inventory(originalProducts);
+        ProductCatalog catalog = inventory.getCatalog();
+
+        List<IProduct> newProducts = new ArrayList<IProduct>();
+        newProducts.add(new Product("A", 45));
+        newProducts.add(new Product("B", 10));
+        inventory.setProducts(newProducts);
+
+        Assert.assertNotSame("Catalog not replaced", catalog, inventory.getCatalog());
+        Assert.assertEquals("Unexpected unit price in original catalog", 30, catalog.getProduct("A").getUnitPrice());
+        Assert.assertNull("Unexpected product in original catalog", catalog.getProduct("B"));
+        Assert.assertEquals("Unexpected unit price in inventory", 45, inventory.getProduct("A").getUnitPrice());
+    }
+
+    /**
+     * Validate that a catalog built from unit prices replaces the inventory's products.
+     */
+    @Test
+    public void testCanSetCatalog()
+    {
+        int[] indexes = new int[2];
+        ProductDictionary dictionary = new ProductDictionary(new String[] {"A", "B"}, 2, indexes);
+
+        Inventory inventory = new Inventory();
+        inventory.setCatalog(new ProductCatalog(dictionary, new int[] {20, 50}));
+
+        Assert.assertSame("Unexpected dictionary", dictionary, inventory.getDictionary());
+        Assert.assertEquals("Unexpected unit price", 50, inventory.getProduct("B").getUnitPrice());
+        Assert.assertEquals("Unexpected product count", 2, inventory.getProducts().size());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null catalog argument is passed into an Inventory
+     * object's setCatalog() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullCatalogInSetCatalogCallThrowsIllegalArgumentException()
+    {
+        new Inventory().setCatalog(null);
+    }
+}
@@ -0,0 +1,82 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the LatencyHistogram class
+ */
+public class LatencyHistogramTest
+{
+    /**
+     * Validate that small values are counted exactly and larger values fall into buckets whose highest value is within
+     * about 6% of them.
+     */
+    @Test
+    public void testValuesAreBucketedWithBoundedError()
+    {
+        for (long value = 0; value < LatencyHistogram.LINEAR_LIMIT; value++)
+        {
+            Assert.assertEquals("Unexpected bucket high for " + value, value,
+                    LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value)));
+        }
+
+        long[] values = {32, 33, 47, 48, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values)
+        {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            Assert.assertTrue("Bucket high below " + value, highest >= value);
+            Assert.assertTrue("Bucket high too far above " + value, highest - value <= value / 16);
+        }
+    }
+
+    /**
+     * Validate that percentiles, the count and the maximum reflect the values recorded.
+     */
+    @Test
+    public void testCanGetPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++)
+        {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals("Unexpected count", 100, histogram.getCount());
+        Assert.assertEquals("Unexpected max", 100, histogram.getMax());
+        Assert.assertEquals("Unexpected minimum", 1, histogram.getValueAtPercentile(0));
+        Assert.assertEquals("Unexpected exact percentile", 25, histogram.getValueAtPercentile(25));
+
+        long median = histogram.getValueAtPercentile(50);
+        Assert.assertTrue("Unexpected median " + median, median >= 50 && median <= 53);
+        Assert.assertEquals("Unexpected top percentile", 100, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Validate that an empty histogram reports zero, and that a reset discards everything recorded.
+     */
+    @Test
+    public void testCanReset()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals("Unexpected empty percentile", 0, histogram.getValueAtPercentile(99));
+
+        histogram.record(5000);
+        histogram.record(-1);
+        Assert.assertEquals("Unexpected negative value percentile", 0, histogram.getValueAtPercentile(50));
+        histogram.reset();
+
+        Assert.assertEquals("Unexpected count", 0, histogram.getCount());
+        Assert.assertEquals("Unexpected max", 0, histogram.getMax());
+        Assert.assertEquals("Unexpected percentile", 0, histogram.getValueAtPercentile(99));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a percentile above 100 is requested.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testPercentileAboveHundredThrowsIllegalArgumentException()
+    {
+        new LatencyHistogram().getValueAtPercentile(100.5);
+    }
+}
@@ -0,0 +1,211 @@
+package supermarket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the memory-mapped inventory class.
+ */
+public class MappedInventoryTest
+{
+    private File file;
+
+    /**
+     * Create the file to which each test writes its inventory.
+     * @throws IOException  If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("inventory", ".bin");
+        file.deleteOnExit();
+    }
+
+    /**
+     * Delete the inventory file.
+     */
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Validate that products written to a file can be looked up by id after mapping the file.
+     * @throws IOException  If the inventory file cannot be written or mapped.
+     */
+    @Test
+    public void testCanGetProductsWritten() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("C", 20));
+        products.add(new Product("A", 30));
+        products.add(new Product("\u00e9clair", 40));
+        products.add(new Product("B", 10));
+        products.add(new Product("AB", 50));
+
+        MappedInventory.write(products, file);
+        MappedInventory inventory = new MappedInventory(file);
+
+        Assert.assertEquals("Unexpected number of products", products.size(), inventory.size());
+        for (IProduct product : products)
+        {
+            IProduct productRetrieved = inventory.getProduct(product.getId());
+            Assert.assertNotNull("Product not found: " + product.getId(), productRetrieved);
+            Assert.assertEquals("Unexpected id", product.getId(), productRetrieved.getId());
+            Assert.assertEquals("Unexpected unit price for " + product.getId(), product.getUnitPrice(),
+                    productRetrieved.getUnitPrice());
+        }
+
+        Assert.assertNull("Unexpected product found", inventory.getProduct("D"));
+        Assert.assertNull("Unexpected product found", inventory.getProduct("AA"));
+    }
+
+    /**
+     * Validate that ids are held in sorted order and can be read back by position.
+     * @throws IOException  If the inventory file cannot be written or mapped.
+     */
+    @Test
+    public void testIdsAreSorted() throws IOException
+    {
+        MappedInventory.write(Arrays.<IProduct>asList(new Product("B", 10), new Product("C", 20),
+                new Product("A", 30)), file);
+        MappedInventory inventory = new MappedInventory(file);
+
+        Assert.assertEquals("Unexpected id at 0", "A", inventory.getId(0));
+        Assert.assertEquals("Unexpected id at 1", "B", inventory.getId(1));
+        Assert.assertEquals("Unexpected id at 2", "C", inventory.getId(2));
+        Assert.assertEquals("Unexpected unit price at 0", 30, inventory.getUnitPrice(0));
+        Assert.assertEquals("Unexpected index for B", 1, inventory.indexOf("B"));
+        Assert.assertEquals("Unexpected index for D", -1, inventory.indexOf("D"));
+    }
+
+    /**
+     * Validate that when products share an id, the last one written wins.
+     * @throws IOException  If the inventory file cannot be written or mapped.
+     */
+    @Test
+    public void testLastDuplicateProductWins() throws IOException
+    {
+        MappedInventory.write(Arrays.<IProduct>asList(new Product("A", 10), null, new Product("A", 20)), file);
+        MappedInventory inventory = new MappedInventory(file);
+
+        Assert.assertEquals("Unexpected number of products", 1, inventory.size());
+        Assert.assertEquals("Unexpected unit price", 20, inventory.getProduct("A").getUnitPrice());
+    }
+
+    /**
+     * Validate that an empty inventory can be written and mapped.
+     * @throws IOException  If the inventory file cannot be written or mapped.
+     */
+    @Test
+    public void testCanMapEmptyInventory() throws IOException
+    {
+        MappedInventory.write(new ArrayList<IProduct>(), file);
+        MappedInventory inventory = new MappedInventory(file);
+
+        Assert.assertEquals("Unexpected number of products", 0, inventory.size());
+        Assert.assertNull("Unexpected product found", inventory.getProduct("A"));
+    }
+
+    /**
+     * Validate that a file which is not an inventory file cannot be mapped.
+     * @throws IOException  If the file cannot be written.
+     */
+    @Test(expected = IOException.class)
+    public void testCannotMapInvalidFile() throws IOException
+    {
+        FileOutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(new byte[32]);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        new MappedInventory(file);
+    }
+
+    /**
+     * Validate that a truncated inventory file cannot be mapped.
+     * @throws IOException  If the inventory file cannot be written.
+     */
+    @Test(expected = IOException.class)
+    public void testCannotMapTruncatedFile() throws IOException
+    {
+        MappedInventory.write(Arrays.<IProduct>asList(new Product("A", 10), new Product("B", 20)), file);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.setLength(randomAccessFile.length() - 1);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        new MappedInventory(file);
+    }
+
+    /**
+     * Validate that an inventory file whose product count would wrap the section offsets back within the file cannot
+     * be mapped.
+     * @throws IOException  If the inventory file cannot be written.
+     */
+    @Test(expected = IOException.class)
+    public void testCannotMapFileWithOverflowingProductCount() throws IOException
+    {
+        MappedInventory.write(new ArrayList<IProduct>(), file);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.seek(8);
+            randomAccessFile.writeInt(0x40000000);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        new MappedInventory(file);
+    }
+
+    /**
+     * Validate that a mapped inventory can be used by a price scanner.
+     * @throws IOException  If the inventory file cannot be written or mapped.
+     */
+    @Test
+    public void testCanScanItemsWithMappedInventory() throws IOException
+    {
+        MappedInventory.write(Arrays.<IProduct>asList(new Product("A", 20), new Product("B", 50),
+                new Product("C", 30)), file);
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("A", 3, 2));
+        priceRules.add(new BaseUnitPriceRule());
+        PriceScanner priceScanner = new PriceScanner(new MappedInventory(file), priceRules);
+
+        Assert.assertEquals("Unexpected total", 140, priceScanner.scanItems(new ShoppingCart("AAAABC")));
+    }
+
+    /**
+     * Validate that a MappedInventory cannot be constructed with a null file.
+     * @throws IOException  Not expected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCannotConstructWithNullFile() throws IOException
+    {
+        new MappedInventory(null);
+    }
+}
@@ -0,0 +1,176 @@
+package supermarket;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the MemoizingPriceScanner class
+ */
+public class MemoizingPriceScannerTest
+{
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null price scanner argument is passed into a
+     * MemoizingPriceScanner object's constructor
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotConstructWithNullPriceScanner()
+    {
+        new MemoizingPriceScanner(null, 10);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null cart argument is passed into a
+     * MemoizingPriceScanner object's scanItems() method
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testCannotScanNullCart()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        new MemoizingPriceScanner(new PriceScanner(createInventory(), priceRules), 10).scanItems(null);
+    }
+
+    /**
+     * Validate that scanning a cart with the same contents as an earlier one does not process the price rules, and
+     * leaves the same quantities in the cart as the earlier scan.
+     */
+    @Test
+    public void testRepeatedCartIsNotProcessedAgain()
+    {
+        final IPriceRule priceRule = context.mock(IPriceRule.class);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("A", 3, 2));
+        priceRules.add(priceRule);
+
+        context.checking(new Expectations() {{
+            oneOf(priceRule).process(with(any(IShoppingCart.class)), with(any(IInventoryLookup.class)));
+            will(returnValue(7));
+        }});
+
+        MemoizingPriceScanner priceScanner = new MemoizingPriceScanner(
+                new PriceScanner(createInventory(), priceRules), 10);
+
+        ShoppingCart firstCart = new ShoppingCart("AAAAB");
+        Assert.assertEquals("Unexpected total from first scan", 47, priceScanner.scanItems(firstCart));
+
+        ShoppingCart secondCart = new ShoppingCart("BAAAA");
+        Assert.assertEquals("Unexpected total from second scan", 47, priceScanner.scanItems(secondCart));
+
+        Assert.assertEquals("Unexpected quantity of A left", 1, secondCart.getItem("A").getQuantity());
+        Assert.assertEquals("Unexpected quantity of B left", 1, secondCart.getItem("B").getQuantity());
+        Assert.assertEquals("Unexpected hit count", 1, priceScanner.getHitCount());
+        Assert.assertEquals("Unexpected miss count", 1, priceScanner.getMissCount());
+    }
+
+    /**
+     * Validate that remembered results are discarded when the price rules or the inventory's products change.
+     */
+    @Test
+    public void testResultsAreDiscardedWhenConfigurationChanges()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = createInventory();
+        PriceScanner scanner = new PriceScanner(inventory, priceRules);
+        MemoizingPriceScanner priceScanner = new MemoizingPriceScanner(scanner, 10);
+
+        Assert.assertEquals("Unexpected total from first scan", 70, priceScanner.scanItems(new ShoppingCart("AB")));
+        Assert.assertEquals("Unexpected total from second scan", 70, priceScanner.scanItems(new ShoppingCart("AB")));
+
+        List<IPriceRule> newPriceRules = new ArrayList<IPriceRule>();
+        newPriceRules.add(new XForThePriceOfYPriceRule("A", 2, 1));
+        newPriceRules.add(new BaseUnitPriceRule());
+        scanner.setPriceRules(newPriceRules);
+        Assert.assertEquals("Unexpected total after rules change", 70, priceScanner.scanItems(new ShoppingCart("AAB")));
+
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 25));
+        products.add(new Product("B", 50));
+        inventory.setProducts(products);
+        Assert.assertEquals("Unexpected total after products change", 75,
+                priceScanner.scanItems(new ShoppingCart("AAB")));
+
+        Assert.assertEquals("Unexpected hit count", 1, priceScanner.getHitCount());
+        Assert.assertEquals("Unexpected miss count", 3, priceScanner.getMissCount());
+        Assert.assertEquals("Unexpected number of results", 1, priceScanner.size());
+    }
+
+    /**
+     * Validate that no more than the maximum number of results are remembered, and that the least recently used result
+     * is the one evicted.
+     */
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        MemoizingPriceScanner priceScanner = new MemoizingPriceScanner(
+                new PriceScanner(createInventory(), priceRules), 2);
+
+        priceScanner.scanItems(new ShoppingCart("A"));
+        priceScanner.scanItems(new ShoppingCart("B"));
+        priceScanner.scanItems(new ShoppingCart("A"));
+        priceScanner.scanItems(new ShoppingCart("AB"));
+        Assert.assertEquals("Unexpected number of results", 2, priceScanner.size());
+
+        priceScanner.scanItems(new ShoppingCart("A"));
+        priceScanner.scanItems(new ShoppingCart("B"));
+        Assert.assertEquals("Unexpected hit count", 2, priceScanner.getHitCount());
+        Assert.assertEquals("Unexpected miss count", 4, priceScanner.getMissCount());
+
+        priceScanner.clear();
+        Assert.assertEquals("Unexpected number of results after clear", 0, priceScanner.size());
+    }
+
+    /**
+     * Validate that carts holding more than the maximum number of distinct products are scanned without being
+     * remembered.
+     */
+    @Test
+    public void testLargeCartIsNotRemembered()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i <= MemoizingPriceScanner.MAXIMUM_PRODUCT_COUNT; i++)
+        {
+            String id = String.valueOf((char) ('A' + i));
+            products.add(new Product(id, 1));
+            items.append(id);
+        }
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        MemoizingPriceScanner priceScanner = new MemoizingPriceScanner(
+                new PriceScanner(new Inventory(products), priceRules), 10);
+
+        Assert.assertEquals("Unexpected total from first scan", products.size(),
+                priceScanner.scanItems(new ShoppingCart(items.toString())));
+        Assert.assertEquals("Unexpected total from second scan", products.size(),
+                priceScanner.scanItems(new ShoppingCart(items.toString())));
+        Assert.assertEquals("Unexpected number of results", 0, priceScanner.size());
+        Assert.assertEquals("Unexpected hit count", 0, priceScanner.getHitCount());
+    }
+
+    private static Inventory createInventory()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+
+        return new Inventory(products);
+    }
+}
@@ -0,0 +1,202 @@
+package supermarket;
+
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for the PriceRuleIndex class
+ */
+public class PriceRuleIndexTest
+{
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    /**
+     * Validate that rules for products not in the cart, or in the cart with no quantity, are not processed, while
+     * rules which do not declare their products always are.
+     */
+    @Test
+    public void testRulesForAbsentProductsAreNotProcessed()
+    {
+        final IProductPriceRule absentRule = createProductRule("absent rule", "C");
+        final IProductPriceRule emptiedRule = createProductRule("emptied rule", "B");
+        final IPriceRule generalRule = context.mock(IPriceRule.class, "general rule");
+        final IShoppingCart cart = new ShoppingCart("AB");
+        cart.setItemQuantity("B", 0);
+
+        context.checking(new Expectations() {{
+            oneOf(generalRule).process(cart, null);
+            will(returnValue(5));
+        }});
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(absentRule);
+        priceRules.add(emptiedRule);
+        priceRules.add(generalRule);
+
+        Assert.assertEquals("Unexpected total", 5, new PriceRuleIndex(priceRules).process(cart, null));
+    }
+
+    /**
+     * Validate that a bundle rule is filed under its rarest product, so it is not processed for carts missing that
+     * product even when they hold its other products.
+     */
+    @Test
+    public void testBundleRulesAreIndexedByRarestProduct()
+    {
+        final IProductPriceRule productRule = createProductRule("product rule", "A");
+        final IBundlePriceRule bundleRule = context.mock(IBundlePriceRule.class, "bundle rule");
+        final IShoppingCart commonCart = new ShoppingCart("AAC");
+        final IShoppingCart bundleCart = new ShoppingCart("AB");
+
+        context.checking(new Expectations() {{
+            allowing(bundleRule).getProductIds();
+            will(returnValue(Arrays.asList("A", "B")));
+
+            oneOf(productRule).process(commonCart, null);
+            will(returnValue(10));
+
+            oneOf(productRule).process(bundleCart, null);
+            will(returnValue(10));
+            oneOf(bundleRule).process(bundleCart, null);
+            will(returnValue(90));
+        }});
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(productRule);
+        priceRules.add(bundleRule);
+        PriceRuleIndex index = new PriceRuleIndex(priceRules);
+
+        Assert.assertEquals("Unexpected total without rarest product", 10, index.process(commonCart, null));
+        Assert.assertEquals("Unexpected total with every product", 100, index.process(bundleCart, null));
+    }
+
+    /**
+     * Validate that the rules which apply to a cart are processed once each, in their configured order.
+     */
+    @Test
+    public void testRulesAreProcessedOnceInConfiguredOrder()
+    {
+        final IProductPriceRule bundleRule = createProductRule("bundle rule", "A", "B");
+        final IPriceRule generalRule = context.mock(IPriceRule.class, "general rule");
+        final IProductPriceRule productRule = createProductRule("product rule", "A");
+        final IShoppingCart cart = new ShoppingCart("AB");
+        final Sequence order = context.sequence("order");
+
+        context.checking(new Expectations() {{
+            oneOf(bundleRule).process(cart, null);
+            inSequence(order);
+            will(returnValue(1));
+
+            oneOf(generalRule).process(cart, null);
+            inSequence(order);
+            will(returnValue(10));
+
+            oneOf(productRule).process(cart, null);
+            inSequence(order);
+            will(returnValue(100));
+        }});
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(bundleRule);
+        priceRules.add(generalRule);
+        priceRules.add(productRule);
+
+        Assert.assertEquals("Unexpected total", 111, new PriceRuleIndex(priceRules).process(cart, null));
+    }
+
+    /**
+     * Validate that dispatching by product gives the same total as processing every rule against a cart.
+     */
+    @Test
+    public void testTotalMatchesProcessingEveryRule()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("C", 30));
+        Inventory inventory = new Inventory(products);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("A", 3, 2));
+        priceRules.add(new XForThePriceOfYPriceRule("D", 2, 1));
+        priceRules.add(new XForThePriceOfYPriceRule("A", 2, 1));
+        priceRules.add(new BaseUnitPriceRule());
+
+        int expectedTotal = 0;
+        ShoppingCart expectedCart = new ShoppingCart("AAAAAACBA");
+        for (IPriceRule priceRule : priceRules)
+        {
+            expectedTotal += priceRule.process(expectedCart, inventory.getCatalog());
+        }
+
+        Assert.assertEquals("Unexpected total", expectedTotal,
+                new PriceRuleIndex(priceRules).process(new ShoppingCart("AAAAAACBA"), inventory.getCatalog()));
+    }
+
+    /**
+     * Validate that processing a cart split into parts on a fork/join pool gives the same total, and leaves the same
+     * quantities, as processing the whole cart.
+     */
+    @Test
+    public void testPartitionedProcessingMatchesSequentialProcessing()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("C", 30));
+        products.add(new Product("D", 15));
+        products.add(new Product("E", 40));
+        Inventory inventory = new Inventory(products);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("A", 3, 2));
+        priceRules.add(new XForThePriceOfYPriceRule("E", 2, 1));
+        priceRules.add(new BaseUnitPriceRule());
+        PriceRuleIndex priceRuleIndex = new PriceRuleIndex(priceRules);
+
+        ProductDictionary dictionary = inventory.getDictionary();
+        IndexedShoppingCart sequentialCart = new IndexedShoppingCart(new CharIndexedShoppingCart("AAAABCCDEEE"),
+                dictionary);
+        IndexedShoppingCart partitionedCart = new IndexedShoppingCart(new CharIndexedShoppingCart("AAAABCCDEEE"),
+                dictionary);
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try
+        {
+            Assert.assertEquals("Unexpected total", priceRuleIndex.process(sequentialCart, inventory.getCatalog()),
+                    priceRuleIndex.process(partitionedCart, inventory.getCatalog(), pool, 3, null));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        for (int productIndex = 0; productIndex < dictionary.size(); productIndex++)
+        {
+            Assert.assertEquals("Unexpected quantity left", sequentialCart.getQuantity(productIndex),
+                    partitionedCart.getQuantity(productIndex));
+        }
+    }
+
+    private IProductPriceRule createProductRule(String name, final String... productIds)
+    {
+        final IProductPriceRule priceRule = context.mock(IProductPriceRule.class, name);
+
+        context.checking(new Expectations() {{
+            allowing(priceRule).getProductIds();
+            will(returnValue(Arrays.asList(productIds)));
+        }});
+
+        return priceRule;
+    }
+}
@@ -0,0 +1,98 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the PriceRulesFile class.
+ */
+public class PriceRulesFileTest
+{
+    /**
+     * Validate that rules are parsed in declared order, skipping blank lines and comments.
+     * @throws IOException  If the rules cannot be parsed.
+     */
+    @Test
+    public void testCanParseRules() throws IOException
+    {
+        String rules = "# Weekly promotions\n\nXForThePriceOfY B 5 3   # five for three\n" +
+                "\tXForThePriceOfY\tA 3 2\nBaseUnitPrice\n";
+        List<IPriceRule> priceRules = PriceRulesFile.parse(new StringReader(rules), "rules");
+
+        Assert.assertEquals("Unexpected rule count", 3, priceRules.size());
+
+        XForThePriceOfYPriceRule first = (XForThePriceOfYPriceRule) priceRules.get(0);
+        Assert.assertEquals("Unexpected product", "B", first.getProductId());
+        Assert.assertEquals("Unexpected total quantity", 5, first.getTotalQuantityForRule());
+        Assert.assertEquals("Unexpected paid quantity", 3, first.getQuantityPaidPerUnitPrice());
+        Assert.assertEquals("Unexpected product", "A", ((XForThePriceOfYPriceRule) priceRules.get(1)).getProductId());
+        Assert.assertTrue("Unexpected last rule", priceRules.get(2) instanceof BaseUnitPriceRule);
+    }
+
+    /**
+     * Validate that a bundle is parsed with its products in declared order, defaulting each quantity to 1.
+     * @throws IOException  If the rules cannot be parsed.
+     */
+    @Test
+    public void testCanParseBundle() throws IOException
+    {
+        List<IPriceRule> priceRules = PriceRulesFile.parse(new StringReader("Bundle 90 C A*2 B\n"), "rules");
+
+        BundlePriceRule bundle = (BundlePriceRule) priceRules.get(0);
+        Assert.assertEquals("Unexpected price", 90, bundle.getBundlePrice());
+        Assert.assertEquals("Unexpected products", Arrays.asList("C", "A", "B"),
+                new ArrayList<String>(bundle.getProductIds()));
+        Assert.assertEquals("Unexpected quantity", 2, bundle.getComponentQuantity("A"));
+        Assert.assertEquals("Unexpected default quantity", 1, bundle.getComponentQuantity("B"));
+    }
+
+    /**
+     * Validate that an invalid rule is reported with its line number.
+     */
+    @Test
+    public void testInvalidRuleIsReportedWithLine()
+    {
+        String[] invalidRules = {"XForThePriceOfY B 5", "XForThePriceOfY B five 3", "XForThePriceOfY B 3 5",
+                "BaseUnitPrice A", "TwoForOne B", "Bundle 90", "Bundle 90 A*0 B", "Bundle 90 A B A", "Bundle -1 A"};
+        for (String invalidRule : invalidRules)
+        {
+            try
+            {
+                PriceRulesFile.parse(new StringReader("BaseUnitPrice\n" + invalidRule + "\n"), "rules");
+                Assert.fail("Invalid rule accepted: " + invalidRule);
+            }
+            catch (IOException ioe)
+            {
+                Assert.assertTrue("Unexpected message " + ioe.getMessage(),
+                        ioe.getMessage().startsWith("rules line 2: "));
+            }
+        }
+    }
+
+    /**
+     * Validate that a file declaring no rules is refused.
+     * @throws IOException  If the rules cannot be parsed.
+     */
+    @Test(expected=IOException.class)
+    public void testNoRulesAreRefused() throws IOException
+    {
+        PriceRulesFile.parse(new StringReader("# nothing yet\n\n"), "rules");
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null rules argument is passed into the parse()
+     * method.
+     * @throws IOException  If the rules cannot be parsed.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullRulesInParseCallThrowsIllegalArgumentException() throws IOException
+    {
+        PriceRulesFile.parse(null, "rules");
+    }
+}
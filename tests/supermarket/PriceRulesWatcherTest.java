@@ -0,0 +1,130 @@
+package supermarket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the PriceRulesWatcher class, run against a rules file in a directory of its own.
+ */
+public class PriceRulesWatcherTest
+{
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private File directory;
+    private File file;
+    private PriceScanner priceScanner;
+    private PriceRulesWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = File.createTempFile("rules", "");
+        Assert.assertTrue("Cannot replace temporary file", directory.delete() && directory.mkdir());
+        file = new File(directory, "rules.txt");
+        write(file, "BaseUnitPrice\n");
+
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("B", 50));
+        Inventory inventory = new Inventory(products);
+
+        priceScanner = new PriceScanner(inventory, PriceRulesFile.load(file));
+        priceScanner.compile();
+        watcher = new PriceRulesWatcher(priceScanner, file);
+    }
+
+    @After
+    public void tearDown()
+    {
+        watcher.stop();
+        for (File child : directory.listFiles())
+        {
+            child.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Validate that reloading swaps the file's rules into the scanner, compiled since the scanner's rules were.
+     * @throws IOException  If the file cannot be written.
+     */
+    @Test
+    public void testCanReloadRules() throws IOException
+    {
+        write(file, "XForThePriceOfY B 2 1\nBaseUnitPrice\n");
+
+        Assert.assertTrue("Reload failed", watcher.reload());
+        Assert.assertNull("Unexpected error", watcher.getLastError());
+        Assert.assertNotNull("Plan not compiled", priceScanner.getSnapshot().getPricingPlan());
+        Assert.assertEquals("Unexpected total", 50, priceScanner.scanItems(new CharIndexedShoppingCart("BB")));
+    }
+
+    /**
+     * Validate that an invalid file leaves the scanner's rules as they were and reports the error.
+     * @throws IOException  If the file cannot be written.
+     */
+    @Test
+    public void testInvalidFileKeepsRules() throws IOException
+    {
+        PricingSnapshot before = priceScanner.getSnapshot();
+        write(file, "XForThePriceOfY B 2\nBaseUnitPrice\n");
+
+        Assert.assertFalse("Reload succeeded", watcher.reload());
+        Assert.assertNotNull("No error", watcher.getLastError());
+        Assert.assertSame("Rules changed", before, priceScanner.getSnapshot());
+    }
+
+    /**
+     * Validate that a changed file, including one renamed over the original, is reloaded without being asked.
+     * @throws IOException  If the file cannot be written.
+     * @throws InterruptedException  If the test is interrupted while waiting.
+     */
+    @Test
+    public void testChangedFileIsReloaded() throws IOException, InterruptedException
+    {
+        watcher.start();
+
+        write(file, "XForThePriceOfY B 2 1\nBaseUnitPrice\n");
+        awaitTotal("BB", 50);
+
+        File replacement = new File(directory, "rules.tmp");
+        write(replacement, "XForThePriceOfY B 3 1\nBaseUnitPrice\n");
+        Assert.assertTrue("Cannot rename file", replacement.renameTo(file));
+        awaitTotal("BBB", 50);
+
+        Assert.assertTrue("Unexpected reload count", watcher.getReloadCount() >= 2);
+    }
+
+    private void awaitTotal(String items, int total) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (priceScanner.scanItems(new CharIndexedShoppingCart(items)) != total &&
+                System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals("Rules not reloaded", total, priceScanner.scanItems(new CharIndexedShoppingCart(items)));
+    }
+
+    private static void write(File target, String text) throws IOException
+    {
+        OutputStream out = new FileOutputStream(target);
+        try
+        {
+            out.write(text.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -7,7 +7,17 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Tests for the PriceScanner class
@@ -239,4 +249,533 @@ public class PriceScannerTest
         Assert.assertNull("Unexpectedly returned non-null product",
                 priceScanner.getProduct(idOfProductToGet));
     }
-}
\ No newline at end of file
+
+    /**
+     * Validate that compilation is declined when the inventory cannot list its products, and that items are then
+     * scanned by processing each price rule.
+     */
+    @Test
+    public void testCannotCompileWithInventoryLookupWhichCannotListProducts()
+    {
+        final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
+        final IShoppingCart cart = context.mock(IShoppingCart.class);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        final PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        Assert.assertFalse("Unexpectedly compiled", priceScanner.compile());
+
+        context.checking(new Expectations() {{
+            oneOf(cart).forEachItem(with(any(IItemVisitor.class)));
+        }});
+
+        Assert.assertEquals("Unexpected total returned from checkout", 0, priceScanner.scanItems(cart));
+    }
+
+    /**
+     * Validate that compilation is declined when a price rule cannot be compiled, and that items are then scanned by
+     * processing each price rule.
+     */
+    @Test
+    public void testCannotCompileWithPriceRuleWhichCannotBeCompiled()
+    {
+        final IShoppingCart cart = context.mock(IShoppingCart.class);
+        final IPriceRule priceRule = context.mock(IPriceRule.class);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+        priceRules.add(priceRule);
+
+        final Inventory inventory = createInventory();
+        final PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        Assert.assertFalse("Unexpectedly compiled", priceScanner.compile());
+
+        context.checking(new Expectations() {{
+            oneOf(cart).forEachItem(with(any(IItemVisitor.class)));
+
+            oneOf(priceRule).process(cart, inventory.getCatalog());
+            will(returnValue(7));
+        }});
+
+        Assert.assertEquals("Unexpected total returned from checkout", 7, priceScanner.scanItems(cart));
+    }
+
+    /**
+     * Validate that scanning with a compiled pricing plan, or processing each price rule against a cart keyed by
+     * product index, produces the same totals and leaves the same quantities in the cart as processing each price rule
+     * by product id, including for rules whose product is not in inventory and for rules which follow the base unit
+     * price rule.
+     */
+    @Test
+    public void testCompiledScanMatchesProcessingEachPriceRule()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new XForThePriceOfYPriceRule("B", 3, 2));
+        priceRules.add(new XForThePriceOfYPriceRule("A", 2, 1));
+        priceRules.add(new XForThePriceOfYPriceRule("Z", 2, 1));
+        priceRules.add(new BaseUnitPriceRule());
+        priceRules.add(new XForThePriceOfYPriceRule("C", 2, 1));
+
+        Inventory inventory = createInventory();
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        PriceScanner compiledPriceScanner = new PriceScanner(inventory, priceRules);
+        Assert.assertTrue("Failed to compile", compiledPriceScanner.compile());
+
+        Random random = new Random(17);
+        for (int i = 0; i < 200; i++)
+        {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++)
+            {
+                builder.append("ABCDZ".charAt(random.nextInt(5)));
+            }
+            String items = builder.toString();
+
+            validateScansMatch(priceScanner, new CharIndexedShoppingCart(items), compiledPriceScanner,
+                    new CharIndexedShoppingCart(items));
+            validateScansMatch(priceScanner, new ShoppingCart(items), compiledPriceScanner,
+                    new ShoppingCart(items));
+            validateScansMatch(priceScanner, new ShoppingCart(items), compiledPriceScanner,
+                    createIndexedCart(items, inventory));
+            validateScansMatch(priceScanner, new ShoppingCart(items), priceScanner,
+                    createIndexedCart(items, inventory));
+        }
+    }
+
+    /**
+     * Validate that setting new price rules discards a compiled pricing plan, so that the new rules take effect.
+     */
+    @Test
+    public void testSetPriceRulesDiscardsCompiledPlan()
+    {
+        List<IPriceRule> originalPriceRules = new ArrayList<IPriceRule>();
+        originalPriceRules.add(new BaseUnitPriceRule());
+
+        List<IPriceRule> newPriceRules = new ArrayList<IPriceRule>();
+        newPriceRules.add(new XForThePriceOfYPriceRule("B", 2, 1));
+        newPriceRules.add(new BaseUnitPriceRule());
+
+        PriceScanner priceScanner = new PriceScanner(createInventory(), originalPriceRules);
+        Assert.assertTrue("Failed to compile", priceScanner.compile());
+        Assert.assertEquals("Unexpected total returned from compiled scan", 100,
+                priceScanner.scanItems(new CharIndexedShoppingCart("BB")));
+
+        priceScanner.setPriceRules(newPriceRules);
+        Assert.assertEquals("Unexpected total returned after setting new price rules", 50,
+                priceScanner.scanItems(new CharIndexedShoppingCart("BB")));
+    }
+
+    /**
+     * Validate that price rules can be compiled as they are set, publishing the new rules and plan together.
+     */
+    @Test
+    public void testCanSetAndCompilePriceRules()
+    {
+        List<IPriceRule> originalPriceRules = new ArrayList<IPriceRule>();
+        originalPriceRules.add(new BaseUnitPriceRule());
+
+        List<IPriceRule> newPriceRules = new ArrayList<IPriceRule>();
+        newPriceRules.add(new XForThePriceOfYPriceRule("B", 2, 1));
+        newPriceRules.add(new BaseUnitPriceRule());
+
+        PriceScanner priceScanner = new PriceScanner(createInventory(), originalPriceRules);
+        long version = priceScanner.getSnapshot().getVersion();
+
+        Assert.assertTrue("Failed to compile", priceScanner.setPriceRules(newPriceRules, true));
+        Assert.assertEquals("Unexpected version", version + 1, priceScanner.getSnapshot().getVersion());
+        Assert.assertNotNull("Plan not published", priceScanner.getSnapshot().getPricingPlan());
+        Assert.assertEquals("Unexpected total returned from compiled scan", 50,
+                priceScanner.scanItems(new CharIndexedShoppingCart("BB")));
+    }
+
+    /**
+     * Validate that optimal pricing charges the cheapest combination of overlapping deals, where processing the rules
+     * in order would not.
+     */
+    @Test
+    public void testOptimalPricingPicksCheapestCombinationOfDeals()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 3, 2));
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        PriceScanner priceScanner = new PriceScanner(createInventory(), priceRules);
+        Assert.assertEquals("Unexpected total returned from rule scan", 220,
+                priceScanner.scanItems(new CharIndexedShoppingCart("ABBBBB")));
+
+        priceScanner.setOptimalPricing(true);
+        Assert.assertTrue("Failed to compile", priceScanner.compile());
+        Assert.assertTrue("Plan not optimal", priceScanner.getSnapshot().getPricingPlan().isOptimal());
+        Assert.assertEquals("Unexpected total returned from optimal scan", 170,
+                priceScanner.scanItems(new CharIndexedShoppingCart("ABBBBB")));
+    }
+
+    /**
+     * Validate that an exact scan totals wholesale quantities in 64 bits, where a 32-bit total would overflow, and
+     * claims the items as any other scan does.
+     */
+    @Test
+    public void testExactScanDoesNotOverflow()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = createInventory();
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        Assert.assertTrue("Failed to compile", priceScanner.compile());
+
+        ProductDictionary dictionary = inventory.getDictionary();
+        IndexedShoppingCart cart = new IndexedShoppingCart(dictionary);
+        cart.addItems(dictionary.indexOf("A"), 200000000);
+        cart.addItems(dictionary.indexOf("B"), 100000002);
+
+        long expected = 20L * 200000000 + 50L * (3 * 20000000 + 2);
+        Assert.assertEquals("Unexpected total returned from exact scan", expected, priceScanner.scanItemsExact(cart));
+        Assert.assertEquals("Items not claimed", 0, cart.getItemQuantity("B"));
+        Assert.assertEquals("Unexpected total of small cart", 170,
+                priceScanner.scanItemsExact(createIndexedCart("ABBBBB", inventory)));
+    }
+
+    /**
+     * Validate that an exact scan with uncompiled price rules, including a bundle which cannot be compiled, totals in
+     * 64 bits whether or not the cart is keyed by product index.
+     */
+    @Test
+    public void testUncompiledExactScanDoesNotOverflow()
+    {
+        Map<String, Integer> bundle = new HashMap<String, Integer>();
+        bundle.put("A", 2);
+        bundle.put("B", 1);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BundlePriceRule(bundle, 30));
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = createInventory();
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+
+        ProductDictionary dictionary = inventory.getDictionary();
+        IndexedShoppingCart cart = new IndexedShoppingCart(dictionary);
+        cart.addItems(dictionary.indexOf("A"), 200000000);
+        cart.addItems(dictionary.indexOf("B"), 100000007);
+
+        long expected = 30L * 100000000 + 50L * 3 + 50L * 2;
+        Assert.assertEquals("Unexpected total returned from indexed cart", expected,
+                priceScanner.scanItemsExact(cart));
+        Assert.assertEquals("Items not claimed", 0, cart.getItemQuantity("B"));
+
+        ShoppingCart idCart = new ShoppingCart("AB");
+        idCart.setItemQuantity("A", 200000000);
+        idCart.setItemQuantity("B", 100000007);
+        Assert.assertEquals("Unexpected total returned from cart of ids", expected,
+                priceScanner.scanItemsExact(idCart));
+    }
+
+    /**
+     * Validate that an exact scan fails rather than return a wrapped total when a rule which can only compute a 32-bit
+     * cost claims items worth more than an int can hold, and succeeds when they are worth less.
+     */
+    @Test
+    public void testExactScanWithOverflowingIntRuleThrowsArithmeticException()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new IPriceRule()
+        {
+            @Override
+            public int process(IShoppingCart cart, IInventoryLookup lookup)
+            {
+                return new BaseUnitPriceRule().process(cart, lookup);
+            }
+        });
+
+        Inventory inventory = createInventory();
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        Assert.assertEquals("Unexpected total of small cart", 270,
+                priceScanner.scanItemsExact(createIndexedCart("ABBBBB", inventory)));
+
+        ProductDictionary dictionary = inventory.getDictionary();
+        IndexedShoppingCart cart = new IndexedShoppingCart(dictionary);
+        cart.addItems(dictionary.indexOf("A"), 200000000);
+        try
+        {
+            priceScanner.scanItemsExact(cart);
+            Assert.fail("Overflow not detected");
+        }
+        catch (ArithmeticException ae)
+        {
+            Assert.assertTrue("Unexpected message", ae.getMessage().contains("PriceRule"));
+        }
+    }
+
+    /**
+     * Validate that once the inventory's products change, a compiled pricing plan is no longer used and the new unit
+     * prices take effect.
+     */
+    @Test
+    public void testChangedInventoryIsNotPricedByStalePlan()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = createInventory();
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        Assert.assertTrue("Failed to compile", priceScanner.compile());
+        Assert.assertEquals("Unexpected total returned from compiled scan", 50,
+                priceScanner.scanItems(new CharIndexedShoppingCart("B")));
+
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("B", 45));
+        inventory.setProducts(products);
+
+        Assert.assertEquals("Unexpected total returned after inventory change", 45,
+                priceScanner.scanItems(new CharIndexedShoppingCart("B")));
+    }
+
+    /**
+     * Validate that each change to the price rules, the inventory's products or the compiled plan publishes a snapshot
+     * with a higher version, and that snapshots already obtained are unaffected.
+     */
+    @Test
+    public void testUpdatesPublishNewSnapshots()
+    {
+        List<IPriceRule> originalPriceRules = new ArrayList<IPriceRule>();
+        originalPriceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = createInventory();
+        PriceScanner priceScanner = new PriceScanner(inventory, originalPriceRules);
+        PricingSnapshot originalSnapshot = priceScanner.getSnapshot();
+        Assert.assertSame("Snapshot changed without an update", originalSnapshot, priceScanner.getSnapshot());
+
+        List<IPriceRule> newPriceRules = new ArrayList<IPriceRule>();
+        newPriceRules.add(new XForThePriceOfYPriceRule("B", 2, 1));
+        newPriceRules.add(new BaseUnitPriceRule());
+        priceScanner.setPriceRules(newPriceRules);
+        PricingSnapshot rulesSnapshot = priceScanner.getSnapshot();
+        Assert.assertTrue("Version not increased for new price rules",
+                rulesSnapshot.getVersion() > originalSnapshot.getVersion());
+
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("B", 45));
+        inventory.setProducts(products);
+        PricingSnapshot productsSnapshot = priceScanner.getSnapshot();
+        Assert.assertTrue("Version not increased for new products",
+                productsSnapshot.getVersion() > rulesSnapshot.getVersion());
+        Assert.assertSame("Unexpected inventory in snapshot", inventory.getCatalog(), productsSnapshot.getInventory());
+
+        Assert.assertTrue("Failed to compile", priceScanner.compile());
+        PricingSnapshot compiledSnapshot = priceScanner.getSnapshot();
+        Assert.assertTrue("Version not increased for compiled plan",
+                compiledSnapshot.getVersion() > productsSnapshot.getVersion());
+        Assert.assertNotNull("Plan missing from snapshot", compiledSnapshot.getPricingPlan());
+
+        Assert.assertEquals("Unexpected price rules in original snapshot", 1, originalSnapshot.getPriceRules().size());
+        Assert.assertEquals("Unexpected unit price in original snapshot", 50,
+                originalSnapshot.getInventory().getProduct("B").getUnitPrice());
+        Assert.assertNull("Unexpected plan in original snapshot", originalSnapshot.getPricingPlan());
+    }
+
+    /**
+     * Validate that scans running while the inventory's products and the price rules are repeatedly replaced always
+     * price a cart entirely with one configuration.
+     * @throws Exception  If a scan fails.
+     */
+    @Test
+    public void testConcurrentUpdatesDoNotTearScans() throws Exception
+    {
+        final List<IProduct> cheapProducts = new ArrayList<IProduct>();
+        final List<IProduct> dearProducts = new ArrayList<IProduct>();
+        for (char id = 'A'; id <= 'D'; id++)
+        {
+            cheapProducts.add(new Product(String.valueOf(id), 10));
+            dearProducts.add(new Product(String.valueOf(id), 20));
+        }
+
+        final List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        final Inventory inventory = new Inventory(cheapProducts);
+        final PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        final AtomicBoolean updating = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            Future<Void> updater = executor.submit(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    for (int i = 0; i < 2000; i++)
+                    {
+                        inventory.setProducts(i % 2 == 0 ? dearProducts : cheapProducts);
+                        priceScanner.setPriceRules(priceRules);
+                        priceScanner.compile();
+                    }
+
+                    updating.set(false);
+                    return null;
+                }
+            });
+
+            List<Future<Void>> scanners = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 2; i++)
+            {
+                scanners.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        while (updating.get())
+                        {
+                            IShoppingCart cart = createIndexedCart("ABCDABCD", inventory);
+                            int total = priceScanner.scanItems(cart);
+                            Assert.assertTrue("Scan mixed configurations: " + total, total == 80 || total == 160);
+                        }
+
+                        return null;
+                    }
+                }));
+            }
+
+            updater.get();
+            for (Future<Void> scanner : scanners)
+            {
+                scanner.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Validate that scanning a large cart in parts on a fork/join pool gives the same total, and leaves the same
+     * quantities, as scanning it sequentially, including when a rule which cannot be partitioned sits between
+     * partitionable ones.
+     */
+    @Test
+    public void testParallelScanMatchesSequentialScan()
+    {
+        int productCount = PriceScanner.MINIMUM_PARTITION_LINES * 3;
+
+        List<IProduct> products = new ArrayList<IProduct>();
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        for (int i = 0; i < productCount; i++)
+        {
+            products.add(new Product("P" + i, i % 50 + 1));
+            if (i % 3 == 0)
+            {
+                priceRules.add(new XForThePriceOfYPriceRule("P" + i, 3, 2));
+            }
+        }
+
+        // Claims one of every product in the cart, so cannot be processed part by part
+        priceRules.add(new IPriceRule()
+        {
+            @Override
+            public int process(final IShoppingCart cart, IInventoryLookup lookup)
+            {
+                final int[] total = new int[1];
+                cart.forEachItem(new IItemVisitor()
+                {
+                    @Override
+                    public void visit(String productId, int quantity)
+                    {
+                        if (quantity > 0)
+                        {
+                            cart.setItemQuantity(productId, quantity - 1);
+                            total[0]++;
+                        }
+                    }
+                });
+
+                return total[0];
+            }
+        });
+
+        for (int i = 0; i < productCount; i += 5)
+        {
+            priceRules.add(new XForThePriceOfYPriceRule("P" + i, 2, 1));
+        }
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = new Inventory(products);
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+
+        IndexedShoppingCart sequentialCart = new IndexedShoppingCart(inventory.getDictionary());
+        IndexedShoppingCart parallelCart = new IndexedShoppingCart(inventory.getDictionary());
+        for (int i = 0; i < productCount; i++)
+        {
+            sequentialCart.addItems(i, i % 7 + 1);
+            parallelCart.addItems(i, i % 7 + 1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            Assert.assertEquals("Unexpected total from parallel scan", priceScanner.scanItems(sequentialCart),
+                    priceScanner.scanItems(parallelCart, pool));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        String message = IShoppingCartMatcher.getItemComparisonFailureMessage(sequentialCart.getItems(),
+                parallelCart.getItems());
+        if (!message.isEmpty())
+        {
+            Assert.fail("Errors comparing cart items after scans: " + message);
+        }
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null pool is passed into a PriceScanner object's
+     * scanItems() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullPoolInScanItemsCallThrowsIllegalArgumentException()
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        new PriceScanner(createInventory(), priceRules).scanItems(new ShoppingCart("A"), (ForkJoinPool) null);
+    }
+
+    private static IndexedShoppingCart createIndexedCart(String items, Inventory inventory)
+    {
+        return new IndexedShoppingCart(new CharIndexedShoppingCart(items), inventory.getDictionary());
+    }
+
+    private static Inventory createInventory()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("C", 30));
+        products.add(new Product("D", 15));
+
+        return new Inventory(products);
+    }
+
+    private static void validateScansMatch(PriceScanner expectedPriceScanner, IShoppingCart expectedCart,
+                                           PriceScanner actualPriceScanner, IShoppingCart actualCart)
+    {
+        Assert.assertEquals("Unexpected total returned from compiled scan",
+                expectedPriceScanner.scanItems(expectedCart), actualPriceScanner.scanItems(actualCart));
+
+        Collection<IItem> expectedItems = expectedCart.getItems();
+        String message = IShoppingCartMatcher.getItemComparisonFailureMessage(expectedItems, actualCart.getItems());
+        if (!message.isEmpty())
+        {
+            Assert.fail("Errors comparing cart items after scans: " + message);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package supermarket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the PricingSnapshotFile class.
+ */
+public class PricingSnapshotFileTest
+{
+    private File file;
+
+    /**
+     * Create the file to which each test writes its snapshot.
+     * @throws IOException  If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("pricing", ".snapshot");
+        file.deleteOnExit();
+    }
+
+    /**
+     * Delete the snapshot file.
+     */
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Validate that a restored scanner prices carts as the original did, with the same products, price rules and
+     * compiled plan.
+     * @throws IOException  If the snapshot cannot be written or loaded.
+     */
+    @Test
+    public void testCanRestoreScanner() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("\u00e9clair", 30));
+        for (int i = 0; i < 1000; i++)
+        {
+            products.add(new Product("SKU" + i, i));
+        }
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        PriceScanner original = new PriceScanner(new Inventory(products), priceRules);
+        original.compile();
+        PricingSnapshotFile.write(original, file);
+
+        PriceScanner restored = PricingSnapshotFile.load(file);
+        IProductCatalog catalog = (IProductCatalog) restored.getSnapshot().getInventory();
+
+        Assert.assertNotNull("Plan not compiled", restored.getSnapshot().getPricingPlan());
+        Assert.assertEquals("Unexpected product count", products.size(), catalog.getDictionary().size());
+        Assert.assertEquals("Unexpected index", 2, catalog.getDictionary().indexOf("\u00e9clair"));
+        Assert.assertEquals("Unexpected unit price", 999, restored.getProduct("SKU999").getUnitPrice());
+        Assert.assertEquals("Unexpected rules", 2, restored.getSnapshot().getPriceRules().size());
+
+        IShoppingCart cart = new IndexedShoppingCart(new CharIndexedShoppingCart("ABBACBBAB"),
+                catalog.getDictionary());
+        Assert.assertEquals("Unexpected total", 210, restored.scanItems(cart));
+    }
+
+    /**
+     * Validate that a scanner whose plan was optimal is restored with an optimal plan.
+     * @throws IOException  If the snapshot cannot be written or loaded.
+     */
+    @Test
+    public void testCanRestoreOptimalPricing() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("B", 50));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 3, 2));
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        PriceScanner original = new PriceScanner(new Inventory(products), priceRules);
+        original.setOptimalPricing(true);
+        original.compile();
+        PricingSnapshotFile.write(original, file);
+
+        PriceScanner restored = PricingSnapshotFile.load(file);
+        Assert.assertTrue("Optimal pricing not restored", restored.isOptimalPricing());
+        Assert.assertTrue("Plan not optimal", restored.getSnapshot().getPricingPlan().isOptimal());
+        Assert.assertEquals("Unexpected total", 150, restored.scanItems(new CharIndexedShoppingCart("BBBBB")));
+    }
+
+    /**
+     * Validate that a bundle rule is restored with its products, quantities and price.
+     * @throws IOException  If the snapshot cannot be written or loaded.
+     */
+    @Test
+    public void testCanRestoreBundle() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+
+        Map<String, Integer> componentQuantities = new LinkedHashMap<String, Integer>();
+        componentQuantities.put("B", 1);
+        componentQuantities.put("A", 2);
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BundlePriceRule(componentQuantities, 70));
+        priceRules.add(new BaseUnitPriceRule());
+        PricingSnapshotFile.write(new PriceScanner(new Inventory(products), priceRules), file);
+
+        PriceScanner restored = PricingSnapshotFile.load(file);
+        BundlePriceRule bundle = (BundlePriceRule) restored.getSnapshot().getPriceRules().get(0);
+        Assert.assertEquals("Unexpected products", Arrays.asList("B", "A"),
+                new ArrayList<String>(bundle.getProductIds()));
+        Assert.assertEquals("Unexpected total", 90, restored.scanItems(new CharIndexedShoppingCart("AABA")));
+    }
+
+    /**
+     * Validate that a file which is not a complete snapshot is refused.
+     * @throws IOException  If the snapshot cannot be written.
+     */
+    @Test(expected=IOException.class)
+    public void testTruncatedFileIsRefused() throws IOException
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+        PricingSnapshotFile.write(new PriceScanner(new Inventory(), priceRules), file);
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.setLength(randomAccessFile.length() - 1);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        PricingSnapshotFile.load(file);
+    }
+
+    /**
+     * Validate that a file whose product hash table has no empty slot, and so would never finish looking up an unknown
+     * id, is refused.
+     * @throws IOException  If the snapshot cannot be written.
+     */
+    @Test(expected=IOException.class, timeout=5000)
+    public void testCorruptHashTableIsRefused() throws IOException
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+        PricingSnapshotFile.write(new PriceScanner(new Inventory(products), priceRules), file);
+
+        // The slots follow the 32 byte header, the product offsets and the unit prices
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.seek(12);
+            int productCount = randomAccessFile.readInt();
+            randomAccessFile.seek(20);
+            int slotCount = randomAccessFile.readInt();
+
+            randomAccessFile.seek(32 + (productCount * 2 + 1) * 4);
+            for (int slot = 0; slot < slotCount; slot++)
+            {
+                randomAccessFile.writeInt(1);
+            }
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        new Supermarket(PricingSnapshotFile.load(file)).checkout("AZ");
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a scanner with a rule the file cannot hold is passed
+     * into the write() method.
+     * @throws IOException  If the snapshot cannot be written.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnknownRuleInWriteCallThrowsIllegalArgumentException() throws IOException
+    {
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new IPriceRule()
+        {
+            @Override
+            public int process(IShoppingCart cart, IInventoryLookup lookup)
+            {
+                return 0;
+            }
+        });
+
+        PricingSnapshotFile.write(new PriceScanner(new Inventory(), priceRules), file);
+    }
+}
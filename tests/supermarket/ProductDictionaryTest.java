@@ -0,0 +1,163 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the ProductDictionary class.
+ */
+public class ProductDictionaryTest
+{
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null ids argument is passed into a ProductDictionary
+     * object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullIdsInConstructorThrowsIllegalArgumentException()
+    {
+        new ProductDictionary(null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an ids argument containing a null element is passed
+     * into a ProductDictionary object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullIdElementInConstructorThrowsIllegalArgumentException()
+    {
+        new ProductDictionary(Arrays.asList("A", null));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an ids argument containing an empty element is passed
+     * into a ProductDictionary object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyIdElementInConstructorThrowsIllegalArgumentException()
+    {
+        new ProductDictionary(Arrays.asList("A", ""));
+    }
+
+    /**
+     * Validate that ids are assigned dense indexes in the order first supplied, with repeated ids keeping the index
+     * of their first occurrence.
+     */
+    @Test
+    public void testCanAssignIndexesInFirstSeenOrder()
+    {
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("B", "A", "CHEESE", "A"));
+
+        Assert.assertEquals("Unexpected dictionary size", 3, dictionary.size());
+        Assert.assertEquals("Unexpected index for B", 0, dictionary.indexOf("B"));
+        Assert.assertEquals("Unexpected index for A", 1, dictionary.indexOf("A"));
+        Assert.assertEquals("Unexpected index for CHEESE", 2, dictionary.indexOf("CHEESE"));
+        Assert.assertEquals("Unexpected id for index 2", "CHEESE", dictionary.getId(2));
+    }
+
+    /**
+     * Validate that single character ids can be resolved from a char, and that ids not in the dictionary resolve to
+     * -1.
+     */
+    @Test
+    public void testCanFindIndexByChar()
+    {
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("B", "A", "CHEESE"));
+
+        Assert.assertEquals("Unexpected index for 'A'", 1, dictionary.indexOf('A'));
+        Assert.assertEquals("Unexpected index for 'C'", -1, dictionary.indexOf('C'));
+        Assert.assertEquals("Unexpected index for 'Z'", -1, dictionary.indexOf('Z'));
+        Assert.assertEquals("Unexpected index for \"D\"", -1, dictionary.indexOf("D"));
+    }
+
+    /**
+     * Validate that every id in a large dictionary can be found at its assigned index.
+     */
+    @Test
+    public void testCanFindEveryIdInLargeDictionary()
+    {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 100000; i++)
+        {
+            ids.add("SKU" + i);
+        }
+
+        ProductDictionary dictionary = new ProductDictionary(ids);
+
+        Assert.assertEquals("Unexpected dictionary size", ids.size(), dictionary.size());
+        for (int i = 0; i < ids.size(); i++)
+        {
+            Assert.assertEquals("Unexpected index for " + ids.get(i), i, dictionary.indexOf(ids.get(i)));
+        }
+        Assert.assertEquals("Unexpected index for missing id", -1, dictionary.indexOf("SKU100000"));
+    }
+
+    /**
+     * Validate that product ids can be found from UTF-8 bytes in a buffer, whether or not they are ASCII.
+     */
+    @Test
+    public void testCanFindIndexByBytes()
+    {
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("A", "4006381333931", "\u00e9clair"));
+
+        byte[] bytes = "xx4006381333931A\u00e9clair4006381333932".getBytes(Charset.forName("UTF-8"));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+
+        Assert.assertEquals("Unexpected index for barcode", 1, dictionary.indexOf(buffer, 2, 13));
+        Assert.assertEquals("Unexpected index for single character", 0, dictionary.indexOf(buffer, 15, 1));
+        Assert.assertEquals("Unexpected index for non-ASCII id", 2, dictionary.indexOf(buffer, 16, 7));
+        Assert.assertEquals("Unexpected index for unknown id", -1, dictionary.indexOf(buffer, 23, 13));
+        Assert.assertEquals("Unexpected index for prefix of id", -1, dictionary.indexOf(buffer, 2, 12));
+        Assert.assertEquals("Buffer position changed", 0, buffer.position());
+    }
+
+    /**
+     * Validate that product ids can be found from a range of characters, without creating a String.
+     */
+    @Test
+    public void testCanFindIndexByChars()
+    {
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("A", "4006381333931", "\u00e9clair"));
+
+        CharSequence chars = new StringBuilder("xx4006381333931A\u00e9clair4006381333932");
+        Assert.assertEquals("Unexpected index for barcode", 1, dictionary.indexOf(chars, 2, 13));
+        Assert.assertEquals("Unexpected index for single character", 0, dictionary.indexOf(chars, 15, 1));
+        Assert.assertEquals("Unexpected index for non-ASCII id", 2, dictionary.indexOf(chars, 16, 6));
+        Assert.assertEquals("Unexpected index for unknown id", -1, dictionary.indexOf(chars, 22, 13));
+        Assert.assertEquals("Unexpected index for prefix of id", -1, dictionary.indexOf(chars, 2, 12));
+    }
+
+    /**
+     * Validate that a presized dictionary gives repeated ids the index of their first occurrence, and reports the index
+     * given to each id.
+     */
+    @Test
+    public void testCanAssignIndexesWhenPresized()
+    {
+        String[] ids = {"B", "A", "B", "C", "unused"};
+        int[] indexes = new int[4];
+        ProductDictionary dictionary = new ProductDictionary(ids, 4, indexes);
+
+        Assert.assertEquals("Unexpected size", 3, dictionary.size());
+        Assert.assertArrayEquals("Unexpected indexes", new int[] {0, 1, 0, 2}, indexes);
+        Assert.assertEquals("Unexpected index for char", 2, dictionary.indexOf('C'));
+        Assert.assertEquals("Unexpected index for id beyond count", -1, dictionary.indexOf("unused"));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an indexes array shorter than the id count is passed
+     * into a ProductDictionary object's constructor.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testShortIndexesInConstructorThrowsIllegalArgumentException()
+    {
+        new ProductDictionary(new String[] {"A", "B"}, 2, new int[1]);
+    }
+}
@@ -0,0 +1,124 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the ProductPricing class
+ */
+public class ProductPricingTest
+{
+    /**
+     * Validate that greedy pricing applies the deals in the order they were added.
+     */
+    @Test
+    public void testGreedyPricingAppliesDealsInOrder()
+    {
+        ProductPricing pricing = new ProductPricing();
+        pricing.addBulkDeal(3, 2);
+        pricing.addBulkDeal(5, 3);
+
+        Assert.assertEquals("Unexpected price", 100, pricing.price(5, 50));
+        Assert.assertEquals("Unexpected remainder", 2, pricing.remainder(5));
+    }
+
+    /**
+     * Validate that optimal pricing picks the cheapest combination of deals, whatever order they were added in.
+     */
+    @Test
+    public void testOptimalPricingPicksCheapestCombination()
+    {
+        ProductPricing pricing = new ProductPricing(true);
+        pricing.addBulkDeal(3, 2);
+        pricing.addBulkDeal(5, 3);
+
+        Assert.assertEquals("Unexpected price", 150, pricing.price(5, 50));
+        Assert.assertEquals("Unexpected remainder", 0, pricing.remainder(5));
+        Assert.assertEquals("Unexpected price of 8", 250, pricing.price(8, 50));
+        Assert.assertEquals("Unexpected remainder of 8", 0, pricing.remainder(8));
+    }
+
+    /**
+     * Validate that optimal pricing matches an exhaustive search, both below the bound of its table and above it.
+     */
+    @Test
+    public void testOptimalPricingMatchesExhaustiveSearch()
+    {
+        int[][] deals = {{4, 3}, {7, 4}, {9, 6}};
+
+        ProductPricing pricing = new ProductPricing(true);
+        for (int[] deal : deals)
+        {
+            pricing.addBulkDeal(deal[0], deal[1]);
+        }
+
+        for (int quantity = 0; quantity <= 200; quantity++)
+        {
+            int cheapest = cheapestPaidQuantity(deals, 0, quantity);
+            Assert.assertEquals("Unexpected cost of " + quantity, cheapest,
+                    pricing.price(quantity, 1) + pricing.remainder(quantity));
+        }
+    }
+
+    /**
+     * Validate that optimal pricing leaves every item for the unit price when no deal saves anything per unit.
+     */
+    @Test
+    public void testOptimalPricingWithoutSavingLeavesItems()
+    {
+        ProductPricing pricing = new ProductPricing(true);
+        pricing.addBulkDeal(2, 2);
+
+        Assert.assertEquals("Unexpected price", 0, pricing.price(1001, 10));
+        Assert.assertEquals("Unexpected remainder", 1001, pricing.remainder(1001));
+    }
+
+    /**
+     * Validate that optimal pricing of a very large quantity does not walk the whole quantity.
+     */
+    @Test(timeout=1000)
+    public void testOptimalPricingOfLargeQuantityIsBounded()
+    {
+        ProductPricing pricing = new ProductPricing(true);
+        pricing.addBulkDeal(3, 2);
+        pricing.addBulkDeal(5, 3);
+
+        Assert.assertEquals("Unexpected price", 599999999, pricing.price(999999998, 1));
+        Assert.assertEquals("Unexpected remainder", 0, pricing.remainder(999999998));
+    }
+
+    /**
+     * Validate that optimal pricing of a product with a deal too large for its table falls back to greedy pricing.
+     */
+    @Test
+    public void testOptimalPricingWithDealLargerThanTableIsGreedy()
+    {
+        ProductPricing pricing = new ProductPricing(true);
+        pricing.addBulkDeal(ProductPricing.MAXIMUM_TABLE_LENGTH * 2, 1);
+        pricing.addBulkDeal(3, 2);
+
+        int quantity = ProductPricing.MAXIMUM_TABLE_LENGTH + 4464;
+        Assert.assertEquals("Unexpected price", quantity / 3 * 2, pricing.price(quantity, 1));
+        Assert.assertEquals("Unexpected remainder", quantity % 3, pricing.remainder(quantity));
+        Assert.assertEquals("Unexpected price of two applications", 2,
+                pricing.price(ProductPricing.MAXIMUM_TABLE_LENGTH * 4, 1));
+    }
+
+    private static int cheapestPaidQuantity(int[][] deals, int deal, int quantity)
+    {
+        if (deal == deals.length)
+        {
+            return quantity;
+        }
+
+        int cheapest = Integer.MAX_VALUE;
+        for (int applications = 0; applications * deals[deal][0] <= quantity; applications++)
+        {
+            int cost = applications * deals[deal][1] +
+                    cheapestPaidQuantity(deals, deal + 1, quantity - applications * deals[deal][0]);
+            cheapest = Math.min(cheapest, cost);
+        }
+
+        return cheapest;
+    }
+}
@@ -3,6 +3,8 @@ package supermarket;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+
 /**
  * Tests for the Program class
  */
@@ -75,4 +77,23 @@ public class ProgramTest
     {
         Program.main(new String[]{"ABC", "A"});
     }
+
+    /**
+     * Validate that a checkout server can be created for the program's dependencies and started on a free port.
+     * @throws IOException  If the server cannot listen.
+     */
+    @Test
+    public void testCanServeCheckouts() throws IOException
+    {
+        CheckoutServer server = Program.serve(0);
+        server.start();
+        try
+        {
+            Assert.assertTrue("Server not listening on a port", server.getAddress().getPort() > 0);
+        }
+        finally
+        {
+            server.stop(0);
+        }
+    }
 }
@@ -259,6 +259,66 @@ public class ShoppingCartTest
         validateItems(expectedItems, cartItems);
     }
 
+    /**
+     * Validate that each item is passed to a visitor, and that the visitor can change the quantity of the item it is
+     * visiting.
+     */
+    @Test
+    public void testCanVisitItems()
+    {
+        final ShoppingCart cart = new ShoppingCart("ABBACBBAB");
+        final List<IItem> visitedItems = new ArrayList<IItem>();
+
+        cart.forEachItem(new IItemVisitor()
+        {
+            @Override
+            public void visit(String productId, int quantity)
+            {
+                visitedItems.add(new Item(productId, quantity));
+                cart.setItemQuantity(productId, 0);
+            }
+        });
+
+        List<IItem> expectedItems = new ArrayList<IItem>();
+        expectedItems.add(new Item("A", 3));
+        expectedItems.add(new Item("B", 5));
+        expectedItems.add(new Item("C", 1));
+        validateItems(expectedItems, visitedItems);
+        Assert.assertEquals("Unexpected quantity after visit", 0, cart.getItemQuantity("A"));
+    }
+
+    /**
+     * Validate that the quantity of an item can be obtained by product id, and is zero for items not in the cart.
+     */
+    @Test
+    public void testCanGetItemQuantity()
+    {
+        ShoppingCart cart = new ShoppingCart("ABBACBBAB");
+
+        Assert.assertEquals("Unexpected quantity", 3, cart.getItemQuantity("A"));
+        Assert.assertEquals("Unexpected quantity for nonexistent item", 0, cart.getItemQuantity("D"));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when an empty product id argument is passed into a
+     * ShoppingCart object's getItemQuantity() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyProductIdInGetItemQuantityCallThrowsIllegalArgumentException()
+    {
+        new ShoppingCart("").getItemQuantity("");
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null visitor argument is passed into a
+     * ShoppingCart object's forEachItem() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullVisitorInForEachItemCallThrowsIllegalArgumentException()
+    {
+        new ShoppingCart("").forEachItem(null);
+    }
+
     private void validateItem(IItem item, String expectedProductId, int expectedQuantity)
     {
         Assert.assertNotNull("Item retrieved is null", item);
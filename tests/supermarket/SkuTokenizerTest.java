@@ -0,0 +1,87 @@
+package supermarket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Tests for the SkuTokenizer class
+ */
+public class SkuTokenizerTest
+{
+    private static final ProductDictionary DICTIONARY = new ProductDictionary(
+            Arrays.asList("4006381333931", "AB-12", "9780201633610"));
+
+    /**
+     * Validate that delimited ids are counted against the dictionary, skipping repeated delimiters and keeping ids
+     * not in the dictionary as unknown items.
+     */
+    @Test
+    public void testCanAddItemsFromCharSequence()
+    {
+        IndexedShoppingCart cart = new IndexedShoppingCart(DICTIONARY);
+        SkuTokenizer.addItems(new StringBuilder(" 4006381333931,,4006381333931\tAB-12\r\nXYZ-9,"), cart);
+
+        validateCart(cart);
+    }
+
+    /**
+     * Validate that delimited UTF-8 ids in a buffer are counted as from characters, reading only between the buffer's
+     * position and limit and leaving both unchanged.
+     */
+    @Test
+    public void testCanAddItemsFromByteBuffer()
+    {
+        byte[] bytes = "9780201633610 4006381333931,,4006381333931\tAB-12\r\nXYZ-9, 9780201633610"
+                .getBytes(Charset.forName("UTF-8"));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 14, bytes.length - 28);
+
+        IndexedShoppingCart cart = new IndexedShoppingCart(DICTIONARY);
+        SkuTokenizer.addItems(buffer, cart);
+
+        validateCart(cart);
+        Assert.assertEquals("Position changed", 14, buffer.position());
+        Assert.assertEquals("Limit changed", bytes.length - 14, buffer.limit());
+    }
+
+    /**
+     * Validate that an id outside ASCII is found in the dictionary from both characters and bytes.
+     */
+    @Test
+    public void testCanAddNonAsciiItems()
+    {
+        ProductDictionary dictionary = new ProductDictionary(Arrays.asList("\u00e9clair", "A"));
+
+        IndexedShoppingCart charCart = new IndexedShoppingCart(dictionary);
+        SkuTokenizer.addItems("\u00e9clair A \u00e9clair", charCart);
+        Assert.assertEquals("Unexpected quantity from characters", 2, charCart.getQuantity(0));
+
+        IndexedShoppingCart byteCart = new IndexedShoppingCart(dictionary);
+        SkuTokenizer.addItems(ByteBuffer.wrap("\u00e9clair A \u00e9clair".getBytes(Charset.forName("UTF-8"))),
+                byteCart);
+        Assert.assertEquals("Unexpected quantity from bytes", 2, byteCart.getQuantity(0));
+        Assert.assertFalse("Unexpected unknown items", byteCart.hasUnknownItems());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null items argument is passed into the addItems()
+     * method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullItemsInAddItemsCallThrowsIllegalArgumentException()
+    {
+        SkuTokenizer.addItems((CharSequence) null, new IndexedShoppingCart(DICTIONARY));
+    }
+
+    private static void validateCart(IndexedShoppingCart cart)
+    {
+        Assert.assertEquals("Unexpected quantity of 4006381333931", 2, cart.getItemQuantity("4006381333931"));
+        Assert.assertEquals("Unexpected quantity of AB-12", 1, cart.getItemQuantity("AB-12"));
+        Assert.assertEquals("Unexpected quantity of 9780201633610", 0, cart.getItemQuantity("9780201633610"));
+        Assert.assertEquals("Unexpected quantity of unknown XYZ-9", 1, cart.getItemQuantity("XYZ-9"));
+        Assert.assertEquals("Unexpected line count", 2, cart.getLineCount());
+    }
+}
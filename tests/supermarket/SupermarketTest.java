@@ -8,8 +8,21 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Tests for the Supermarket class
@@ -37,7 +50,7 @@ public class SupermarketTest
     public void testNullItemsInCheckoutCallThrowsIllegalArgumentException()
     {
         final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
-        new Supermarket(priceScanner).checkout(null);
+        new Supermarket(priceScanner).checkout((String) null);
     }
 
     /**
@@ -118,6 +131,293 @@ public class SupermarketTest
                 new Supermarket(priceScanner).checkout("ABBACBBAB"));
     }
 
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null reader is passed into a Supermarket object's
+     * checkout() method.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullReaderInCheckoutCallThrowsIllegalArgumentException() throws IOException
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        new Supermarket(priceScanner).checkout((Reader) null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null input stream is passed into a Supermarket
+     * object's checkout() method.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullInputStreamInCheckoutCallThrowsIllegalArgumentException() throws IOException
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        new Supermarket(priceScanner).checkout((InputStream) null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null channel is passed into a Supermarket object's
+     * checkout() method.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullChannelInCheckoutCallThrowsIllegalArgumentException() throws IOException
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        new Supermarket(priceScanner).checkout((ReadableByteChannel) null);
+    }
+
+    /**
+     * Validate that a checkout is successful when multiple items are read from a reader.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test
+    public void testCanCheckoutWithMultipleItemsFromReader() throws IOException
+    {
+        final int expectedReturnValue = 15;
+        final IPriceScanner priceScanner = expectScanOfMultipleItems(expectedReturnValue);
+
+        Assert.assertEquals("Unexpected total returned from checkout", expectedReturnValue,
+                new Supermarket(priceScanner).checkout(new StringReader("ABBACBBAB")));
+    }
+
+    /**
+     * Validate that a checkout is successful when multiple items are read from an input stream.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test
+    public void testCanCheckoutWithMultipleItemsFromInputStream() throws IOException
+    {
+        final int expectedReturnValue = 15;
+        final IPriceScanner priceScanner = expectScanOfMultipleItems(expectedReturnValue);
+
+        Assert.assertEquals("Unexpected total returned from checkout", expectedReturnValue,
+                new Supermarket(priceScanner).checkout(getInputStream("ABBACBBAB")));
+    }
+
+    /**
+     * Validate that a checkout is successful when multiple items are read from a channel.
+     * @throws IOException  Not expected to be thrown.
+     */
+    @Test
+    public void testCanCheckoutWithMultipleItemsFromChannel() throws IOException
+    {
+        final int expectedReturnValue = 15;
+        final IPriceScanner priceScanner = expectScanOfMultipleItems(expectedReturnValue);
+
+        Assert.assertEquals("Unexpected total returned from checkout", expectedReturnValue,
+                new Supermarket(priceScanner).checkout(Channels.newChannel(getInputStream("ABBACBBAB"))));
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null carts argument is passed into a Supermarket
+     * object's checkoutAll() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullCartsInCheckoutAllCallThrowsIllegalArgumentException()
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        new Supermarket(priceScanner).checkoutAll(null);
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a carts argument containing a null element is passed
+     * into a Supermarket object's checkoutAll() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullCartElementInCheckoutAllCallThrowsIllegalArgumentException()
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        new Supermarket(priceScanner).checkoutAll(Arrays.asList("AB", null));
+    }
+
+    /**
+     * Validate that a batch checkout of no carts returns no totals.
+     */
+    @Test
+    public void testCanCheckoutAllWithNoCarts()
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        Assert.assertEquals("Unexpected number of totals returned from checkoutAll", 0,
+                new Supermarket(priceScanner).checkoutAll(new ArrayList<String>()).length);
+    }
+
+    /**
+     * Validate that a batch checkout on the default pool returns the same totals as checking out each cart in turn,
+     * in input order.  This is an integration test.
+     */
+    @Test
+    public void testCanCheckoutAllInInputOrder()
+    {
+        Supermarket supermarket = createSupermarket();
+        List<String> carts = createCarts(1000);
+
+        Assert.assertArrayEquals("Unexpected totals returned from checkoutAll", checkoutEach(supermarket, carts),
+                supermarket.checkoutAll(carts));
+    }
+
+    /**
+     * Validate that a batch checkout on a caller-supplied executor returns the same totals as checking out each cart in
+     * turn, in input order.  This is an integration test.
+     * @throws InterruptedException  Not expected to be thrown.
+     */
+    @Test
+    public void testCanCheckoutAllOnExecutorInInputOrder() throws InterruptedException
+    {
+        Supermarket supermarket = createSupermarket();
+        List<String> carts = createCarts(1000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            Assert.assertArrayEquals("Unexpected totals returned from checkoutAll", checkoutEach(supermarket, carts),
+                    supermarket.checkoutAll(carts, executor));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Validate that an exact checkout returns a total beyond the range of an int.  This is an integration test.
+     */
+    @Test
+    public void testCanCheckoutExactBeyondIntRange()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", Integer.MAX_VALUE));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = new Inventory(products);
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        priceScanner.compile();
+
+        Assert.assertEquals("Unexpected total returned from checkoutExact", 3L * Integer.MAX_VALUE,
+                new Supermarket(priceScanner, inventory).checkoutExact("AAA"));
+    }
+
+    /**
+     * Validate that an exact checkout returns a total beyond the range of an int when the scanner's price rules are not
+     * compiled.  This is an integration test.
+     */
+    @Test
+    public void testCanCheckoutExactBeyondIntRangeUncompiled()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 1000000));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = new Inventory(products);
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+        {
+            items.append('A');
+        }
+
+        Assert.assertEquals("Unexpected total with catalog", 3000000000L,
+                new Supermarket(priceScanner, inventory).checkoutExact(items.toString()));
+        Assert.assertEquals("Unexpected total without catalog", 3000000000L,
+                new Supermarket(priceScanner).checkoutExact(items.toString()));
+    }
+
+    /**
+     * Validate that carts of multi-character product ids are priced the same from characters and bytes, and the same
+     * with a catalog as without.  This is an integration test.
+     */
+    @Test
+    public void testCanCheckoutSkus()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("4006381333931", 20));
+        products.add(new Product("AB-12", 50));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("AB-12", 3, 2));
+        priceRules.add(new BaseUnitPriceRule());
+
+        Inventory inventory = new Inventory(products);
+        PriceScanner priceScanner = new PriceScanner(inventory, priceRules);
+        String items = "AB-12,4006381333931, AB-12,AB-12\nAB-12";
+
+        Assert.assertEquals("Unexpected total with catalog", 170,
+                new Supermarket(priceScanner, inventory).checkoutSkus(items));
+        Assert.assertEquals("Unexpected total from bytes", 170, new Supermarket(priceScanner, inventory)
+                .checkoutSkus(ByteBuffer.wrap(items.getBytes(Charset.forName("UTF-8")))));
+        Assert.assertEquals("Unexpected total without catalog", 170, new Supermarket(priceScanner).checkoutSkus(items));
+    }
+
+    private static Supermarket createSupermarket()
+    {
+        List<IProduct> products = new ArrayList<IProduct>();
+        products.add(new Product("A", 20));
+        products.add(new Product("B", 50));
+        products.add(new Product("C", 30));
+
+        List<IPriceRule> priceRules = new ArrayList<IPriceRule>();
+        priceRules.add(new XForThePriceOfYPriceRule("B", 5, 3));
+        priceRules.add(new BaseUnitPriceRule());
+
+        return new Supermarket(new PriceScanner(new Inventory(products), priceRules));
+    }
+
+    private static List<String> createCarts(int cartCount)
+    {
+        List<String> carts = new ArrayList<String>(cartCount);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < cartCount; i++)
+        {
+            builder.append("ABC".charAt(i % 3));
+            if (i % 7 == 0)
+            {
+                builder.append("BB");
+            }
+            carts.add(builder.toString());
+        }
+        return carts;
+    }
+
+    private static int[] checkoutEach(Supermarket supermarket, List<String> carts)
+    {
+        int[] totals = new int[carts.size()];
+        for (int i = 0; i < totals.length; i++)
+        {
+            totals[i] = supermarket.checkout(carts.get(i));
+        }
+        return totals;
+    }
+
+    private IPriceScanner expectScanOfMultipleItems(final int expectedReturnValue)
+    {
+        final IPriceScanner priceScanner = context.mock(IPriceScanner.class);
+        final IShoppingCart expectedShoppingCart = context.mock(IShoppingCart.class);
+
+        final Collection<IItem> cartItems = new ArrayList<IItem>();
+        cartItems.add(new Item("A", 3));
+        cartItems.add(new Item("B", 5));
+        cartItems.add(new Item("C", 1));
+
+        context.checking(new Expectations() {{
+            atLeast(1).of(expectedShoppingCart).getItems();
+            will(returnValue(cartItems));
+
+            oneOf(priceScanner).scanItems(with(ShoppingCartEquals(expectedShoppingCart)));
+            will(returnValue(expectedReturnValue));
+        }});
+
+        return priceScanner;
+    }
+
+    private static InputStream getInputStream(String items)
+    {
+        return new ByteArrayInputStream(items.getBytes(Charset.forName("UTF-8")));
+    }
+
     @Factory
     private static Matcher<IShoppingCart> ShoppingCartEquals(IShoppingCart cart)
     {
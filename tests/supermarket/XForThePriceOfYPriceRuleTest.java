@@ -6,6 +6,8 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.Collections;
+
 /**
  * Tests for the XForThePriceOfYPriceRule class
  */
@@ -139,13 +141,9 @@ public class XForThePriceOfYPriceRuleTest
 
         final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
         final IShoppingCart cart = context.mock(IShoppingCart.class);
-        final IItem item = context.mock(IItem.class);
 
         context.checking(new Expectations() {{
-            oneOf(cart).getItem(productId);
-            will(returnValue(item));
-
-            oneOf(item).getQuantity();
+            oneOf(cart).getItemQuantity(productId);
             will(returnValue(cartItemQuantity));
 
             oneOf(inventory).getProduct(productId);
@@ -171,8 +169,8 @@ public class XForThePriceOfYPriceRuleTest
         final IShoppingCart cart = context.mock(IShoppingCart.class);
 
         context.checking(new Expectations() {{
-            oneOf(cart).getItem(productId);
-            will(returnValue(null));
+            oneOf(cart).getItemQuantity(productId);
+            will(returnValue(0));
         }});
 
         XForThePriceOfYPriceRule rule = new XForThePriceOfYPriceRule(productId, 3, 2);
@@ -192,13 +190,9 @@ public class XForThePriceOfYPriceRuleTest
 
         final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
         final IShoppingCart cart = context.mock(IShoppingCart.class);
-        final IItem item = context.mock(IItem.class);
 
         context.checking(new Expectations() {{
-            oneOf(cart).getItem(productId);
-            will(returnValue(item));
-
-            oneOf(item).getQuantity();
+            oneOf(cart).getItemQuantity(productId);
             will(returnValue(cartItemQuantity));
         }});
 
@@ -220,13 +214,9 @@ public class XForThePriceOfYPriceRuleTest
 
         final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
         final IShoppingCart cart = context.mock(IShoppingCart.class);
-        final IItem item = context.mock(IItem.class);
 
         context.checking(new Expectations() {{
-            oneOf(cart).getItem(productId);
-            will(returnValue(item));
-
-            oneOf(item).getQuantity();
+            oneOf(cart).getItemQuantity(productId);
             will(returnValue(cartItemQuantity));
 
             oneOf(inventory).getProduct(productId);
@@ -252,13 +242,9 @@ public class XForThePriceOfYPriceRuleTest
 
         final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
         final IShoppingCart cart = context.mock(IShoppingCart.class);
-        final IItem item = context.mock(IItem.class);
 
         context.checking(new Expectations() {{
-            oneOf(cart).getItem(productId);
-            will(returnValue(item));
-
-            oneOf(item).getQuantity();
+            oneOf(cart).getItemQuantity(productId);
             will(returnValue(cartItemQuantity));
 
             oneOf(inventory).getProduct(productId);
@@ -285,13 +271,9 @@ public class XForThePriceOfYPriceRuleTest
 
         final IInventoryLookup inventory = context.mock(IInventoryLookup.class);
         final IShoppingCart cart = context.mock(IShoppingCart.class);
-        final IItem item = context.mock(IItem.class);
 
         context.checking(new Expectations() {{
-            oneOf(cart).getItem(productId);
-            will(returnValue(item));
-
-            oneOf(item).getQuantity();
+            oneOf(cart).getItemQuantity(productId);
             will(returnValue(cartItemQuantity));
 
             oneOf(inventory).getProduct(productId);
@@ -304,4 +286,24 @@ public class XForThePriceOfYPriceRuleTest
         Assert.assertEquals("Unexpected subtotal returned from process", 300,
                 rule.process(cart, inventory));
     }
-}
\ No newline at end of file
+
+    /**
+     * Validate that the rule declares the product it was constructed with as the only product it applies to.
+     */
+    @Test
+    public void testProductIdsHoldRuleProduct()
+    {
+        Assert.assertEquals("Unexpected product ids", Collections.singleton("B"),
+                new XForThePriceOfYPriceRule("B", 5, 3).getProductIds());
+    }
+
+    /**
+     * Validate that an IllegalArgumentException is thrown when a null plan is passed into an XForThePriceOfYPriceRule
+     * object's compileInto() method.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNullPlanInCompileIntoCallThrowsIllegalArgumentException()
+    {
+        new XForThePriceOfYPriceRule("A", 5, 3).compileInto(null);
+    }
+}